@@ -0,0 +1,88 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.*;
+import io.bitsquare.crypto.EncryptionService;
+import io.bitsquare.p2p.messaging.DecryptedMsgWithPubKey;
+import io.bitsquare.trade.protocol.trade.messages.FiatTransferStartedMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hybrid encryption as used for all trade and dispute messages sent directly or via the mailbox.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionBenchmark {
+    private File senderStorageDir;
+    private File receiverStorageDir;
+    private KeyRing senderKeyRing;
+    private KeyRing receiverKeyRing;
+    private EncryptionService senderEncryptionService;
+    private EncryptionService receiverEncryptionService;
+    private FiatTransferStartedMessage message;
+    private SealedAndSigned sealedAndSigned;
+
+    @Setup
+    public void setup() throws IOException, CryptoException {
+        senderStorageDir = Fixtures.createTempDir();
+        receiverStorageDir = Fixtures.createTempDir();
+        senderKeyRing = Fixtures.createKeyRing(senderStorageDir);
+        receiverKeyRing = Fixtures.createKeyRing(receiverStorageDir);
+        senderEncryptionService = new EncryptionService(senderKeyRing);
+        receiverEncryptionService = new EncryptionService(receiverKeyRing);
+
+        message = Fixtures.createTradeMessage();
+        sealedAndSigned = senderEncryptionService.encryptAndSign(receiverKeyRing.getPubKeyRing(), message);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.deleteTempDir(senderStorageDir);
+        Fixtures.deleteTempDir(receiverStorageDir);
+    }
+
+    @Benchmark
+    public SealedAndSigned encryptHybridWithSignature() throws CryptoException {
+        return Encryption.encryptHybridWithSignature(message, senderKeyRing.getSignatureKeyPair(),
+                receiverKeyRing.getPubKeyRing().getEncryptionPubKey());
+    }
+
+    @Benchmark
+    public DecryptedPayloadWithPubKey decryptHybridWithSignature() throws CryptoException {
+        return Encryption.decryptHybridWithSignature(sealedAndSigned, receiverKeyRing.getEncryptionKeyPair().getPrivate());
+    }
+
+    @Benchmark
+    public SealedAndSigned encryptAndSign() throws CryptoException {
+        return senderEncryptionService.encryptAndSign(receiverKeyRing.getPubKeyRing(), message);
+    }
+
+    @Benchmark
+    public DecryptedMsgWithPubKey decryptAndVerify() throws CryptoException {
+        return receiverEncryptionService.decryptAndVerify(sealedAndSigned);
+    }
+}
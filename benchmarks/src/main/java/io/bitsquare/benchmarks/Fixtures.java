@@ -0,0 +1,107 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.*;
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.crypto.PrefixedSealedAndSignedMessage;
+import io.bitsquare.locale.Country;
+import io.bitsquare.locale.Region;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.storage.data.ExpirableMailboxPayload;
+import io.bitsquare.payment.PaymentMethod;
+import io.bitsquare.trade.offer.Offer;
+import io.bitsquare.trade.protocol.trade.messages.FiatTransferStartedMessage;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Realistic objects as they are sent over the wire or stored, used as input for the benchmarks.
+ */
+public class Fixtures {
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    public static KeyRing createKeyRing(File storageDir) {
+        return new KeyRing(new KeyStorage(storageDir));
+    }
+
+    public static File createTempDir() throws IOException {
+        File dir = File.createTempFile("bitsquare_benchmarks", "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    public static void deleteTempDir(File dir) throws IOException {
+        if (dir != null)
+            Utilities.deleteDirectory(dir);
+    }
+
+    public static NodeAddress createNodeAddress() {
+        return new NodeAddress("3ulryjbyevdgkvv3.onion", 8000);
+    }
+
+    public static Offer createOffer(PubKeyRing pubKeyRing) {
+        return createOffer(pubKeyRing, "EUR");
+    }
+
+    public static Offer createOffer(PubKeyRing pubKeyRing, String currencyCode) {
+        Country country = new Country("DE", "Germany", new Region("EU", "Europe"));
+        return new Offer(UUID.randomUUID().toString(),
+                createNodeAddress(),
+                pubKeyRing,
+                Offer.Direction.BUY,
+                2500000,
+                100000000,
+                10000000,
+                PaymentMethod.SEPA_ID,
+                currencyCode,
+                country,
+                UUID.randomUUID().toString(),
+                Arrays.asList(new NodeAddress("arbitrator1abcdef.onion", 8000), new NodeAddress("arbitrator2abcdef.onion", 8000)),
+                Arrays.asList("DE", "AT", "FR", "IT", "ES", "NL", "BE"));
+    }
+
+    public static FiatTransferStartedMessage createTradeMessage() {
+        return new FiatTransferStartedMessage(UUID.randomUUID().toString(),
+                "1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN2",
+                createNodeAddress());
+    }
+
+    public static PrefixedSealedAndSignedMessage createPrefixedSealedAndSignedMessage(KeyRing senderKeyRing,
+                                                                                     PubKeyRing receiverPubKeyRing)
+            throws CryptoException {
+        SealedAndSigned sealedAndSigned = Encryption.encryptHybridWithSignature(createTradeMessage(),
+                senderKeyRing.getSignatureKeyPair(), receiverPubKeyRing.getEncryptionPubKey());
+        return new PrefixedSealedAndSignedMessage(createNodeAddress(), sealedAndSigned, Hash.getHash("3ulryjbyevdgkvv3"));
+    }
+
+    public static ExpirableMailboxPayload createMailboxPayload(KeyRing senderKeyRing, PubKeyRing receiverPubKeyRing)
+            throws CryptoException {
+        return new ExpirableMailboxPayload(createPrefixedSealedAndSignedMessage(senderKeyRing, receiverPubKeyRing),
+                senderKeyRing.getSignatureKeyPair().getPublic(),
+                receiverPubKeyRing.getSignaturePubKey());
+    }
+}
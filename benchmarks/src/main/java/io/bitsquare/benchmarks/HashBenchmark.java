@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.Hash;
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.trade.offer.Offer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+    @Param({"32", "1024", "65536"})
+    public int size;
+
+    private byte[] data;
+    private Offer offer;
+    private File storageDir;
+
+    @Setup
+    public void setup() throws IOException {
+        data = new byte[size];
+        new Random(1).nextBytes(data);
+
+        storageDir = Fixtures.createTempDir();
+        KeyRing keyRing = Fixtures.createKeyRing(storageDir);
+        offer = Fixtures.createOffer(keyRing.getPubKeyRing());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.deleteTempDir(storageDir);
+    }
+
+    @Benchmark
+    public byte[] hashByteArray() {
+        return Hash.getHash(data);
+    }
+
+    // Serializes the object first, so that is mostly the cost of Java serialisation
+    @Benchmark
+    public byte[] hashOffer() {
+        return Hash.getHash(offer);
+    }
+}
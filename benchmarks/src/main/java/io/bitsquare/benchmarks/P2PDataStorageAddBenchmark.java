@@ -0,0 +1,76 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores are the time for a batch of BATCH_SIZE operations.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = P2PDataStorageFixture.BATCH_SIZE)
+@Measurement(iterations = 5, batchSize = P2PDataStorageFixture.BATCH_SIZE)
+@Fork(1)
+public class P2PDataStorageAddBenchmark extends P2PDataStorageFixture {
+    private List<ProtectedData> newData;
+    private List<ProtectedData> storedData;
+    private List<ProtectedData> rePublishData;
+    private int index;
+
+    @Override
+    protected void setupData() throws CryptoException {
+        newData = createSignedOffers(BATCH_SIZE);
+        storedData = createSignedOffers(BATCH_SIZE);
+        putIntoMap(storedData);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareBatch() throws CryptoException {
+        index = 0;
+        removeFromMap(newData);
+
+        // Each republish needs a signature for the next sequence number
+        rePublishData = new ArrayList<>(BATCH_SIZE);
+        for (ProtectedData data : storedData)
+            rePublishData.add(dataStorage.getDataWithSignedSeqNr(data.expirablePayload,
+                    senderKeyRing.getSignatureKeyPair()));
+    }
+
+    @Benchmark
+    public boolean add() {
+        return dataStorage.add(newData.get(index++ % BATCH_SIZE), null);
+    }
+
+    // Same data delivered again by another peer
+    @Benchmark
+    public boolean addDuplicate() {
+        return dataStorage.add(storedData.get(index++ % BATCH_SIZE), null);
+    }
+
+    @Benchmark
+    public boolean rePublish() {
+        return dataStorage.rePublish(rePublishData.get(index++ % BATCH_SIZE), null);
+    }
+}
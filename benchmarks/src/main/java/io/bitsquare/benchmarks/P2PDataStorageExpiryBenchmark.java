@@ -0,0 +1,55 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One run of removeExpiredEntries over the whole map with BATCH_SIZE expired entries.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class P2PDataStorageExpiryBenchmark extends P2PDataStorageFixture {
+    private List<ProtectedData> expiredData;
+
+    @Override
+    protected void setupData() throws CryptoException {
+        expiredData = createSignedOffers(BATCH_SIZE);
+        Date expiredDate = new Date(new Date().getTime() - 24 * 60 * 60 * 1000);
+        expiredData.stream().forEach(data -> data.date = expiredDate);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareExpiredEntries() {
+        putIntoMap(expiredData);
+    }
+
+    @Benchmark
+    public void removeExpiredEntries() {
+        dataStorage.removeExpiredEntries();
+    }
+}
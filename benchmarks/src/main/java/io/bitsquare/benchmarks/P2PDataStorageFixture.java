@@ -0,0 +1,117 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.ByteArray;
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.common.crypto.Hash;
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.p2p.network.LocalhostNetworkNode;
+import io.bitsquare.p2p.network.NetworkNode;
+import io.bitsquare.p2p.peers.Broadcaster;
+import io.bitsquare.p2p.storage.P2PDataStorage;
+import io.bitsquare.p2p.storage.data.ExpirablePayload;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import io.bitsquare.trade.offer.Offer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A P2PDataStorage filled with the given number of offers.
+ * <p>
+ * The network node is not started, so broadcasts have no receivers and we measure only the storage itself.
+ * The entries used to fill the map are put directly into the map. They are not signed, as they are never validated,
+ * and adding them via add would take hours at 100k entries. All data used by the benchmark methods is signed.
+ */
+@State(Scope.Benchmark)
+public abstract class P2PDataStorageFixture {
+    // Operations per measured batch. Kept small as add and remove are O(n) in the map size.
+    public static final int BATCH_SIZE = 100;
+
+    private static final String[] CURRENCY_CODES = {"EUR", "USD", "GBP", "CHF", "JPY", "CAD", "AUD", "SEK", "NOK", "BRL"};
+
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    protected File storageDir;
+    protected File senderKeyStorageDir;
+    protected File receiverKeyStorageDir;
+    protected KeyRing senderKeyRing;
+    protected KeyRing receiverKeyRing;
+    protected NetworkNode networkNode;
+    protected P2PDataStorage dataStorage;
+
+    @Setup(Level.Trial)
+    public void setupDataStorage() throws IOException, CryptoException {
+        storageDir = Fixtures.createTempDir();
+        senderKeyStorageDir = Fixtures.createTempDir();
+        receiverKeyStorageDir = Fixtures.createTempDir();
+        senderKeyRing = Fixtures.createKeyRing(senderKeyStorageDir);
+        receiverKeyRing = Fixtures.createKeyRing(receiverKeyStorageDir);
+
+        networkNode = new LocalhostNetworkNode(9999);
+        dataStorage = new P2PDataStorage(new Broadcaster(networkNode), networkNode, storageDir);
+
+        byte[] signature = new byte[46];
+        for (int i = 0; i < entries; i++) {
+            Offer offer = Fixtures.createOffer(senderKeyRing.getPubKeyRing(), CURRENCY_CODES[i % CURRENCY_CODES.length]);
+            ProtectedData protectedData = new ProtectedData(offer, offer.getTTL(),
+                    senderKeyRing.getSignatureKeyPair().getPublic(), 0, signature);
+            dataStorage.getMap().put(getHash(offer), protectedData);
+        }
+
+        setupData();
+    }
+
+    // Called after the storage is filled. JMH does not define an order for the setup methods of a class hierarchy.
+    protected void setupData() throws CryptoException {
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownDataStorage() throws IOException {
+        dataStorage.shutDown();
+        Fixtures.deleteTempDir(storageDir);
+        Fixtures.deleteTempDir(senderKeyStorageDir);
+        Fixtures.deleteTempDir(receiverKeyStorageDir);
+    }
+
+    protected List<ProtectedData> createSignedOffers(int count) throws CryptoException {
+        List<ProtectedData> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Offer offer = Fixtures.createOffer(senderKeyRing.getPubKeyRing());
+            list.add(dataStorage.getDataWithSignedSeqNr(offer, senderKeyRing.getSignatureKeyPair()));
+        }
+        return list;
+    }
+
+    protected void putIntoMap(List<? extends ProtectedData> list) {
+        list.stream().forEach(data -> dataStorage.getMap().put(getHash(data.expirablePayload), data));
+    }
+
+    protected void removeFromMap(List<? extends ProtectedData> list) {
+        list.stream().forEach(data -> dataStorage.getMap().remove(getHash(data.expirablePayload)));
+    }
+
+    protected static ByteArray getHash(ExpirablePayload payload) {
+        return new ByteArray(Hash.getHash(payload));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a simulated gossip stream of add messages where each entry is delivered by several peers.
+ * <p>
+ * With duplicates=3 every entry arrives 3 times from different peers, as happens when we are connected to
+ * several peers which all relay the broadcast. When the stream wraps around the entries are removed from the map
+ * again, so every round starts with new data. That cleanup is part of the measurement but negligible.
+ * <p>
+ * Run with -prof gc to get the allocation rate and GC pause times.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class P2PDataStorageGossipBenchmark extends P2PDataStorageFixture {
+    private static final int STREAM_SIZE = 1000;
+
+    @Param({"1", "3"})
+    public int duplicates;
+
+    private List<ProtectedData> stream;
+    private NodeAddress[] senders;
+    private int counter;
+
+    @Override
+    protected void setupData() throws CryptoException {
+        stream = createSignedOffers(STREAM_SIZE);
+        senders = new NodeAddress[duplicates];
+        for (int i = 0; i < duplicates; i++)
+            senders[i] = new NodeAddress("peer" + i + "abcdefghijk.onion", 8000);
+    }
+
+    @Benchmark
+    public boolean deliverAddMessage() {
+        if (counter == STREAM_SIZE * duplicates) {
+            counter = 0;
+            removeFromMap(stream);
+        }
+        // Duplicates are interleaved with other messages as they arrive with different delays from the peers
+        int position = counter++;
+        ProtectedData data = stream.get((position / duplicates + (position % duplicates) * 7) % STREAM_SIZE);
+        return dataStorage.add(data, senders[position % duplicates]);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.ByteArray;
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import io.bitsquare.trade.offer.Offer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Queries on getMap() as done by the OfferBookService and at the data request of a new peer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class P2PDataStorageQueryBenchmark extends P2PDataStorageFixture {
+    private ByteArray storedHash;
+    private ByteArray unknownHash;
+
+    @Override
+    protected void setupData() throws CryptoException {
+        storedHash = dataStorage.getMap().keySet().iterator().next();
+        unknownHash = getHash(Fixtures.createOffer(senderKeyRing.getPubKeyRing()));
+    }
+
+    // OfferBookService.getOffers
+    @Benchmark
+    public List<Offer> getOffers() {
+        return dataStorage.getMap().values().stream()
+                .filter(e -> e.expirablePayload instanceof Offer)
+                .map(e -> (Offer) e.expirablePayload)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Offer> getOffersByCurrency() {
+        return dataStorage.getMap().values().stream()
+                .filter(e -> e.expirablePayload instanceof Offer)
+                .map(e -> (Offer) e.expirablePayload)
+                .filter(offer -> offer.getCurrencyCode().equals("USD"))
+                .collect(Collectors.toList());
+    }
+
+    // RequestDataHandshake copies all entries into the DataResponse
+    @Benchmark
+    public Set<ProtectedData> copyAllEntries() {
+        return new HashSet<>(dataStorage.getMap().values());
+    }
+
+    @Benchmark
+    public boolean containsStoredKey() {
+        return dataStorage.getMap().containsKey(storedHash);
+    }
+
+    @Benchmark
+    public boolean containsUnknownKey() {
+        return dataStorage.getMap().containsKey(unknownHash);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.p2p.storage.data.ExpirableMailboxPayload;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import io.bitsquare.p2p.storage.data.ProtectedMailboxData;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores are the time for a batch of BATCH_SIZE operations.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = P2PDataStorageFixture.BATCH_SIZE)
+@Measurement(iterations = 5, batchSize = P2PDataStorageFixture.BATCH_SIZE)
+@Fork(1)
+public class P2PDataStorageRemoveBenchmark extends P2PDataStorageFixture {
+    private List<ProtectedData> storedData;
+    private List<ProtectedMailboxData> storedMailboxData;
+    private List<ProtectedMailboxData> mailboxDataToRemove;
+    private int index;
+
+    @Override
+    protected void setupData() throws CryptoException {
+        // A remove with the same sequence number as the add is valid, so we can use the stored data for removal
+        storedData = createSignedOffers(BATCH_SIZE);
+
+        KeyPair senderKeyPair = senderKeyRing.getSignatureKeyPair();
+        KeyPair receiverKeyPair = receiverKeyRing.getSignatureKeyPair();
+        PublicKey receiverPubKey = receiverKeyPair.getPublic();
+        storedMailboxData = new ArrayList<>(BATCH_SIZE);
+        mailboxDataToRemove = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ExpirableMailboxPayload payload = Fixtures.createMailboxPayload(senderKeyRing, receiverKeyRing.getPubKeyRing());
+            storedMailboxData.add(dataStorage.getMailboxDataWithSignedSeqNr(payload, senderKeyPair, receiverPubKey));
+            // Only the receiver can remove mailbox data
+            mailboxDataToRemove.add(dataStorage.getMailboxDataWithSignedSeqNr(payload, receiverKeyPair, receiverPubKey));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareBatch() {
+        index = 0;
+        putIntoMap(storedData);
+        putIntoMap(storedMailboxData);
+    }
+
+    @Benchmark
+    public boolean remove() {
+        return dataStorage.remove(storedData.get(index++ % BATCH_SIZE), null);
+    }
+
+    @Benchmark
+    public boolean removeMailboxData() {
+        return dataStorage.removeMailboxData(mailboxDataToRemove.get(index++ % BATCH_SIZE), null);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.benchmarks;
+
+import io.bitsquare.common.ByteArrayUtils;
+import io.bitsquare.common.crypto.CryptoException;
+import io.bitsquare.common.crypto.KeyRing;
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.p2p.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisation and compression of the objects we send over the wire and persist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"offer", "mailbox"})
+    public String fixture;
+
+    private File senderStorageDir;
+    private File receiverStorageDir;
+    private Serializable object;
+    private byte[] serialized;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws IOException, CryptoException {
+        senderStorageDir = Fixtures.createTempDir();
+        receiverStorageDir = Fixtures.createTempDir();
+        KeyRing senderKeyRing = Fixtures.createKeyRing(senderStorageDir);
+        KeyRing receiverKeyRing = Fixtures.createKeyRing(receiverStorageDir);
+
+        if (fixture.equals("offer")) {
+            object = Fixtures.createOffer(senderKeyRing.getPubKeyRing());
+        } else {
+            object = Fixtures.createMailboxPayload(senderKeyRing, receiverKeyRing.getPubKeyRing());
+        }
+        serialized = Utilities.serialize(object);
+        compressed = Utils.compress(object);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.deleteTempDir(senderStorageDir);
+        Fixtures.deleteTempDir(receiverStorageDir);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return Utilities.serialize(object);
+    }
+
+    @Benchmark
+    public Serializable deserialize() {
+        return Utilities.deserialize(serialized);
+    }
+
+    @Benchmark
+    public byte[] objectToByteArray() {
+        return ByteArrayUtils.objectToByteArray(object);
+    }
+
+    @Benchmark
+    public Object byteArrayToObject() {
+        return ByteArrayUtils.byteArrayToObject(serialized);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return Utils.compress(object);
+    }
+
+    @Benchmark
+    public Serializable decompress() {
+        return Utils.decompress(compressed);
+    }
+}
@@ -17,6 +17,7 @@
 
 package io.bitsquare.app;
 
+import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
@@ -25,14 +26,30 @@ import ch.qos.logback.core.rolling.FixedWindowRollingPolicy;
 import ch.qos.logback.core.rolling.RollingFileAppender;
 import ch.qos.logback.core.rolling.SizeBasedTriggeringPolicy;
 import org.slf4j.LoggerFactory;
+import org.slf4j.helpers.MessageFormatter;
 
+import javax.annotation.Nullable;
+
+/**
+ * Sets up the file logging and offers {@link #traceCall()} to log the invocation of a method.
+ * <p>
+ * Tracing method calls needs a stack trace per call, so it is switched on separately from the log level with the
+ * system property {@value #TRACE_CALLS_PROPERTY} or {@link #setTraceCallsEnabled(boolean)}. If it is off a
+ * traceCall costs only the check of that flag. Pass parameters as arguments, not concatenated to the message, so they
+ * are only converted to strings if the call gets logged.
+ */
 public class Log {
-    public static boolean PRINT_TRACE_METHOD = true;
+    public static final String TRACE_CALLS_PROPERTY = "bitsquare.traceCalls";
+
+    // Number of log events the async appender can buffer. If it is 80% full, TRACE, DEBUG and INFO events get
+    // dropped so the logging threads are not blocked by the file IO.
+    private static final int ASYNC_QUEUE_SIZE = 8192;
+
+    private static volatile boolean traceCallsEnabled = Boolean.getBoolean(TRACE_CALLS_PROPERTY);
     private static SizeBasedTriggeringPolicy triggeringPolicy;
     private static Logger logbackLogger;
 
     public static void setup(String fileName, boolean useDetailedLogging) {
-        Log.PRINT_TRACE_METHOD = useDetailedLogging;
         LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
 
         RollingFileAppender appender = new RollingFileAppender();
@@ -61,32 +78,58 @@ public class Log {
         appender.setTriggeringPolicy(triggeringPolicy);
         appender.start();
 
+        // The file appender runs on the thread of the async appender, so logging threads only put the event into a
+        // bounded queue.
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(loggerContext);
+        asyncAppender.setName("ASYNC_FILE");
+        asyncAppender.setQueueSize(ASYNC_QUEUE_SIZE);
+        asyncAppender.setDiscardingThreshold(ASYNC_QUEUE_SIZE / 5);
+        asyncAppender.addAppender(appender);
+        asyncAppender.start();
+        // The worker thread of the async appender is a daemon thread, so we write the buffered events at shutdown.
+        Runtime.getRuntime().addShutdownHook(new Thread(asyncAppender::stop, "Log.ShutDownHook"));
+
         logbackLogger = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
-        //TODO for now use always trace 
-        logbackLogger.setLevel(useDetailedLogging ? Level.TRACE : Level.TRACE);
-        // logbackLogger.setLevel(useDetailedLogging ? Level.TRACE : Level.DEBUG);
-        logbackLogger.addAppender(appender);
+        logbackLogger.setLevel(useDetailedLogging ? Level.TRACE : Level.DEBUG);
+        logbackLogger.addAppender(asyncAppender);
+    }
+
+    public static boolean isTraceCallsEnabled() {
+        return traceCallsEnabled;
+    }
+
+    public static void setTraceCallsEnabled(boolean traceCallsEnabled) {
+        Log.traceCallsEnabled = traceCallsEnabled;
     }
 
     public static void traceCall() {
-        if (LoggerFactory.getLogger(Log.class).isTraceEnabled()) {
-            StackTraceElement stackTraceElement = new Throwable().getStackTrace()[1];
-            String methodName = stackTraceElement.getMethodName();
-            if (methodName.equals("<init>"))
-                methodName = "Constructor ";
-            String className = stackTraceElement.getClassName();
-            LoggerFactory.getLogger(className).trace("Called: {}", methodName);
-        }
+        if (traceCallsEnabled)
+            logCall(null);
     }
 
     public static void traceCall(String message) {
-        if (LoggerFactory.getLogger(Log.class).isTraceEnabled()) {
-            StackTraceElement stackTraceElement = new Throwable().getStackTrace()[1];
+        if (traceCallsEnabled)
+            logCall(message);
+    }
+
+    public static void traceCall(String format, Object... args) {
+        if (traceCallsEnabled)
+            logCall(MessageFormatter.arrayFormat(format, args).getMessage());
+    }
+
+    // Must only be called directly from a traceCall method, as we look up the caller at a fixed stack depth.
+    private static void logCall(@Nullable String message) {
+        StackTraceElement stackTraceElement = new Throwable().getStackTrace()[2];
+        org.slf4j.Logger logger = LoggerFactory.getLogger(stackTraceElement.getClassName());
+        if (logger.isTraceEnabled()) {
             String methodName = stackTraceElement.getMethodName();
             if (methodName.equals("<init>"))
                 methodName = "Constructor ";
-            String className = stackTraceElement.getClassName();
-            LoggerFactory.getLogger(className).trace("Called: {} [{}]", methodName, message);
+            if (message != null)
+                logger.trace("Called: {} [{}]", methodName, message);
+            else
+                logger.trace("Called: {}", methodName);
         }
     }
 }
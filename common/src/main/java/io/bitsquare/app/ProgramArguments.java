@@ -9,6 +9,7 @@ public class ProgramArguments {
     public static final String TOR_DIR = "torDir";
     public static final String USE_LOCALHOST = "useLocalhost";
     public static final String DEV_TEST = "devTest";
+    public static final String HEDGED_REQUESTS = "hedgedRequests";
 
 
     public static final String NAME_KEY = "node.name";
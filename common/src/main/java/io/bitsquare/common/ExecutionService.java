@@ -0,0 +1,280 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.common;
+
+import com.google.common.util.concurrent.ForwardingListeningExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the thread pools of the application. Code which needs a thread takes it from one of the pools here instead
+ * of creating its own executor or thread, so the number of threads stays predictable under load.
+ * <p>
+ * All pools are bounded. A task which does not fit into its pool anymore is rejected with a
+ * RejectedExecutionException and counted, so an exhausted pool shows up in the log and in {@link #getSummary()}.
+ * <p>
+ * The pools are shut down once, by {@link #shutDown()} or at the latest by the shutdown hook. The executors handed
+ * out by {@link #getExecutor(Pool)} cannot be shut down by their users.
+ */
+public class ExecutionService {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionService.class);
+
+    public enum Pool {
+        // Reading and writing of storage files
+        IO("IO", 4, 1000),
+        // CPU or memory heavy work like the key derivation
+        CRYPTO("Crypto", 2, 100),
+        // Delayed and periodic tasks. They have to be short, longer work gets handed over to one of the other pools.
+        SCHEDULER("Scheduler", 2, Integer.MAX_VALUE),
+        // Blocking socket work: the servers, the input handlers of the connections, sending messages and starting and
+        // stopping tor. Most of the tasks block for a long time, so each task gets a thread of its own and there
+        // is no queue.
+        NETWORK("Network", 256, 0);
+
+        private final String name;
+        private final int maxThreads;
+        private final int queueCapacity;
+
+        Pool(String name, int maxThreads, int queueCapacity) {
+            this.name = name;
+            this.maxThreads = maxThreads;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    private static final long KEEP_ALIVE_SEC = 60;
+    private static final long SHUT_DOWN_TIMEOUT_SEC = 5;
+
+    private static final Map<Pool, ThreadPoolExecutor> executors = new EnumMap<>(Pool.class);
+    private static final Map<Pool, ListeningExecutorService> views = new EnumMap<>(Pool.class);
+    private static final Map<Pool, AtomicLong> numRejected = new EnumMap<>(Pool.class);
+    // Pool threads keep their name, even if a task renames its thread while it runs
+    private static final ThreadLocal<String> poolThreadName = new ThreadLocal<>();
+    private static volatile boolean shutDownStarted;
+
+    static {
+        for (Pool pool : Pool.values()) {
+            numRejected.put(pool, new AtomicLong());
+            ThreadPoolExecutor executor = pool == Pool.SCHEDULER ? createScheduler(pool) : createExecutor(pool);
+            executor.setKeepAliveTime(KEEP_ALIVE_SEC, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            executors.put(pool, executor);
+            views.put(pool, new PoolView(MoreExecutors.listeningDecorator(executor)));
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(ExecutionService::shutDown, "ExecutionService.ShutDownHook"));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static ListeningExecutorService getExecutor(Pool pool) {
+        return views.get(pool);
+    }
+
+    /**
+     * Runs the task on the scheduler thread. The task must not block.
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit timeUnit) {
+        return getScheduler().schedule(task, delay, timeUnit);
+    }
+
+    /**
+     * Hands the task over to the given pool when it is due.
+     */
+    public static ScheduledFuture<?> schedule(Pool pool, Runnable task, long delay, TimeUnit timeUnit) {
+        return getScheduler().schedule(() -> executors.get(pool).execute(task), delay, timeUnit);
+    }
+
+    /**
+     * Runs the task periodically on the scheduler thread. The task must not block.
+     */
+    public static ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit timeUnit) {
+        return getScheduler().scheduleAtFixedRate(task, initialDelay, period, timeUnit);
+    }
+
+    /**
+     * Raises the maximum number of threads of the pool. Used if the expected load is higher than the default, e.g. a
+     * seed node with a lot of connections.
+     */
+    public static synchronized void ensureMaxThreads(Pool pool, int maxThreads) {
+        ThreadPoolExecutor executor = executors.get(pool);
+        if (maxThreads <= executor.getMaximumPoolSize())
+            return;
+
+        log.info("Raise max. threads of pool {} from {} to {}", pool.name, executor.getMaximumPoolSize(), maxThreads);
+        executor.setMaximumPoolSize(maxThreads);
+        // Pools with a queue only get new threads up to the core size
+        if (pool.queueCapacity > 0)
+            executor.setCorePoolSize(maxThreads);
+    }
+
+    public static long getNumRejected(Pool pool) {
+        return numRejected.get(pool).get();
+    }
+
+    public static String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Pool pool : Pool.values()) {
+            ThreadPoolExecutor executor = executors.get(pool);
+            sb.append(String.format("%-9s threads %d/%d (largest %d), active %d, queued %d, completed %d, rejected %d\n",
+                    pool.name, executor.getPoolSize(), executor.getMaximumPoolSize(), executor.getLargestPoolSize(),
+                    executor.getActiveCount(), executor.getQueue().size(), executor.getCompletedTaskCount(),
+                    numRejected.get(pool).get()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops the pools. Delayed tasks are dropped and the network and crypto threads get interrupted. Running and
+     * queued IO tasks are completed, we wait up to SHUT_DOWN_TIMEOUT_SEC for them.
+     */
+    public static synchronized void shutDown() {
+        if (shutDownStarted)
+            return;
+
+        shutDownStarted = true;
+        log.debug("Shutdown pools:\n{}", getSummary());
+        executors.get(Pool.SCHEDULER).shutdown();
+        executors.get(Pool.NETWORK).shutdownNow();
+        executors.get(Pool.CRYPTO).shutdownNow();
+        ThreadPoolExecutor ioExecutor = executors.get(Pool.IO);
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(SHUT_DOWN_TIMEOUT_SEC, TimeUnit.SECONDS))
+                log.warn("IO tasks did not complete in {} sec.", SHUT_DOWN_TIMEOUT_SEC);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static ScheduledThreadPoolExecutor getScheduler() {
+        return (ScheduledThreadPoolExecutor) executors.get(Pool.SCHEDULER);
+    }
+
+    private static ThreadPoolExecutor createExecutor(Pool pool) {
+        BlockingQueue<Runnable> queue = pool.queueCapacity > 0 ?
+                new ArrayBlockingQueue<>(pool.queueCapacity) : new SynchronousQueue<>();
+        // Without a queue new threads are started up to the max. size, with a queue only up to the core size
+        int corePoolSize = pool.queueCapacity > 0 ? pool.maxThreads : 1;
+        return new ThreadPoolExecutor(corePoolSize, pool.maxThreads, KEEP_ALIVE_SEC, TimeUnit.SECONDS, queue,
+                createThreadFactory(pool), (r, e) -> reject(pool)) {
+            @Override
+            protected void beforeExecute(Thread thread, Runnable runnable) {
+                onBeforeExecute(thread);
+            }
+
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable throwable) {
+                onAfterExecute();
+            }
+        };
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler(Pool pool) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(pool.maxThreads, createThreadFactory(pool),
+                (r, e) -> reject(pool)) {
+            @Override
+            protected void beforeExecute(Thread thread, Runnable runnable) {
+                onBeforeExecute(thread);
+            }
+
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable throwable) {
+                onAfterExecute();
+            }
+        };
+        // Only the core threads are used by a ScheduledThreadPoolExecutor
+        executor.setMaximumPoolSize(pool.maxThreads);
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    private static ThreadFactory createThreadFactory(Pool pool) {
+        return new ThreadFactoryBuilder()
+                .setNameFormat(pool.name + "-%d")
+                .setDaemon(true)
+                .build();
+    }
+
+    private static void reject(Pool pool) {
+        numRejected.get(pool).incrementAndGet();
+        if (shutDownStarted) {
+            throw new RejectedExecutionException("Pool " + pool.name + " is shut down");
+        } else {
+            log.warn("Pool {} is exhausted. We reject the task.", pool.name);
+            throw new RejectedExecutionException("Pool " + pool.name + " is exhausted");
+        }
+    }
+
+    private static void onBeforeExecute(Thread thread) {
+        if (poolThreadName.get() == null)
+            poolThreadName.set(thread.getName());
+    }
+
+    private static void onAfterExecute() {
+        Thread.currentThread().setName(poolThreadName.get());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PoolView
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // The pools are shared, so their users must not shut them down
+    private static class PoolView extends ForwardingListeningExecutorService {
+        private final ListeningExecutorService delegate;
+
+        PoolView(ListeningExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected ListeningExecutorService delegate() {
+            return delegate;
+        }
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException("Shared pools are shut down by ExecutionService.shutDown only");
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException("Shared pools are shut down by ExecutionService.shutDown only");
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps the executor of the UserThread and measures how long tasks wait until they are started and how long they
+ * run. The measurements are grouped by the class of the task. For a lambda that is the generated class of the lambda,
+ * its name starts with the class which created the lambda.
+ * <p>
+ * Tasks running longer than the slow task threshold are logged.
+ */
+public class InstrumentedExecutor implements Executor {
+    private static final Logger log = LoggerFactory.getLogger(InstrumentedExecutor.class);
+
+    private final Executor executor;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final Map<Class<?>, TaskStats> statsBySource = new ConcurrentHashMap<>();
+    private volatile long slowTaskThresholdMs = 100;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public InstrumentedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Executor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public void execute(Runnable command) {
+        long enqueued = System.nanoTime();
+        maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        try {
+            executor.execute(() -> {
+                long started = System.nanoTime();
+                queueDepth.decrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    onTaskCompleted(command, started - enqueued, System.nanoTime() - started);
+                }
+            });
+        } catch (RuntimeException e) {
+            queueDepth.decrementAndGet();
+            throw e;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Metrics
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    // Tasks handed over to the executor but not started yet
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getSlowTaskThresholdMs() {
+        return slowTaskThresholdMs;
+    }
+
+    public void setSlowTaskThresholdMs(long slowTaskThresholdMs) {
+        this.slowTaskThresholdMs = slowTaskThresholdMs;
+    }
+
+    /**
+     * @return Snapshot of the measurements by name of the task class
+     */
+    public Map<String, TaskStats> getStatsBySource() {
+        Map<String, TaskStats> result = new HashMap<>();
+        statsBySource.entrySet().stream().forEach(e -> result.put(e.getKey().getName(), e.getValue().copy()));
+        return result;
+    }
+
+    /**
+     * @return The sources with the highest total run time, one per line
+     */
+    public String getSummary(int maxSources) {
+        List<Map.Entry<String, TaskStats>> entries = new ArrayList<>(getStatsBySource().entrySet());
+        entries.sort((o1, o2) -> Long.compare(o2.getValue().getTotalRunTimeNanos(), o1.getValue().getTotalRunTimeNanos()));
+        return "queueDepth=" + queueDepth.get() + ", maxQueueDepth=" + maxQueueDepth.get() + "\n" +
+                entries.stream().limit(maxSources)
+                        .map(e -> e.getKey() + ": " + e.getValue())
+                        .collect(Collectors.joining("\n"));
+    }
+
+    public void reset() {
+        statsBySource.clear();
+        maxQueueDepth.set(queueDepth.get());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void onTaskCompleted(Runnable command, long waitTimeNanos, long runTimeNanos) {
+        statsBySource.computeIfAbsent(command.getClass(), c -> new TaskStats()).add(waitTimeNanos, runTimeNanos);
+
+        long runTimeMs = TimeUnit.NANOSECONDS.toMillis(runTimeNanos);
+        if (runTimeMs > slowTaskThresholdMs)
+            log.warn("Slow task {} ran for {} ms after waiting {} ms. Queue depth={}", command.getClass().getName(),
+                    runTimeMs, TimeUnit.NANOSECONDS.toMillis(waitTimeNanos), queueDepth.get());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // TaskStats
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static class TaskStats {
+        private long count;
+        private long totalWaitTimeNanos;
+        private long maxWaitTimeNanos;
+        private long totalRunTimeNanos;
+        private long maxRunTimeNanos;
+
+        synchronized void add(long waitTimeNanos, long runTimeNanos) {
+            count++;
+            totalWaitTimeNanos += waitTimeNanos;
+            maxWaitTimeNanos = Math.max(maxWaitTimeNanos, waitTimeNanos);
+            totalRunTimeNanos += runTimeNanos;
+            maxRunTimeNanos = Math.max(maxRunTimeNanos, runTimeNanos);
+        }
+
+        synchronized TaskStats copy() {
+            TaskStats copy = new TaskStats();
+            copy.count = count;
+            copy.totalWaitTimeNanos = totalWaitTimeNanos;
+            copy.maxWaitTimeNanos = maxWaitTimeNanos;
+            copy.totalRunTimeNanos = totalRunTimeNanos;
+            copy.maxRunTimeNanos = maxRunTimeNanos;
+            return copy;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getTotalWaitTimeNanos() {
+            return totalWaitTimeNanos;
+        }
+
+        public synchronized long getMaxWaitTimeNanos() {
+            return maxWaitTimeNanos;
+        }
+
+        public synchronized long getTotalRunTimeNanos() {
+            return totalRunTimeNanos;
+        }
+
+        public synchronized long getMaxRunTimeNanos() {
+            return maxRunTimeNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "count=" + count +
+                    ", avgWait=" + (count > 0 ? totalWaitTimeNanos / count / 1000 : 0) + " us" +
+                    ", maxWait=" + maxWaitTimeNanos / 1000 + " us" +
+                    ", avgRun=" + (count > 0 ? totalRunTimeNanos / count / 1000 : 0) + " us" +
+                    ", maxRun=" + maxRunTimeNanos / 1000 + " us" +
+                    ", totalRun=" + totalRunTimeNanos / 1000_000 + " ms";
+        }
+    }
+}
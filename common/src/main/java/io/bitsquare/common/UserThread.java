@@ -18,32 +18,50 @@
 package io.bitsquare.common;
 
 import com.google.common.util.concurrent.MoreExecutors;
+import io.bitsquare.common.util.Utilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class UserThread {
     private static final Logger log = LoggerFactory.getLogger(UserThread.class);
 
+    // One thread for all delayed actions. It only hands over the actions to the executor when they are due.
+    // Cancelled actions are removed from the queue at once, as most of them are timeouts which never fire.
+    private static final ScheduledThreadPoolExecutor timerExecutor = Utilities.getScheduledThreadPoolExecutor(
+            "UserThread.Timer", 1, 1, 60);
+    private static final AtomicInteger numPendingTimers = new AtomicInteger();
+    private static final AtomicLong numScheduledTimers = new AtomicLong();
+
     public static Executor getExecutor() {
         return executor;
     }
 
+    // The executor gets wrapped to measure the tasks (see getInstrumentedExecutor)
     public static void setExecutor(Executor executor) {
-        UserThread.executor = executor;
+        UserThread.executor = new InstrumentedExecutor(executor);
+    }
+
+    // Gives access to queue depth, wait and run times of the tasks executed on the UserThread
+    public static InstrumentedExecutor getInstrumentedExecutor() {
+        return executor;
     }
 
     static {
         // If not defined we use same thread as caller thread
-        executor = MoreExecutors.directExecutor();
+        setExecutor(MoreExecutors.directExecutor());
+        timerExecutor.setRemoveOnCancelPolicy(true);
     }
 
-    private static Executor executor;
+    private static InstrumentedExecutor executor;
 
     public static void execute(Runnable command) {
         UserThread.executor.execute(command);
@@ -64,19 +82,57 @@ public class UserThread {
     }
 
     public static Timer runAfter(Runnable runnable, long delay, TimeUnit timeUnit) {
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                Thread.currentThread().setName("TimerTask-" + new Random().nextInt(10000));
+        ScheduledTimer timer = new ScheduledTimer(runnable);
+        numPendingTimers.incrementAndGet();
+        numScheduledTimers.incrementAndGet();
+        timer.future = timerExecutor.schedule(timer, delay, timeUnit);
+        return timer;
+    }
+
+    // Scheduled actions which have neither been executed nor cancelled yet
+    public static int getNumPendingTimers() {
+        return numPendingTimers.get();
+    }
+
+    public static long getNumScheduledTimers() {
+        return numScheduledTimers.get();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // ScheduledTimer
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class ScheduledTimer implements Timer, Runnable {
+        private final Runnable runnable;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile ScheduledFuture<?> future;
+
+        ScheduledTimer(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            if (done.compareAndSet(false, true)) {
+                numPendingTimers.decrementAndGet();
                 try {
-                    UserThread.execute(() -> runnable.run());
+                    UserThread.execute(runnable);
                 } catch (Throwable t) {
                     t.printStackTrace();
                     log.error("Executing timerTask failed. " + t.getMessage());
                 }
             }
-        }, timeUnit.toMillis(delay));
-        return timer;
+        }
+
+        @Override
+        public void cancel() {
+            if (done.compareAndSet(false, true)) {
+                numPendingTimers.decrementAndGet();
+                // If cancel gets called before schedule returned, run() finds the timer done and skips the action
+                if (future != null)
+                    future.cancel(false);
+            }
+        }
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.common.taskrunner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Durations and failures of the tasks and pipelines run by the TaskRunners.
+ * <p>
+ * The duration of a task is the time from its start until it calls complete or failed. For tasks waiting for a
+ * network or wallet callback that includes the waiting time, so it is the latency of the step as the user sees it.
+ * <p>
+ * If the trace is enabled (system property bitsquare.tracePipelines or {@link #setTraceEnabled(boolean)}) each run
+ * of a pipeline gets logged with the durations of its tasks.
+ */
+public class TaskMetrics {
+    private static final Map<String, Stats> statsByTask = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> statsByPipeline = new ConcurrentHashMap<>();
+    private static volatile boolean traceEnabled = Boolean.getBoolean("bitsquare.tracePipelines");
+
+    public static boolean isTraceEnabled() {
+        return traceEnabled;
+    }
+
+    public static void setTraceEnabled(boolean traceEnabled) {
+        TaskMetrics.traceEnabled = traceEnabled;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return Snapshot of the measurements by simple name of the task class
+     */
+    public static Map<String, Stats> getStatsByTask() {
+        return copy(statsByTask);
+    }
+
+    /**
+     * @return Snapshot of the measurements by name of the pipeline
+     */
+    public static Map<String, Stats> getStatsByPipeline() {
+        return copy(statsByPipeline);
+    }
+
+    /**
+     * @return The pipelines and tasks with the highest total duration, one per line
+     */
+    public static String getSummary(int maxEntries) {
+        return "Pipelines:\n" + getSummary(getStatsByPipeline(), maxEntries) +
+                "\nTasks:\n" + getSummary(getStatsByTask(), maxEntries);
+    }
+
+    public static void reset() {
+        statsByTask.clear();
+        statsByPipeline.clear();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static void onTaskCompleted(String taskName, long durationNanos, boolean failed) {
+        statsByTask.computeIfAbsent(taskName, name -> new Stats()).add(durationNanos, failed);
+    }
+
+    static void onPipelineCompleted(String pipelineName, long durationNanos, boolean failed) {
+        statsByPipeline.computeIfAbsent(pipelineName, name -> new Stats()).add(durationNanos, failed);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Map<String, Stats> copy(Map<String, Stats> statsMap) {
+        Map<String, Stats> result = new HashMap<>();
+        statsMap.entrySet().stream().forEach(e -> result.put(e.getKey(), e.getValue().copy()));
+        return result;
+    }
+
+    private static String getSummary(Map<String, Stats> statsMap, int maxEntries) {
+        List<Map.Entry<String, Stats>> entries = new ArrayList<>(statsMap.entrySet());
+        entries.sort((o1, o2) -> Long.compare(o2.getValue().getTotalDurationNanos(), o1.getValue().getTotalDurationNanos()));
+        return entries.stream().limit(maxEntries)
+                .map(e -> e.getKey() + ": " + e.getValue())
+                .collect(Collectors.joining("\n"));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Stats
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static class Stats {
+        private long count;
+        private long failures;
+        private long totalDurationNanos;
+        private long maxDurationNanos;
+
+        synchronized void add(long durationNanos, boolean failed) {
+            count++;
+            if (failed)
+                failures++;
+            totalDurationNanos += durationNanos;
+            maxDurationNanos = Math.max(maxDurationNanos, durationNanos);
+        }
+
+        synchronized Stats copy() {
+            Stats copy = new Stats();
+            copy.count = count;
+            copy.failures = failures;
+            copy.totalDurationNanos = totalDurationNanos;
+            copy.maxDurationNanos = maxDurationNanos;
+            return copy;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getFailures() {
+            return failures;
+        }
+
+        public synchronized long getTotalDurationNanos() {
+            return totalDurationNanos;
+        }
+
+        public synchronized long getMaxDurationNanos() {
+            return maxDurationNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "count=" + count +
+                    ", failures=" + failures +
+                    ", avg=" + (count > 0 ? totalDurationNanos / count / 1000 : 0) + " us" +
+                    ", max=" + maxDurationNanos / 1000 + " us" +
+                    ", total=" + totalDurationNanos / 1000_000 + " ms";
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.common.taskrunner;
+
+import java.util.*;
+
+/**
+ * The tasks of one protocol step in the order they get executed.
+ * <p>
+ * A pipeline is immutable, so it is defined once as a constant and run by a new TaskRunner each time the step is
+ * executed. The tasks are created by their factories, there is no reflection involved at run time.
+ * The name of the pipeline is used for the metrics and the trace (see {@link TaskMetrics}).
+ * <p>
+ * Tasks after which the model has to be persisted, e.g. because they signed or broadcast a transaction, are marked
+ * with {@link #checkpoint(TaskFactory)}. See {@link TaskRunner.PersistencePolicy}.
+ */
+public final class TaskPipeline<T extends Model> {
+    private final String name;
+    private final List<TaskFactory<T>> taskFactories;
+    private final Set<Integer> checkpoints;
+
+    @SafeVarargs
+    public static <T extends Model> TaskPipeline<T> of(String name, TaskFactory<T>... taskFactories) {
+        return new TaskPipeline<>(name, Arrays.asList(taskFactories));
+    }
+
+    /**
+     * Marks the task as checkpoint: the model gets persisted as soon as the task has completed.
+     */
+    public static <T extends Model> TaskFactory<T> checkpoint(TaskFactory<T> taskFactory) {
+        return new Checkpoint<>(taskFactory);
+    }
+
+    private TaskPipeline(String name, List<TaskFactory<T>> taskFactories) {
+        this.name = name;
+        List<TaskFactory<T>> factories = new ArrayList<>();
+        Set<Integer> checkpoints = new HashSet<>();
+        for (TaskFactory<T> taskFactory : taskFactories) {
+            if (taskFactory instanceof Checkpoint) {
+                checkpoints.add(factories.size());
+                factories.add(((Checkpoint<T>) taskFactory).taskFactory);
+            } else {
+                factories.add(taskFactory);
+            }
+        }
+        this.taskFactories = Collections.unmodifiableList(factories);
+        this.checkpoints = Collections.unmodifiableSet(checkpoints);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return taskFactories.size();
+    }
+
+    TaskFactory<T> getTaskFactory(int index) {
+        return taskFactories.get(index);
+    }
+
+    boolean isCheckpoint(int index) {
+        return checkpoints.contains(index);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskPipeline{" +
+                "name='" + name + '\'' +
+                ", size=" + taskFactories.size() +
+                ", checkpoints=" + checkpoints +
+                '}';
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Checkpoint
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Only a marker, the pipeline unwraps it
+    private static class Checkpoint<T extends Model> implements TaskFactory<T> {
+        private final TaskFactory<T> taskFactory;
+
+        Checkpoint(TaskFactory<T> taskFactory) {
+            this.taskFactory = taskFactory;
+        }
+
+        @Override
+        public Task<T> create(TaskRunner taskRunner, T model) {
+            return taskFactory.create(taskRunner, model);
+        }
+    }
+}
@@ -22,55 +22,96 @@ import io.bitsquare.common.handlers.ResultHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
-
+/**
+ * Runs the tasks of a {@link TaskPipeline} one after another. The next task is started when the previous one has
+ * completed, the first failing task stops the pipeline.
+ * <p>
+ * Durations and failures of the tasks and of the pipeline are recorded in the {@link TaskMetrics}.
+ * <p>
+ * When the model gets persisted is defined by the {@link PersistencePolicy}.
+ */
 public class TaskRunner<T extends Model> {
     private static final Logger log = LoggerFactory.getLogger(TaskRunner.class);
 
-    private final Queue<Class<? extends Task>> tasks = new LinkedBlockingQueue<>();
+    public enum PersistencePolicy {
+        // After each completed task
+        EACH_TASK,
+        // After the tasks marked as checkpoint in the pipeline, at the end of the pipeline and if it failed
+        CHECKPOINTS,
+        // At the end of the pipeline and if it failed
+        END_OF_PIPELINE
+    }
+
+    private static volatile PersistencePolicy defaultPersistencePolicy = PersistencePolicy.CHECKPOINTS;
+
+    public static PersistencePolicy getDefaultPersistencePolicy() {
+        return defaultPersistencePolicy;
+    }
+
+    public static void setDefaultPersistencePolicy(PersistencePolicy defaultPersistencePolicy) {
+        TaskRunner.defaultPersistencePolicy = defaultPersistencePolicy;
+    }
+
     private final T sharedModel;
-    private final Class<T> sharedModelClass;
     private final ResultHandler resultHandler;
     private final ErrorMessageHandler errorMessageHandler;
     private boolean failed = false;
     private boolean isCanceled;
+    private PersistencePolicy persistencePolicy = defaultPersistencePolicy;
+    // Set if a task has completed since the model was persisted the last time
+    private boolean persistPending;
 
-    private Class<? extends Task> currentTask;
+    private TaskPipeline<T> pipeline;
+    private int nextTaskIndex;
+    private String currentTaskName;
+    private long pipelineStartTime;
+    private long taskStartTime;
+    // Only used if the trace is enabled
+    private StringBuilder trace;
 
 
     public TaskRunner(T sharedModel, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
-        this(sharedModel, (Class<T>) sharedModel.getClass(), resultHandler, errorMessageHandler);
-    }
-
-    public TaskRunner(T sharedModel, Class<T> sharedModelClass, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
         this.sharedModel = sharedModel;
         this.resultHandler = resultHandler;
         this.errorMessageHandler = errorMessageHandler;
-        this.sharedModelClass = sharedModelClass;
     }
 
-    public final void addTasks(Class<? extends Task<T>>... items) {
-        tasks.addAll(Arrays.asList(items));
+    public void setPersistencePolicy(PersistencePolicy persistencePolicy) {
+        this.persistencePolicy = persistencePolicy;
     }
 
-    public void run() {
+    public void run(TaskPipeline<T> pipeline) {
+        if (this.pipeline != null)
+            throw new IllegalStateException("A TaskRunner can only run one pipeline. Running pipeline: " + this.pipeline.getName());
+
+        this.pipeline = pipeline;
+        if (TaskMetrics.isTraceEnabled())
+            trace = new StringBuilder();
+        pipelineStartTime = System.nanoTime();
         next();
     }
 
     private void next() {
         if (!failed && !isCanceled) {
-            if (tasks.size() > 0) {
+            if (nextTaskIndex < pipeline.size()) {
+                TaskFactory<T> taskFactory = pipeline.getTaskFactory(nextTaskIndex);
+                // Used in the error message if the task cannot be created
+                currentTaskName = pipeline.getName() + "[" + nextTaskIndex + "]";
+                nextTaskIndex++;
+                taskStartTime = System.nanoTime();
                 try {
-                    currentTask = tasks.poll();
-                    log.trace("Run task: " + currentTask.getSimpleName());
-                    currentTask.getDeclaredConstructor(TaskRunner.class, sharedModelClass).newInstance(this, sharedModel).run();
+                    Task<T> task = taskFactory.create(this, sharedModel);
+                    currentTaskName = task.getClass().getSimpleName();
+                    log.trace("Run task: {}", currentTaskName);
+                    task.run();
                 } catch (Throwable throwable) {
                     throwable.printStackTrace();
                     handleErrorMessage("Error at taskRunner: " + throwable.getMessage());
                 }
             } else {
+                onPipelineCompleted();
+                if (persistPending)
+                    persist();
                 resultHandler.handleResult();
             }
         }
@@ -78,17 +119,49 @@ public class TaskRunner<T extends Model> {
 
     public void cancel() {
         isCanceled = true;
+        // The state of the tasks completed so far must not get lost
+        if (persistPending)
+            persist();
     }
 
     void handleComplete() {
-        log.trace("Task completed: " + currentTask.getSimpleName());
-        sharedModel.persist();
+        log.trace("Task completed: {}", currentTaskName);
+        onTaskCompleted(false);
+        persistPending = true;
+        if (persistencePolicy == PersistencePolicy.EACH_TASK ||
+                (persistencePolicy == PersistencePolicy.CHECKPOINTS && pipeline.isCheckpoint(nextTaskIndex - 1)))
+            persist();
         next();
     }
 
     void handleErrorMessage(String errorMessage) {
-        log.error("Task failed: " + currentTask.getSimpleName() + " / errorMessage: " + errorMessage);
+        log.error("Task failed: " + currentTaskName + " / errorMessage: " + errorMessage);
         failed = true;
+        onTaskCompleted(true);
+        onPipelineCompleted();
+        // The failed task might have changed the model as well, e.g. set the error message
+        persist();
         errorMessageHandler.handleErrorMessage(errorMessage);
     }
+
+    private void persist() {
+        persistPending = false;
+        sharedModel.persist();
+    }
+
+    private void onTaskCompleted(boolean failed) {
+        long duration = System.nanoTime() - taskStartTime;
+        TaskMetrics.onTaskCompleted(currentTaskName, duration, failed);
+        if (trace != null)
+            trace.append("\n    ").append(currentTaskName).append(failed ? " failed after " : " completed in ")
+                    .append(duration / 1000).append(" us");
+    }
+
+    private void onPipelineCompleted() {
+        long duration = System.nanoTime() - pipelineStartTime;
+        TaskMetrics.onPipelineCompleted(pipeline.getName(), duration, failed);
+        if (trace != null)
+            log.info("Pipeline {} {} in {} ms:{}", pipeline.getName(), failed ? "failed" : "completed",
+                    duration / 1000_000, trace);
+    }
 }
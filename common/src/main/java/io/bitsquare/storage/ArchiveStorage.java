@@ -0,0 +1,326 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.app.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Append-only storage for a growing history of records which are rarely read, like closed trades.
+ * <p>
+ * The records are appended to an archive file. For each record we append a small index entry to an index file.
+ * At startup only the index is read. Records are read on demand by their position in the archive.
+ * <p>
+ * Both files are a sequence of length prefixed, Java serialized objects. The archive is written before the index,
+ * so after a crash the index might miss the last records. In that case, or if the index file is corrupted,
+ * we rebuild the index from the archive. Only an incomplete record at the end, left from an interrupted append, gets
+ * removed then. Records we cannot read anymore (e.g. after a change of the persisted classes) stay in the archive,
+ * which gets backed up like a corrupted file of the {@link Storage}.
+ */
+public class ArchiveStorage<T extends Serializable, I extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(ArchiveStorage.class);
+
+    private static final String ARCHIVE_SUFFIX = ".archive";
+    private static final String INDEX_SUFFIX = ".index";
+
+    public static final class Entry<I extends Serializable> implements Serializable {
+        // That object is saved to disc. We need to take care of changes to not break deserialization.
+        private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
+
+        public final I index;
+        // Position of the serialized record in the archive, after the length prefix
+        public final long position;
+        public final int length;
+
+        Entry(I index, long position, int length) {
+            this.index = index;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private final File dir;
+    private final Function<T, I> indexer;
+    private final List<Entry<I>> entries = new ArrayList<>();
+    private File archiveFile;
+    private File indexFile;
+    private long archiveLength;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param indexer Creates the index entry for a record. Used at append and if we need to rebuild the index.
+     */
+    public ArchiveStorage(File dir, Function<T, I> indexer) {
+        this.dir = dir;
+        this.indexer = indexer;
+    }
+
+    /**
+     * @return The index entries in the order the records have been appended.
+     */
+    public synchronized List<Entry<I>> initAndGetIndex(String name) {
+        archiveFile = new File(dir, name + ARCHIVE_SUFFIX);
+        indexFile = new File(dir, name + INDEX_SUFFIX);
+        archiveLength = archiveFile.length();
+        entries.clear();
+
+        long now = System.currentTimeMillis();
+        if (!readIndex()) {
+            log.warn("Index of {} is missing or inconsistent. We rebuild it from the archive.", archiveFile);
+            rebuildIndex();
+        }
+        log.trace("Read index of {} with {} entries in {}msec", archiveFile, entries.size(), System.currentTimeMillis() - now);
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Appends the record and its index entry. Runs on the calling thread, as it writes only that one record.
+     */
+    public synchronized Entry<I> append(T record) throws IOException {
+        return appendAll(Collections.singletonList(record)).get(0);
+    }
+
+    /**
+     * Appends the records with one write to the archive and one to the index, so all of them are synced to disk at
+     * once. Runs on the calling thread.
+     *
+     * @throws IOException If the records cannot be written. None of them is added to the index then.
+     */
+    public synchronized List<Entry<I>> appendAll(List<T> records) throws IOException {
+        checkNotNull(archiveFile, "archiveFile = null. Call initAndGetIndex before using append.");
+        if (!dir.exists() && !dir.mkdirs())
+            log.warn("make dir failed");
+
+        ByteArrayOutputStream archiveBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        List<Entry<I>> newEntries = new ArrayList<>(records.size());
+        long position = archiveLength;
+        for (T record : records) {
+            byte[] bytes = serialize(record);
+            Entry<I> entry = new Entry<>(indexer.apply(record), position + 4, bytes.length);
+            writeWithLength(archiveBytes, bytes);
+            writeWithLength(indexBytes, serialize(entry));
+            position += 4 + bytes.length;
+            newEntries.add(entry);
+        }
+
+        try {
+            appendToFile(archiveFile, archiveBytes.toByteArray());
+        } catch (IOException e) {
+            // A partial write would shift the positions of all later records, so we remove it
+            truncateArchive(archiveLength);
+            throw e;
+        }
+        archiveLength = position;
+        // If we fail here the index misses the records and gets rebuilt at the next start
+        appendToFile(indexFile, indexBytes.toByteArray());
+        entries.addAll(newEntries);
+        return newEntries;
+    }
+
+    public synchronized T read(Entry<I> entry) throws IOException {
+        List<T> records = read(Collections.singletonList(entry));
+        return records.get(0);
+    }
+
+    /**
+     * Reads the records of the given entries with one open file.
+     */
+    public synchronized List<T> read(List<Entry<I>> entriesToRead) throws IOException {
+        List<T> records = new ArrayList<>(entriesToRead.size());
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(archiveFile, "r")) {
+            for (Entry<I> entry : entriesToRead) {
+                byte[] bytes = new byte[entry.length];
+                randomAccessFile.seek(entry.position);
+                randomAccessFile.readFully(bytes);
+                records.add(deserialize(bytes));
+            }
+        }
+        return records;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private boolean readIndex() {
+        if (!indexFile.exists())
+            return archiveLength == 0;
+
+        long indexedLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            while (in.available() > 0) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                Entry<I> entry = deserialize(bytes);
+                if (entry.position + entry.length > archiveLength)
+                    return false;
+                entries.add(entry);
+                indexedLength = entry.position + entry.length;
+            }
+        } catch (Throwable t) {
+            log.error("Exception at readIndex: " + t.getMessage());
+            entries.clear();
+            return false;
+        }
+        // If the index misses records at the end we rebuild it
+        return indexedLength == archiveLength;
+    }
+
+    private void rebuildIndex() {
+        entries.clear();
+        long position = 0;
+        int numUnreadableRecords = 0;
+        boolean corrupted = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(archiveFile)))) {
+            while (position < archiveLength) {
+                // If not even the length prefix is complete we treat it as a record of length 0
+                int length = position + 4 <= archiveLength ? in.readInt() : 0;
+                if (length < 0)
+                    throw new StreamCorruptedException("Invalid record length " + length + " at position " + position);
+                if (position + 4 + length > archiveLength) {
+                    // An incomplete record at the end is left from an interrupted append. We cut it off.
+                    log.warn("Archive {} ends with an incomplete record after {} records. We remove it.",
+                            archiveFile, entries.size());
+                    truncateArchive(position);
+                    break;
+                }
+
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                try {
+                    T record = deserialize(bytes);
+                    entries.add(new Entry<>(indexer.apply(record), position + 4, length));
+                } catch (Throwable t) {
+                    // The record is complete, so it is not left from an interrupted append. Most likely the version
+                    // of the persisted class has changed. We skip it but keep it in the archive.
+                    log.error("Record at position {} of {} cannot be read. {}", position, archiveFile, t.getMessage());
+                    numUnreadableRecords++;
+                }
+                position += 4 + length;
+            }
+        } catch (FileNotFoundException e) {
+            // No archive yet
+        } catch (IOException e) {
+            // We cannot find the following records anymore, but we leave them in the archive
+            e.printStackTrace();
+            log.error("Archive {} is corrupted after {} records. {}", archiveFile, entries.size(), e.getMessage());
+            corrupted = true;
+        }
+
+        if (corrupted || numUnreadableRecords > 0) {
+            log.error("We keep the archive {} as it is and make a backup. {} records could not be read.",
+                    archiveFile, numUnreadableRecords);
+            backupCorruptedArchive();
+            Storage.onFileCorrupted(archiveFile.getName());
+        }
+
+        try {
+            File tempFile = File.createTempFile("temp", null, dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                for (Entry<I> entry : entries) {
+                    byte[] bytes = serialize(entry);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            if (indexFile.exists() && !indexFile.delete())
+                log.warn("Could not delete index file " + indexFile);
+            if (!tempFile.renameTo(indexFile))
+                throw new IOException("Failed to rename " + tempFile + " to " + indexFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Could not write index file. " + e.getMessage());
+        }
+    }
+
+    // In case the records have been critical we keep a copy which might be used for recovery
+    private void backupCorruptedArchive() {
+        File corruptedBackupDir = new File(dir, "corrupted");
+        if (!corruptedBackupDir.exists() && !corruptedBackupDir.mkdir())
+            log.warn("make dir failed");
+        File backupFile = new File(corruptedBackupDir, archiveFile.getName());
+        try {
+            Files.copy(archiveFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Could not backup archive. " + e.getMessage());
+        }
+    }
+
+    private void truncateArchive(long length) {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(archiveFile, "rw")) {
+            randomAccessFile.setLength(length);
+            archiveLength = length;
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Could not truncate archive. " + e.getMessage());
+        }
+    }
+
+    private static void writeWithLength(ByteArrayOutputStream outputStream, byte[] bytes) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void appendToFile(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(file, true)) {
+            fileOutputStream.write(bytes);
+            fileOutputStream.getFD().sync();
+        }
+    }
+
+    private static byte[] serialize(Serializable object) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(object);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (R) objectInputStream.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e);
+        }
+    }
+}
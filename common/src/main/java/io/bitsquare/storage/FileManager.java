@@ -37,36 +37,27 @@ package io.bitsquare.storage;
 
 import com.google.common.io.Files;
 import io.bitsquare.common.UserThread;
-import io.bitsquare.common.util.Utilities;
 import org.bitcoinj.core.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.file.Paths;
-import java.util.Random;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Borrowed from BitcoinJ WalletFiles
  * A class that handles atomic and optionally delayed writing of a file to disk.
  * It can be useful to delay writing of a file to disk on slow devices.
- * By coalescing writes and doing serialization
- * and disk IO on a background thread performance can be improved.
+ * By coalescing writes and doing disk IO on a background thread performance can be improved.
+ * Delayed saves are handed over to the PersistenceService, which does the delayed writes of all FileManagers. It
+ * serializes the object on the UserThread when the save is due, so it cannot be modified while it gets serialized.
  */
 public class FileManager<T> {
     private static final Logger log = LoggerFactory.getLogger(FileManager.class);
 
     private final File dir;
     private final File storageFile;
-    private final ScheduledThreadPoolExecutor executor;
-    private final AtomicBoolean savePending;
     private final long delay;
-    private final Callable<Void> saveFileTask;
-    private T serializable;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -76,34 +67,7 @@ public class FileManager<T> {
     public FileManager(File dir, File storageFile, long delay) {
         this.dir = dir;
         this.storageFile = storageFile;
-
-        executor = Utilities.getScheduledThreadPoolExecutor("FileManager", 1, 10, 5);
-
-        // File must only be accessed from the auto-save executor from now on, to avoid simultaneous access.
-        savePending = new AtomicBoolean();
         this.delay = delay;
-
-        saveFileTask = () -> {
-            Thread.currentThread().setName("Save-file-task-" + new Random().nextInt(10000));
-            // Runs in an auto save thread.
-            if (!savePending.getAndSet(false)) {
-                // Some other scheduled request already beat us to it.
-                return null;
-            }
-            saveNowInternal(serializable);
-            return null;
-        };
-
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            @Override
-            public void run() {
-                try {
-                    FileManager.this.shutDown();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        });
     }
 
 
@@ -113,9 +77,14 @@ public class FileManager<T> {
 
     /**
      * Actually write the wallet file to disk, using an atomic rename when possible. Runs on the current thread.
+     *
+     * @throws IOException If the object cannot be serialized or the file cannot be written. The storage file is
+     *                     unchanged then.
      */
-    public void saveNow(T serializable) {
-        saveNowInternal(serializable);
+    public void saveNow(T serializable) throws IOException {
+        long now = System.currentTimeMillis();
+        writeToFile(StorageFormat.serialize(serializable));
+        UserThread.execute(() -> log.trace("Save {} completed in {}msec", storageFile, System.currentTimeMillis() - now));
     }
 
     /**
@@ -126,22 +95,21 @@ public class FileManager<T> {
     }
 
     public void saveLater(T serializable, long delayInMilli) {
-        this.serializable = serializable;
+        PersistenceService.saveLater(this, serializable, delayInMilli);
+    }
 
-        if (savePending.getAndSet(true))
-            return;   // Already pending.
-        executor.schedule(saveFileTask, delayInMilli, TimeUnit.MILLISECONDS);
+    public File getStorageFile() {
+        return storageFile;
     }
 
-    public synchronized T read(File file) {
+    /**
+     * @throws IOException If the file cannot be read or is corrupted
+     * @throws ClassNotFoundException If the persisted class is not known anymore
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T read(File file) throws IOException, ClassNotFoundException {
         log.debug("read" + file);
-        try (final FileInputStream fileInputStream = new FileInputStream(file);
-             final ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream)) {
-            return (T) objectInputStream.readObject();
-        } catch (Throwable t) {
-            log.error("Exception at read: " + t.getMessage());
-            return null;
-        }
+        return (T) StoragePrefetcher.read(file);
     }
 
     public synchronized void removeFile(String fileName) {
@@ -163,18 +131,6 @@ public class FileManager<T> {
     }
 
 
-    /**
-     * Shut down auto-saving.
-     */
-    public void shutDown() {
-        executor.shutdown();
-        try {
-            executor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
     public synchronized void removeAndBackupFile(String fileName) throws IOException {
         File corruptedBackupDir = new File(Paths.get(dir.getAbsolutePath(), "corrupted").toString());
         if (!corruptedBackupDir.exists())
@@ -185,6 +141,11 @@ public class FileManager<T> {
         renameTempFileToFile(storageFile, corruptedFile);
     }
 
+    /**
+     * Does nothing if the backup has the same content already. Otherwise the backup is created as a hard link if the
+     * file system supports it, so it costs no IO. That is safe as we never write into the storage file but replace it
+     * with a new file at each save.
+     */
     public synchronized void backupFile(String fileName) throws IOException {
         File backupDir = new File(Paths.get(dir.getAbsolutePath(), "backup").toString());
         if (!backupDir.exists())
@@ -192,71 +153,81 @@ public class FileManager<T> {
                 log.warn("make dir failed");
 
         File backupFile = new File(Paths.get(dir.getAbsolutePath(), "backup", fileName).toString());
-        Files.copy(storageFile, backupFile);
+        if (backupFile.exists()) {
+            long fingerprint = StorageFormat.readFingerprint(storageFile);
+            if (fingerprint != -1 && fingerprint == StorageFormat.readFingerprint(backupFile)) {
+                log.trace("Backup of {} is up to date", storageFile);
+                return;
+            }
+            java.nio.file.Files.delete(backupFile.toPath());
+        }
+
+        try {
+            java.nio.file.Files.createLink(backupFile.toPath(), storageFile.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Could not create a hard link for the backup of {}. We copy the file. {}", storageFile, e.getMessage());
+            Files.copy(storageFile, backupFile);
+        }
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void saveNowInternal(T serializable) {
-        long now = System.currentTimeMillis();
-        saveToFile(serializable, dir, storageFile);
-        UserThread.execute(() -> log.trace("Save {} completed in {}msec", storageFile, System.currentTimeMillis() - now));
-    }
-
-    private synchronized void saveToFile(T serializable, File dir, File storageFile) {
-        File tempFile = null;
-        FileOutputStream fileOutputStream = null;
-        ObjectOutputStream objectOutputStream = null;
+    synchronized void saveToFile(byte[] bytes) {
         try {
-            if (!dir.exists())
-                if (!dir.mkdir())
-                    log.warn("make dir failed");
-
-            tempFile = File.createTempFile("temp", null, dir);
-
-            // Don't use auto closeable resources in try() as we would need too many try/catch clauses (for tempFile)
-            // and we need to close it
-            // manually before replacing file with temp file
-            fileOutputStream = new FileOutputStream(tempFile);
-            objectOutputStream = new ObjectOutputStream(fileOutputStream);
-
-            // TODO ConcurrentModificationException happens sometimes at that line
-            objectOutputStream.writeObject(serializable);
-            // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
-            // to not write through to physical media for at least a few seconds, but this is the best we can do.
-            fileOutputStream.flush();
-            fileOutputStream.getFD().sync();
-
-            // Close resources before replacing file with temp file because otherwise it causes problems on windows
-            // when rename temp file
-            fileOutputStream.close();
-            objectOutputStream.close();
-
-            renameTempFileToFile(tempFile, storageFile);
+            writeToFile(bytes);
         } catch (Throwable t) {
             log.debug("storageFile " + storageFile.toString());
             t.printStackTrace();
             log.error("Error at saveToFile: " + t.getMessage());
+        }
+    }
+
+    private synchronized void writeToFile(byte[] bytes) throws IOException {
+        File tempFile = writeTempFile(bytes, PersistenceService.getDurability() != PersistenceService.Durability.NO_FSYNC);
+        try {
+            renameTempFileToFile(tempFile, storageFile);
         } finally {
-            if (tempFile != null && tempFile.exists()) {
+            if (tempFile.exists()) {
                 log.warn("Temp file still exists after failed save. storageFile=" + storageFile);
                 if (!tempFile.delete())
                     log.error("Cannot delete temp file.");
             }
+        }
+    }
 
-            try {
-                if (objectOutputStream != null)
-                    objectOutputStream.close();
-                if (fileOutputStream != null)
-                    fileOutputStream.close();
-            } catch (IOException e) {
-                // We swallow that
-                e.printStackTrace();
-                log.error("Cannot close resources." + e.getMessage());
+    /**
+     * Writes the serialized object to a new temp file in the directory of the storage file. Used by the
+     * PersistenceService to write a group of files before they get synced and renamed together.
+     */
+    synchronized File writeTempFile(byte[] bytes, boolean sync) throws IOException {
+        if (!dir.exists())
+            if (!dir.mkdir())
+                log.warn("make dir failed");
+
+        // Fails if dir is not a directory, e.g. if a file of that name is in the way
+        File tempFile = File.createTempFile("temp", null, dir);
+        // We need to close the stream before replacing the file with the temp file because otherwise it causes
+        // problems on windows when renaming the temp file
+        try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile)) {
+            fileOutputStream.write(bytes);
+            if (sync) {
+                // Attempt to force the bits to hit the disk. In reality the OS or hard disk itself may still decide
+                // to not write through to physical media for at least a few seconds, but this is the best we can do.
+                fileOutputStream.flush();
+                fileOutputStream.getFD().sync();
             }
+        } catch (IOException | RuntimeException e) {
+            if (!tempFile.delete())
+                log.error("Cannot delete temp file.");
+            throw e;
         }
+        return tempFile;
+    }
+
+    synchronized void replaceWithTempFile(File tempFile) throws IOException {
+        renameTempFileToFile(tempFile, storageFile);
     }
 
     private synchronized void renameTempFileToFile(File tempFile, File file) throws IOException {
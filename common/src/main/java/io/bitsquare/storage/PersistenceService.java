@@ -0,0 +1,409 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.common.ExecutionService;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.common.util.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the files of all FileManagers on the IO pool of the {@link ExecutionService}.
+ * <p>
+ * Saves are queued up per file. If a save for a file is already pending we only replace the object to save, so
+ * repeated changes within the delay result in one write with the latest state. The object is not serialized before
+ * the save is due. Then it gets serialized on the UserThread, which is the thread changing it, and only the bytes
+ * are handed over to the IO pool. So repeated saves cost one serialization and the UserThread never waits for the
+ * disk.
+ * Writes of the same file never run in parallel and are done in the order they have been queued up.
+ * <p>
+ * With the default durability {@link Durability#GROUP_COMMIT} a write which is due takes all other pending writes
+ * due within the next {@link #GROUP_COMMIT_WINDOW_MS} msec with it. The group is committed together: all temp files
+ * are written, then all of them are synced to disk, then all are renamed to their storage files and at last the
+ * directories are synced. A trade step touching several files so waits once for the disk instead of once per file.
+ * <p>
+ * At shutdown all pending writes are flushed in the order they have been queued up. There is only one shutdown hook
+ * for all files. The saves which have not been serialized yet get serialized on the flushing thread then.
+ */
+public class PersistenceService {
+    private static final Logger log = LoggerFactory.getLogger(PersistenceService.class);
+
+    public enum Durability {
+        // Each file is synced to disk before it replaces the storage file, independent of other writes.
+        FSYNC_EACH_FILE,
+        // Writes due within a short window are synced together before they replace their storage files.
+        GROUP_COMMIT,
+        // Files are replaced atomically but not synced. After a crash of the OS the latest writes might be lost.
+        NO_FSYNC
+    }
+
+    public static final String DURABILITY_KEY = "storage.durability";
+    public static final Durability DEFAULT_DURABILITY = Durability.GROUP_COMMIT;
+
+    public static final long GROUP_COMMIT_WINDOW_MS = 250;
+
+    // Insertion ordered, so a flush writes the files in the order they have been queued up.
+    // Saves which have not been serialized yet. Access is guarded by synchronizing on pendingSaves.
+    private static final Map<File, PendingSave> pendingSaves = new LinkedHashMap<>();
+    // Serialized saves which wait to be written. Access is guarded by synchronizing on pendingWrites. If both locks
+    // are needed pendingSaves is locked first.
+    private static final Map<File, PendingWrite> pendingWrites = new LinkedHashMap<>();
+    private static final Map<File, ReentrantLock> fileLocks = new ConcurrentHashMap<>();
+    // Only one group gets committed at a time. Commits are the only place where more than one file lock is held.
+    private static final Object commitLock = new Object();
+    private static volatile boolean shutDownStarted;
+    private static volatile Durability durability = DEFAULT_DURABILITY;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(PersistenceService::shutDown, "PersistenceService.ShutDownHook"));
+    }
+
+    public static Durability getDurability() {
+        return durability;
+    }
+
+    public static void setDurability(Durability durability) {
+        PersistenceService.durability = durability;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param object The object to save. It gets serialized with {@link StorageFormat#serialize} when the save is due.
+     */
+    public static void saveLater(FileManager<?> fileManager, Object object, long delayInMilli) {
+        File storageFile = fileManager.getStorageFile();
+        synchronized (pendingSaves) {
+            // If a save is already pending we only replace the object to save. The position in the queue and the
+            // time the save is due stay the same.
+            PendingSave previous = pendingSaves.get(storageFile);
+            long dueTime = previous != null ? previous.dueTime : System.currentTimeMillis() + delayInMilli;
+            pendingSaves.put(storageFile, new PendingSave(fileManager, object, dueTime));
+            if (previous != null)
+                return;
+        }
+
+        if (shutDownStarted) {
+            serializeSaves(Collections.singletonList(storageFile));
+            commit(Collections.singletonList(storageFile));
+        } else {
+            UserThread.runAfter(() -> onSaveDue(storageFile), delayInMilli, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Drops a pending write of the file and deletes it. A running write of the file completes before we delete it.
+     */
+    public static void delete(File storageFile) {
+        ReentrantLock fileLock = getFileLock(storageFile);
+        fileLock.lock();
+        try {
+            synchronized (pendingSaves) {
+                pendingSaves.remove(storageFile);
+            }
+            synchronized (pendingWrites) {
+                pendingWrites.remove(storageFile);
+            }
+            if (storageFile.exists() && !storageFile.delete())
+                log.warn("Could not delete file: " + storageFile);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    public static int getNumPendingWrites() {
+        synchronized (pendingSaves) {
+            synchronized (pendingWrites) {
+                Set<File> files = new HashSet<>(pendingSaves.keySet());
+                files.addAll(pendingWrites.keySet());
+                return files.size();
+            }
+        }
+    }
+
+    /**
+     * Serializes and writes all pending saves on the calling thread in the order they have been queued up.
+     */
+    public static void flushAll() {
+        List<File> files;
+        synchronized (pendingSaves) {
+            files = new ArrayList<>(pendingSaves.keySet());
+        }
+        serializeSaves(files);
+        synchronized (pendingWrites) {
+            files = new ArrayList<>(pendingWrites.keySet());
+        }
+        log.debug("Flush {} pending writes", files.size());
+        commit(files);
+    }
+
+    public static void shutDown() {
+        if (shutDownStarted)
+            return;
+
+        shutDownStarted = true;
+        // We flush the pending writes ourselves. A running write completes first as commits do not overlap, and
+        // delayed writes which still get executed find nothing to write anymore.
+        flushAll();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Runs on the UserThread
+    private static void onSaveDue(File storageFile) {
+        List<File> files = new ArrayList<>();
+        files.add(storageFile);
+        if (durability != Durability.FSYNC_EACH_FILE) {
+            long groupEnd = System.currentTimeMillis() + GROUP_COMMIT_WINDOW_MS;
+            synchronized (pendingSaves) {
+                pendingSaves.entrySet().stream()
+                        .filter(e -> !e.getKey().equals(storageFile) && e.getValue().dueTime <= groupEnd)
+                        .forEach(e -> files.add(e.getKey()));
+            }
+        }
+        serializeSaves(files);
+
+        try {
+            ExecutionService.getExecutor(ExecutionService.Pool.IO).execute(() -> commit(files));
+        } catch (RejectedExecutionException e) {
+            // The pools are shut down already, we write on the calling thread
+            commit(files);
+        }
+    }
+
+    // Moves the pending saves of the files to the pending writes. Files without a pending save are skipped.
+    // A save stays pending while it gets serialized, so a flush in between does not miss it.
+    private static void serializeSaves(List<File> files) {
+        long now = System.currentTimeMillis();
+        List<PendingSave> saves = getPendingSaves(files);
+        while (!saves.isEmpty()) {
+            Map<PendingSave, byte[]> serialized = new HashMap<>();
+            saves.stream().forEach(save -> {
+                try {
+                    serialized.put(save, StorageFormat.serialize(save.object));
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                    log.error("Error at serializing " + save.getStorageFile() + ": " + t.getMessage());
+                }
+            });
+
+            List<File> replacedFiles = new ArrayList<>();
+            synchronized (pendingSaves) {
+                synchronized (pendingWrites) {
+                    saves.stream().forEach(save -> {
+                        File storageFile = save.getStorageFile();
+                        if (pendingSaves.get(storageFile) == save) {
+                            pendingSaves.remove(storageFile);
+                            // Replaces a write of an older state which has not been written yet
+                            if (serialized.containsKey(save))
+                                pendingWrites.put(storageFile, new PendingWrite(save.fileManager, serialized.get(save)));
+                        } else {
+                            // Queued up again from another thread while we serialized it
+                            replacedFiles.add(storageFile);
+                        }
+                    });
+                }
+            }
+            saves = getPendingSaves(replacedFiles);
+        }
+        log.trace("Serializing {} files took {}msec", files.size(), System.currentTimeMillis() - now);
+    }
+
+    private static List<PendingSave> getPendingSaves(List<File> files) {
+        synchronized (pendingSaves) {
+            return files.stream().map(pendingSaves::get).filter(Objects::nonNull).collect(Collectors.toList());
+        }
+    }
+
+    private static void commit(List<File> files) {
+        synchronized (commitLock) {
+            // Taking the pending writes and writing them happens under the locks of the files, so a newer save of a
+            // file cannot overtake an older one.
+            List<ReentrantLock> locks = new ArrayList<>();
+            try {
+                files.stream().map(PersistenceService::getFileLock).forEach(lock -> {
+                    lock.lock();
+                    locks.add(lock);
+                });
+
+                List<PendingWrite> writes = new ArrayList<>();
+                synchronized (pendingWrites) {
+                    files.stream().map(pendingWrites::remove).filter(Objects::nonNull).forEach(writes::add);
+                }
+                // Files not pending anymore have been written already by some other commit.
+                if (writes.isEmpty())
+                    return;
+
+                if (durability == Durability.FSYNC_EACH_FILE)
+                    writes.stream().forEach(PendingWrite::write);
+                else
+                    commitGroup(writes, durability == Durability.GROUP_COMMIT);
+            } finally {
+                locks.stream().forEach(ReentrantLock::unlock);
+            }
+        }
+    }
+
+    private static void commitGroup(List<PendingWrite> writes, boolean sync) {
+        long now = System.currentTimeMillis();
+        Map<PendingWrite, File> tempFiles = new LinkedHashMap<>();
+        writes.stream().forEach(write -> {
+            try {
+                tempFiles.put(write, write.writeTempFile());
+            } catch (Throwable t) {
+                t.printStackTrace();
+                log.error("Writing {} failed. {}", write.getStorageFile(), t.getMessage());
+            }
+        });
+
+        if (sync) {
+            // Java has no call to sync a whole file system, so we sync the files one after another. As nothing
+            // else is written in between the OS can mostly flush them in one go.
+            new ArrayList<>(tempFiles.entrySet()).stream().forEach(e -> {
+                try {
+                    syncFile(e.getValue());
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                    log.error("Syncing {} failed. {}", e.getKey().getStorageFile(), ex.getMessage());
+                    tempFiles.remove(e.getKey());
+                    deleteTempFile(e.getValue());
+                }
+            });
+        }
+
+        Set<File> dirs = new HashSet<>();
+        tempFiles.entrySet().stream().forEach(e -> {
+            try {
+                e.getKey().replaceWithTempFile(e.getValue());
+                dirs.add(e.getKey().getStorageFile().getParentFile());
+            } catch (Throwable t) {
+                t.printStackTrace();
+                log.error("Replacing {} failed. {}", e.getKey().getStorageFile(), t.getMessage());
+                deleteTempFile(e.getValue());
+            }
+        });
+
+        if (sync)
+            dirs.stream().forEach(PersistenceService::syncDir);
+
+        log.trace("Commit of {} files completed in {}msec", tempFiles.size(), System.currentTimeMillis() - now);
+    }
+
+    private static void syncFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    // Makes the renames durable. Directories cannot be opened on Windows, there the rename is durable with the
+    // file already.
+    private static void syncDir(File dir) {
+        if (Utilities.isWindows())
+            return;
+
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Could not sync directory {}. {}", dir, e.getMessage());
+        }
+    }
+
+    private static void deleteTempFile(File tempFile) {
+        if (tempFile.exists() && !tempFile.delete())
+            log.error("Cannot delete temp file " + tempFile);
+    }
+
+    private static ReentrantLock getFileLock(File storageFile) {
+        return fileLocks.computeIfAbsent(storageFile, file -> new ReentrantLock());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PendingSave
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class PendingSave {
+        private final FileManager<?> fileManager;
+        private final Object object;
+        private final long dueTime;
+
+        PendingSave(FileManager<?> fileManager, Object object, long dueTime) {
+            this.fileManager = fileManager;
+            this.object = object;
+            this.dueTime = dueTime;
+        }
+
+        File getStorageFile() {
+            return fileManager.getStorageFile();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PendingWrite
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class PendingWrite {
+        private final FileManager<?> fileManager;
+        private final byte[] bytes;
+
+        PendingWrite(FileManager<?> fileManager, byte[] bytes) {
+            this.fileManager = fileManager;
+            this.bytes = bytes;
+        }
+
+        File getStorageFile() {
+            return fileManager.getStorageFile();
+        }
+
+        void write() {
+            try {
+                fileManager.saveToFile(bytes);
+            } catch (Throwable t) {
+                t.printStackTrace();
+                log.error("Writing {} failed. {}", fileManager.getStorageFile(), t.getMessage());
+            }
+        }
+
+        File writeTempFile() throws IOException {
+            return fileManager.writeTempFile(bytes, false);
+        }
+
+        void replaceWithTempFile(File tempFile) throws IOException {
+            fileManager.replaceWithTempFile(tempFile);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+/**
+ * Implemented by persisted lists which can store each element as its own record (see {@link RecordStorage}).
+ * If the list is persisted as records the Storage delegates the saves to the list, so only changed records get written.
+ */
+public interface RecordList {
+    boolean isPersistedAsRecords();
+
+    void queueUpRecordForSave(String recordId);
+
+    void queueUpAllRecordsForSave();
+}
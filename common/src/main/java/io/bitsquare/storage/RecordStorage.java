@@ -0,0 +1,141 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores each record of a collection in its own file, so a change of one record does not rewrite the whole collection.
+ * The files are kept in a directory with the name of the collection and the suffix {@value #DIR_SUFFIX}, so it does not
+ * collide with a file the Storage writes for the same collection. The record id is used as file name.
+ * <p>
+ * Writes are delayed and coalesced per record by the PersistenceService, so only records which have been changed
+ * since the last write get written.
+ */
+public class RecordStorage<T extends Serializable> {
+    private static final Logger log = LoggerFactory.getLogger(RecordStorage.class);
+
+    static final String SUFFIX = ".record";
+    static final String DIR_SUFFIX = ".records";
+    private static final long DELAY = 600;
+
+    private final File storageDir;
+    private final Map<String, FileManager<T>> fileManagers = new HashMap<>();
+    private File dir;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Inject
+    public RecordStorage(@Named(Storage.DIR_KEY) File storageDir) {
+        this.storageDir = storageDir;
+    }
+
+    /**
+     * @return The persisted records by record id. The order of the records is not persisted.
+     */
+    public Map<String, T> initAndGetPersisted(String name) {
+        dir = new File(storageDir, name + DIR_SUFFIX);
+        Map<String, T> records = new LinkedHashMap<>();
+        File[] files = dir.listFiles((file) -> file.isFile() && file.getName().endsWith(SUFFIX));
+        if (files != null) {
+            long now = System.currentTimeMillis();
+            Arrays.sort(files);
+            for (File file : files) {
+                String recordId = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+                FileManager<T> fileManager = getFileManager(recordId);
+                T record = null;
+                try {
+                    record = fileManager.read(file);
+                } catch (IOException | ClassNotFoundException e) {
+                    log.error("Exception at read: " + e.getMessage());
+                }
+                if (record != null) {
+                    records.put(recordId, record);
+                } else {
+                    log.error("Record {} cannot be read. We make a backup and remove the inconsistent file.", file);
+                    try {
+                        fileManager.removeAndBackupFile(file.getName());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        log.error(e.getMessage());
+                    }
+                }
+            }
+            log.trace("Read {} records from {} in {}msec", records.size(), dir, System.currentTimeMillis() - now);
+        }
+        return records;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Save delayed and on a background thread
+    public void queueUpForSave(String recordId, T record) {
+        getFileManager(recordId).saveLater(record);
+    }
+
+    /**
+     * Saves on the calling thread.
+     *
+     * @throws IOException If the record cannot be written. A previously saved version of the record is kept then.
+     */
+    public void saveNow(String recordId, T record) throws IOException {
+        getFileManager(recordId).saveNow(record);
+    }
+
+    public void remove(String recordId) {
+        FileManager<T> fileManager = getFileManager(recordId);
+        fileManagers.remove(recordId);
+        PersistenceService.delete(fileManager.getStorageFile());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private FileManager<T> getFileManager(String recordId) {
+        checkNotNull(dir, "dir = null. Call initAndGetPersisted before using read/write.");
+        FileManager<T> fileManager = fileManagers.get(recordId);
+        if (fileManager == null) {
+            fileManager = new FileManager<>(dir, new File(dir, getFileName(recordId)), DELAY);
+            fileManagers.put(recordId, fileManager);
+        }
+        return fileManager;
+    }
+
+    // Ids are UUIDs, but we don't want to depend on that for a file name
+    private static String getFileName(String recordId) {
+        return recordId.replaceAll("[^a-zA-Z0-9_\\-]", "_") + SUFFIX;
+    }
+}
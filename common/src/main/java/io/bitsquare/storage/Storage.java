@@ -41,11 +41,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * In case of a corrupted file we backup the old file to a separate directory, so if it holds critical data it might be helpful for recovery.
  * <p>
  * We also backup at first read the file, so we have a valid file form the latest version in case a write operation corrupted the file.
+ * The files have a header with a checksum (see {@link StorageFormat}), so a corrupted file is detected before it gets deserialized.
  * <p>
- * The read operation is triggered just at object creation (startup) and is at the moment not executed on a background thread to avoid asynchronous behaviour.
- * As the data are small and it is just one read access the performance penalty is small and might be even worse to create and setup a thread for it.
+ * The read operation is triggered just at object creation (startup) and is not executed on a background thread to avoid asynchronous behaviour.
+ * At startup the files are prefetched in parallel by the {@link StoragePrefetcher}, so the read then only hands over the deserialized object.
  * <p>
  * The write operation used a background thread and supports a delayed write to avoid too many repeated write operations.
+ * To not serialize an object while it gets modified it gets serialized on the UserThread when the write is due, and
+ * only the bytes are handed over to the background thread (see {@link PersistenceService}).
  */
 public class Storage<T extends Serializable> {
     private static final Logger log = LoggerFactory.getLogger(Storage.class);
@@ -57,6 +60,12 @@ public class Storage<T extends Serializable> {
         Storage.databaseCorruptionHandler = databaseCorruptionHandler;
     }
 
+    // Used by the ArchiveStorage as well
+    static void onFileCorrupted(String fileName) {
+        if (databaseCorruptionHandler != null)
+            databaseCorruptionHandler.onFileCorrupted(fileName);
+    }
+
     public interface DataBaseCorruptionHandler {
         void onFileCorrupted(String fileName);
     }
@@ -111,7 +120,9 @@ public class Storage<T extends Serializable> {
 
     // Save delayed and on a background thread
     public void queueUpForSave(T serializable) {
-        if (serializable != null) {
+        if (isPersistedAsRecords(serializable)) {
+            ((RecordList) serializable).queueUpAllRecordsForSave();
+        } else if (serializable != null) {
             log.trace("save " + fileName);
             checkNotNull(storageFile, "storageFile = null. Call setupFileStorage before using read/write.");
 
@@ -122,7 +133,9 @@ public class Storage<T extends Serializable> {
     }
 
     public void queueUpForSave(T serializable, long delayInMilli) {
-        if (serializable != null) {
+        if (isPersistedAsRecords(serializable)) {
+            ((RecordList) serializable).queueUpAllRecordsForSave();
+        } else if (serializable != null) {
             log.trace("save " + fileName);
             checkNotNull(storageFile, "storageFile = null. Call setupFileStorage before using read/write.");
 
@@ -132,6 +145,13 @@ public class Storage<T extends Serializable> {
         }
     }
 
+    // If our object is persisted as records only the given record gets saved, otherwise the whole object
+    public void queueUpRecordForSave(String recordId) {
+        if (isPersistedAsRecords(serializable))
+            ((RecordList) serializable).queueUpRecordForSave(recordId);
+        else
+            queueUpForSave();
+    }
 
     public void remove(String fileName) {
         fileManager.removeFile(fileName);
@@ -142,8 +162,12 @@ public class Storage<T extends Serializable> {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    // We do the file read on the UI thread to avoid problems from multi threading. 
-    // Data are small and read is done only at startup, so it is no performance issue.
+    private boolean isPersistedAsRecords(T serializable) {
+        return serializable instanceof RecordList && ((RecordList) serializable).isPersistedAsRecords();
+    }
+
+    // We do the file read on the UI thread to avoid problems from multi threading.
+    // At startup the file has been read and deserialized already by the StoragePrefetcher.
     @Nullable
     private T getPersisted() {
         if (storageFile.exists()) {
@@ -152,16 +176,17 @@ public class Storage<T extends Serializable> {
                 T persistedObject = fileManager.read(storageFile);
                 log.trace("Read {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
 
-                // If we did not get any exception we can be sure the data are consistent so we make a backup 
+                // If we did not get any exception we can be sure the data are consistent so we make a backup.
+                // The backup is only written if the content has changed since the last backup.
                 now = System.currentTimeMillis();
                 fileManager.backupFile(fileName);
                 log.trace("Backup {} completed in {}msec", storageFile, System.currentTimeMillis() - now);
 
                 return persistedObject;
-            } catch (ClassCastException | IOException e) {
+            } catch (ClassCastException | ClassNotFoundException | IOException e) {
                 e.printStackTrace();
-                log.error("Version of persisted class has changed. We cannot read the persisted data anymore. We make a backup and remove the inconsistent " +
-                        "file.");
+                log.error("Version of persisted class has changed or file is corrupted. We cannot read the persisted data anymore. " +
+                        "We make a backup and remove the inconsistent file. " + e.getMessage());
                 try {
                     // In case the persisted data have been critical (keys) we keep a backup which might be used for recovery
                     fileManager.removeAndBackupFile(fileName);
@@ -170,7 +195,7 @@ public class Storage<T extends Serializable> {
                     log.error(e1.getMessage());
                     // We swallow Exception if backup fails
                 }
-                databaseCorruptionHandler.onFileCorrupted(storageFile.getName());
+                onFileCorrupted(storageFile.getName());
             } catch (Throwable throwable) {
                 throwable.printStackTrace();
                 log.error(throwable.getMessage());
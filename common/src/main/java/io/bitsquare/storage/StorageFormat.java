@@ -0,0 +1,203 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.storage;
+
+import io.bitsquare.common.util.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The file format used by the FileManager.
+ * <p>
+ * A file starts with a header: magic (4 bytes), format version (1 byte), payload length (int), CRC32 of the
+ * payload (int). The payload is the Java serialized object. With the header we detect a truncated or corrupted file
+ * before we deserialize it, and we can tell if two files have the same content by reading only their headers.
+ * <p>
+ * Files written by earlier versions have no header. They start with the Java serialisation stream magic and are
+ * still read. They get the header with the next save.
+ */
+public class StorageFormat {
+    private static final Logger log = LoggerFactory.getLogger(StorageFormat.class);
+
+    private static final int MAGIC = 0x42535146; // "BSQF"
+    private static final byte FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 4 + 1 + 4 + 4;
+
+    private static final short JAVA_SERIALIZATION_MAGIC = (short) 0xACED;
+
+    // Small files are read into the heap, as setting up a mapping costs more than reading a few kB.
+    // On Windows a mapped file cannot be replaced until the mapping got garbage collected, so we never map there.
+    private static final long MIN_SIZE_FOR_MAPPING = 64 * 1024;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Write
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return The content of the file, the header followed by the serialized object.
+     */
+    public static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(object);
+        }
+        byte[] payload = byteArrayOutputStream.toByteArray();
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(MAGIC);
+        buffer.put(FORMAT_VERSION);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc32.getValue());
+        buffer.put(payload);
+        return buffer.array();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Read
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @throws StorageFormatException If the file is truncated, corrupted or has an unknown format.
+     */
+    public static Object read(File file) throws IOException, ClassNotFoundException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new StorageFormatException("File is too large. file=" + file + ", size=" + size);
+
+            ByteBuffer buffer;
+            if (size >= MIN_SIZE_FOR_MAPPING && !Utilities.isWindows()) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining())
+                    if (channel.read(buffer) < 0)
+                        throw new EOFException("Unexpected end of file " + file);
+                buffer.flip();
+            }
+
+            if (size >= 2 && buffer.getShort(0) == JAVA_SERIALIZATION_MAGIC) {
+                log.debug("{} has no header. It has been written by an earlier version.", file);
+                return deserialize(buffer);
+            }
+
+            ByteBuffer payload = getVerifiedPayload(buffer, file);
+            return deserialize(payload);
+        }
+    }
+
+    /**
+     * Reads only the header of the file.
+     *
+     * @return The payload length and CRC32 combined in one long, or -1 if the file has no header.
+     */
+    public static long readFingerprint(File file) throws IOException {
+        try (DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), HEADER_SIZE))) {
+            if (file.length() < HEADER_SIZE || dataInputStream.readInt() != MAGIC)
+                return -1;
+
+            dataInputStream.readByte();
+            long length = dataInputStream.readInt();
+            long crc = dataInputStream.readInt();
+            return (length << 32) | (crc & 0xFFFFFFFFL);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static ByteBuffer getVerifiedPayload(ByteBuffer buffer, File file) throws StorageFormatException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new StorageFormatException("Unknown file format. file=" + file);
+
+        byte version = buffer.get(4);
+        if (version > FORMAT_VERSION)
+            throw new StorageFormatException("File has been written by a newer version. file=" + file +
+                    ", formatVersion=" + version);
+
+        int length = buffer.getInt(5);
+        if (length != buffer.limit() - HEADER_SIZE)
+            throw new StorageFormatException("File is truncated or corrupted. file=" + file + ", expected length=" +
+                    length + ", actual length=" + (buffer.limit() - HEADER_SIZE));
+
+        buffer.position(HEADER_SIZE);
+        ByteBuffer payload = buffer.slice();
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload.duplicate());
+        if ((int) crc32.getValue() != buffer.getInt(9))
+            throw new StorageFormatException("Checksum mismatch. file=" + file);
+
+        return payload;
+    }
+
+    private static Object deserialize(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteBufferInputStream(buffer))) {
+            return objectInputStream.readObject();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+
+            int toRead = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, toRead);
+            return toRead;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    public static class StorageFormatException extends IOException {
+        public StorageFormatException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package io.bitsquare.storage;
+
+import com.google.common.base.Throwables;
+import io.bitsquare.common.ExecutionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Reads and deserializes the storage files in parallel at startup, before the objects which own them get created.
+ * <p>
+ * The objects are still created by Guice one after another, but their Storage gets the already deserialized data
+ * from here (see {@link FileManager#read(File)}). A prefetched result is handed out only once, later reads of the same
+ * file go to the disk again.
+ * <p>
+ * The files are read on the IO pool of the {@link ExecutionService}.
+ * <p>
+ * Only files in the format of the FileManager are prefetched: the files without file extension in the storage
+ * directory and the record files in its sub directories.
+ */
+public class StoragePrefetcher {
+    private static final Logger log = LoggerFactory.getLogger(StoragePrefetcher.class);
+
+    private static final Map<File, Future<Prefetched>> prefetched = new ConcurrentHashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static synchronized void prefetch(File storageDir) {
+        List<File> files = getStorageFiles(storageDir);
+        if (files.isEmpty())
+            return;
+
+        // Largest files first, so they do not end up as the last task on one thread
+        files.sort((o1, o2) -> Long.compare(o2.length(), o1.length()));
+        log.info("Prefetch {} storage files from {}", files.size(), storageDir);
+        ExecutorService executor = ExecutionService.getExecutor(ExecutionService.Pool.IO);
+        for (File file : files) {
+            try {
+                prefetched.put(file.getAbsoluteFile(), executor.submit(() -> {
+                    long now = System.currentTimeMillis();
+                    Object object = StorageFormat.read(file);
+                    return new Prefetched(object, System.currentTimeMillis() - now);
+                }));
+            } catch (RejectedExecutionException e) {
+                // The file gets read by its owner
+                log.warn("Could not prefetch {}. {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drops the prefetched results which have not been requested and cancels the reads not started yet.
+     */
+    public static synchronized void clear() {
+        prefetched.keySet().stream().forEach(file -> log.info("Prefetched file {} has not been requested", file));
+        prefetched.values().stream().forEach(future -> future.cancel(false));
+        prefetched.clear();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package scope
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns the prefetched content of the file, or reads the file on the calling thread if it was not prefetched.
+    static Object read(File file) throws IOException, ClassNotFoundException {
+        Future<Prefetched> future = prefetched.remove(file.getAbsoluteFile());
+        if (future == null)
+            return StorageFormat.read(file);
+
+        long now = System.currentTimeMillis();
+        try {
+            Prefetched result = future.get();
+            log.info("Read {} in {}msec on a prefetch thread. We waited {}msec for it.", file, result.readTime,
+                    System.currentTimeMillis() - now);
+            return result.object;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for prefetched file " + file);
+        } catch (CancellationException e) {
+            return StorageFormat.read(file);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.propagateIfInstanceOf(cause, IOException.class);
+            Throwables.propagateIfInstanceOf(cause, ClassNotFoundException.class);
+            throw Throwables.propagate(cause);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static List<File> getStorageFiles(File storageDir) {
+        List<File> files = new ArrayList<>();
+        File[] rootFiles = storageDir.listFiles(file -> file.isFile() && !file.getName().contains("."));
+        if (rootFiles != null)
+            for (File file : rootFiles)
+                files.add(file);
+
+        File[] dirs = storageDir.listFiles(file -> file.isDirectory() &&
+                !file.getName().equals("backup") && !file.getName().equals("corrupted"));
+        if (dirs != null) {
+            for (File dir : dirs) {
+                File[] records = dir.listFiles(file -> file.isFile() && file.getName().endsWith(RecordStorage.SUFFIX));
+                if (records != null)
+                    for (File file : records)
+                        files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static class Prefetched {
+        final Object object;
+        final long readTime;
+
+        Prefetched(Object object, long readTime) {
+            this.object = object;
+            this.readTime = readTime;
+        }
+    }
+}
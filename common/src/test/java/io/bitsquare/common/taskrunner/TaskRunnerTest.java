@@ -0,0 +1,212 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.common.taskrunner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.bitsquare.common.taskrunner.TaskPipeline.checkpoint;
+import static org.junit.Assert.*;
+
+public class TaskRunnerTest {
+    private static final TaskPipeline<MockModel> PIPELINE = TaskPipeline.of("TaskRunnerTest",
+            TaskA::new,
+            checkpoint(TaskB::new),
+            TaskC::new);
+
+    private MockModel model;
+    private boolean completed;
+    private String errorMessage;
+
+    @Before
+    public void setup() {
+        model = new MockModel();
+        completed = false;
+        errorMessage = null;
+    }
+
+    @Test
+    public void testEachTask() {
+        run(PIPELINE, TaskRunner.PersistencePolicy.EACH_TASK);
+        assertEquals(Arrays.asList("A", "persist", "B", "persist", "C", "persist"), model.events);
+        assertTrue(completed);
+    }
+
+    @Test
+    public void testCheckpoints() {
+        run(PIPELINE, TaskRunner.PersistencePolicy.CHECKPOINTS);
+        assertEquals(Arrays.asList("A", "B", "persist", "C", "persist"), model.events);
+        assertTrue(completed);
+    }
+
+    @Test
+    public void testEndOfPipeline() {
+        run(PIPELINE, TaskRunner.PersistencePolicy.END_OF_PIPELINE);
+        assertEquals(Arrays.asList("A", "B", "C", "persist"), model.events);
+        assertTrue(completed);
+    }
+
+    @Test
+    public void testNoPersistAtEndIfCheckpointWasLast() {
+        run(TaskPipeline.of("TaskRunnerTest", TaskA::new, checkpoint(TaskB::new)), TaskRunner.PersistencePolicy.CHECKPOINTS);
+        assertEquals(Arrays.asList("A", "B", "persist"), model.events);
+    }
+
+    @Test
+    public void testPersistOnFailure() {
+        run(TaskPipeline.of("TaskRunnerTest", TaskA::new, FailingTask::new, TaskC::new),
+                TaskRunner.PersistencePolicy.END_OF_PIPELINE);
+        // TaskC must not run. The model is persisted after a failure with every policy.
+        assertEquals(Arrays.asList("A", "failing", "persist"), model.events);
+        assertFalse(completed);
+        assertNotNull(errorMessage);
+    }
+
+    @Test
+    public void testPersistIfTaskCannotBeCreated() {
+        run(TaskPipeline.of("TaskRunnerTest", TaskA::new, (taskRunner, model) -> {
+            throw new IllegalStateException("test");
+        }), TaskRunner.PersistencePolicy.END_OF_PIPELINE);
+        assertEquals(Arrays.asList("A", "persist"), model.events);
+        assertFalse(completed);
+        assertTrue(errorMessage.contains("test"));
+    }
+
+    @Test
+    public void testPersistOnCancelWithPendingProgress() {
+        TaskRunner<MockModel> taskRunner = run(TaskPipeline.of("TaskRunnerTest", TaskA::new, PendingTask::new, TaskC::new),
+                TaskRunner.PersistencePolicy.END_OF_PIPELINE);
+        assertEquals(Arrays.asList("A", "pending"), model.events);
+
+        taskRunner.cancel();
+        assertEquals(Arrays.asList("A", "pending", "persist"), model.events);
+
+        // A task completing after the cancel does not continue the pipeline
+        model.pendingTask.complete();
+        assertEquals(Arrays.asList("A", "pending", "persist"), model.events);
+        assertFalse(completed);
+    }
+
+    @Test
+    public void testNoPersistOnCancelWithoutPendingProgress() {
+        TaskRunner<MockModel> taskRunner = run(TaskPipeline.of("TaskRunnerTest", checkpoint(TaskA::new), PendingTask::new),
+                TaskRunner.PersistencePolicy.CHECKPOINTS);
+        assertEquals(Arrays.asList("A", "persist", "pending"), model.events);
+
+        taskRunner.cancel();
+        assertEquals(Arrays.asList("A", "persist", "pending"), model.events);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRunnerRunsOnlyOnePipeline() {
+        TaskRunner<MockModel> taskRunner = run(PIPELINE, TaskRunner.PersistencePolicy.CHECKPOINTS);
+        taskRunner.run(PIPELINE);
+    }
+
+    private TaskRunner<MockModel> run(TaskPipeline<MockModel> pipeline, TaskRunner.PersistencePolicy persistencePolicy) {
+        TaskRunner<MockModel> taskRunner = new TaskRunner<>(model, () -> completed = true,
+                errorMessage -> this.errorMessage = errorMessage);
+        taskRunner.setPersistencePolicy(persistencePolicy);
+        taskRunner.run(pipeline);
+        return taskRunner;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Mocks
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class MockModel implements Model {
+        private final List<String> events = new ArrayList<>();
+        private PendingTask pendingTask;
+
+        @Override
+        public void persist() {
+            events.add("persist");
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static class TaskA extends Task<MockModel> {
+        TaskA(TaskRunner taskHandler, MockModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.events.add("A");
+            complete();
+        }
+    }
+
+    private static class TaskB extends Task<MockModel> {
+        TaskB(TaskRunner taskHandler, MockModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.events.add("B");
+            complete();
+        }
+    }
+
+    private static class TaskC extends Task<MockModel> {
+        TaskC(TaskRunner taskHandler, MockModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.events.add("C");
+            complete();
+        }
+    }
+
+    private static class FailingTask extends Task<MockModel> {
+        FailingTask(TaskRunner taskHandler, MockModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.events.add("failing");
+            failed("test");
+        }
+    }
+
+    // Completes only when the test calls complete(), like a task waiting for a peer
+    private static class PendingTask extends Task<MockModel> {
+        PendingTask(TaskRunner taskHandler, MockModel model) {
+            super(taskHandler, model);
+        }
+
+        @Override
+        protected void run() {
+            model.events.add("pending");
+            model.pendingTask = this;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import io.bitsquare.common.util.Utilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArchiveStorageTest {
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("temp_tests", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Storage.setDatabaseCorruptionHandler(null);
+        Utilities.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        ArchiveStorage<String, Integer> archiveStorage = new ArchiveStorage<>(dir, String::length);
+        archiveStorage.initAndGetIndex("Archive");
+        archiveStorage.append("a");
+        archiveStorage.appendAll(Arrays.asList("bb", "ccc"));
+
+        ArchiveStorage<String, Integer> reloaded = new ArchiveStorage<>(dir, String::length);
+        List<ArchiveStorage.Entry<Integer>> entries = reloaded.initAndGetIndex("Archive");
+        assertEquals(3, entries.size());
+        assertEquals(Integer.valueOf(3), entries.get(2).index);
+        assertEquals(Arrays.asList("a", "bb", "ccc"), reloaded.read(entries));
+        assertEquals("bb", reloaded.read(entries.get(1)));
+    }
+
+    @Test
+    public void testIndexIsRebuiltFromArchive() throws IOException {
+        ArchiveStorage<String, Integer> archiveStorage = new ArchiveStorage<>(dir, String::length);
+        archiveStorage.initAndGetIndex("Archive");
+        archiveStorage.appendAll(Arrays.asList("a", "bb", "ccc"));
+        assertTrue(new File(dir, "Archive.index").delete());
+
+        ArchiveStorage<String, Integer> reloaded = new ArchiveStorage<>(dir, String::length);
+        List<ArchiveStorage.Entry<Integer>> entries = reloaded.initAndGetIndex("Archive");
+        assertEquals(3, entries.size());
+        assertEquals("ccc", reloaded.read(entries.get(2)));
+    }
+
+    @Test
+    public void testIncompleteRecordAtEndIsRemoved() throws IOException {
+        ArchiveStorage<String, Integer> archiveStorage = new ArchiveStorage<>(dir, String::length);
+        archiveStorage.initAndGetIndex("Archive");
+        archiveStorage.appendAll(Arrays.asList("a", "bb"));
+        File archiveFile = new File(dir, "Archive.archive");
+        long length = archiveFile.length();
+        archiveStorage.append("ccc");
+        // Like an append which got interrupted
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(archiveFile, "rw")) {
+            randomAccessFile.setLength(archiveFile.length() - 2);
+        }
+
+        ArchiveStorage<String, Integer> reloaded = new ArchiveStorage<>(dir, String::length);
+        List<ArchiveStorage.Entry<Integer>> entries = reloaded.initAndGetIndex("Archive");
+        assertEquals(Arrays.asList("a", "bb"), reloaded.read(entries));
+        assertEquals(length, archiveFile.length());
+    }
+
+    @Test
+    public void testUnreadableRecordIsKept() throws IOException {
+        List<String> corruptedFiles = new ArrayList<>();
+        Storage.setDatabaseCorruptionHandler(corruptedFiles::add);
+        ArchiveStorage<Serializable, Integer> archiveStorage = new ArchiveStorage<>(dir, Object::hashCode);
+        archiveStorage.initAndGetIndex("Archive");
+        archiveStorage.appendAll(Arrays.asList("a", new UnreadableRecord(), "ccc"));
+        File archiveFile = new File(dir, "Archive.archive");
+        byte[] content = Files.readAllBytes(archiveFile.toPath());
+        // The index entries cannot be read either, so we rebuild the index from the archive
+        assertTrue(new File(dir, "Archive.index").delete());
+
+        ArchiveStorage<Serializable, Integer> reloaded = new ArchiveStorage<>(dir, Object::hashCode);
+        List<ArchiveStorage.Entry<Integer>> entries = reloaded.initAndGetIndex("Archive");
+        // The records after the unreadable one are still found
+        assertEquals(Arrays.asList("a", "ccc"), reloaded.read(entries));
+        // The archive is not changed and we have a backup
+        assertArrayEquals(content, Files.readAllBytes(archiveFile.toPath()));
+        assertArrayEquals(content, Files.readAllBytes(new File(dir, "corrupted/Archive.archive").toPath()));
+        assertEquals(Arrays.asList("Archive.archive"), corruptedFiles);
+
+        // We can still append to it
+        reloaded.append("dddd");
+        reloaded = new ArchiveStorage<>(dir, Object::hashCode);
+        assertEquals(Arrays.asList("a", "ccc", "dddd"), reloaded.read(reloaded.initAndGetIndex("Archive")));
+    }
+
+    // Like a record of an earlier version of a persisted class
+    private static class UnreadableRecord implements Serializable {
+        private void readObject(ObjectInputStream in) throws IOException {
+            throw new InvalidClassException("UnreadableRecord", "local class incompatible");
+        }
+    }
+}
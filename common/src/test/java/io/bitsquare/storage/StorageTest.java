@@ -0,0 +1,135 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.storage;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.bitsquare.common.UserThread;
+import io.bitsquare.common.util.Utilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StorageTest {
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("temp_tests", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        UserThread.setExecutor(MoreExecutors.directExecutor());
+        PersistenceService.flushAll();
+        Utilities.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testQueuedSaveWritesLatestState() {
+        Storage<ArrayList<Item>> storage = new Storage<>(dir);
+        ArrayList<Item> list = new ArrayList<>();
+        storage.initAndGetPersisted(list, "ItemList");
+        Item item = new Item("a");
+        list.add(item);
+        storage.queueUpForSave(60_000);
+        assertTrue(PersistenceService.getNumPendingWrites() > 0);
+
+        // The object is serialized when the save is due, so changes made until then are written as well
+        item.value = "b";
+        list.add(new Item("c"));
+        PersistenceService.flushAll();
+
+        ArrayList<Item> persisted = new Storage<ArrayList<Item>>(dir).initAndGetPersisted("ItemList");
+        assertEquals(2, persisted.size());
+        assertEquals("b", persisted.get(0).value);
+        assertEquals(0, PersistenceService.getNumPendingWrites());
+    }
+
+    @Test
+    public void testDueSaveIsSerializedOnceOnUserThread() throws InterruptedException {
+        AtomicInteger numUserThreadTasks = new AtomicInteger();
+        UserThread.setExecutor(command -> {
+            numUserThreadTasks.incrementAndGet();
+            command.run();
+        });
+        Storage<ArrayList<Item>> storage = new Storage<>(dir);
+        ArrayList<Item> list = new ArrayList<>();
+        storage.initAndGetPersisted(list, "ItemList");
+        CountingItem item = new CountingItem("a");
+        list.add(item);
+        for (int i = 0; i < 10; i++)
+            storage.queueUpForSave(50);
+        assertEquals(0, item.numSerialized.get());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (PersistenceService.getNumPendingWrites() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(0, PersistenceService.getNumPendingWrites());
+        assertEquals(1, item.numSerialized.get());
+        assertEquals(1, numUserThreadTasks.get());
+    }
+
+    @Test
+    public void testRepeatedSavesAreCoalesced() {
+        Storage<ArrayList<Item>> storage = new Storage<>(dir);
+        ArrayList<Item> list = new ArrayList<>();
+        storage.initAndGetPersisted(list, "ItemList");
+        list.add(new Item("a"));
+        storage.queueUpForSave(60_000);
+        list.add(new Item("b"));
+        storage.queueUpForSave(60_000);
+        PersistenceService.flushAll();
+
+        ArrayList<Item> persisted = new Storage<ArrayList<Item>>(dir).initAndGetPersisted("ItemList");
+        assertEquals(2, persisted.size());
+        assertEquals("b", persisted.get(1).value);
+    }
+
+    private static class Item implements Serializable {
+        private String value;
+
+        Item(String value) {
+            this.value = value;
+        }
+    }
+
+    private static class CountingItem extends Item {
+        private transient final AtomicInteger numSerialized = new AtomicInteger();
+
+        CountingItem(String value) {
+            super(value);
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            numSerialized.incrementAndGet();
+            out.defaultWriteObject();
+        }
+    }
+}
@@ -433,7 +433,7 @@ public class DisputeManager {
 
     // a trader can receive a msg from the arbitrator or the arbitrator form a trader. Trader to trader is not allowed.
     private void onDisputeDirectMessage(DisputeDirectMessage disputeDirectMessage) {
-        Log.traceCall("disputeDirectMessage " + disputeDirectMessage);
+        Log.traceCall("disputeDirectMessage {}", disputeDirectMessage);
         Optional<Dispute> disputeOptional = findDispute(disputeDirectMessage.getTradeId(), disputeDirectMessage.getTraderId());
         if (disputeOptional.isPresent()) {
             Dispute dispute = disputeOptional.get();
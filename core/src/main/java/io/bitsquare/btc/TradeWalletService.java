@@ -818,7 +818,7 @@ public class TradeWalletService {
      * @throws VerificationException
      */
     public Transaction addTransactionToWallet(Transaction transaction) throws VerificationException {
-        Log.traceCall("transaction " + transaction.toString());
+        Log.traceCall("transaction {}", transaction);
 
         // We need to recreate the transaction otherwise we get a null pointer... 
         Transaction result = new Transaction(params, transaction.bitcoinSerialize());
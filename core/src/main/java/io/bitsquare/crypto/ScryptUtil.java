@@ -1,8 +1,8 @@
 package io.bitsquare.crypto;
 
 import com.google.protobuf.ByteString;
+import io.bitsquare.common.ExecutionService;
 import io.bitsquare.common.UserThread;
-import io.bitsquare.common.util.Utilities;
 import org.bitcoinj.crypto.KeyCrypterScrypt;
 import org.bitcoinj.wallet.Protos;
 import org.slf4j.Logger;
@@ -28,7 +28,7 @@ public class ScryptUtil {
     }
 
     public static void deriveKeyWithScrypt(KeyCrypterScrypt keyCrypterScrypt, String password, DeriveKeyResultHandler resultHandler) {
-        Utilities.getThreadPoolExecutor("ScryptUtil:deriveKeyWithScrypt-%d", 1, 2, 5L).submit(() -> {
+        ExecutionService.getExecutor(ExecutionService.Pool.CRYPTO).submit(() -> {
             try {
                 log.info("Doing key derivation");
                 long start = System.currentTimeMillis();
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.storage.ArchiveStorage;
+import io.bitsquare.storage.Storage;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * History of tradables which do not change anymore (closed and failed trades).
+ * <p>
+ * Only the index (id, date, currency, amount) is kept in memory. The tradables are loaded from the archive when
+ * they are requested, one page at a time, and the last pages are cached. So startup time and heap do not grow with
+ * the size of the history.
+ */
+public class TradableArchive<T extends Tradable> {
+    private static final Logger log = LoggerFactory.getLogger(TradableArchive.class);
+
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_CACHED_PAGES = 4;
+
+    private final ArchiveStorage<T, TradableIndexEntry> archiveStorage;
+    // In the order of the archive
+    private final List<ArchiveStorage.Entry<TradableIndexEntry>> entries = new ArrayList<>();
+    private final Map<String, Integer> positionById = new HashMap<>();
+    private final ObservableList<TradableIndexEntry> index = FXCollections.observableArrayList();
+    private final Map<Integer, List<T>> pageCache = new LinkedHashMap<Integer, List<T>>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public TradableArchive(File storageDir, String name) {
+        archiveStorage = new ArchiveStorage<>(storageDir, TradableIndexEntry::new);
+        archiveStorage.initAndGetIndex(name).stream().forEach(this::addEntry);
+
+        try {
+            migrateTradableList(storageDir, name);
+        } catch (IOException e) {
+            e.printStackTrace();
+            // We continue with the tradables in the archive and retry at the next start
+            log.error("Migration of {} to the archive failed. We keep the file. {}", name, e.getMessage());
+        }
+    }
+
+    // Earlier versions stored the history as a TradableList in one file. We move it to the archive with one write and
+    // remove the file only if that succeeded. Tradables which are in the archive already are skipped, so a
+    // migration which got interrupted is continued at the next start.
+    private void migrateTradableList(File storageDir, String name) throws IOException {
+        Storage<ArrayList<T>> storage = new Storage<>(storageDir);
+        ArrayList<T> persisted = storage.initAndGetPersisted(name);
+        if (persisted != null) {
+            log.info("Migrate {} with {} entries to the archive.", name, persisted.size());
+            Set<String> ids = new HashSet<>();
+            List<T> toMigrate = persisted.stream()
+                    .filter(tradable -> !contains(tradable.getId()) && ids.add(tradable.getId()))
+                    .collect(Collectors.toList());
+            archiveStorage.appendAll(toMigrate).stream().forEach(this::addEntry);
+            storage.remove(name);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public void add(T tradable) {
+        if (contains(tradable.getId()))
+            return;
+
+        try {
+            ArchiveStorage.Entry<TradableIndexEntry> entry = archiveStorage.append(tradable);
+            pageCache.remove(getPage(entries.size()));
+            addEntry(entry);
+        } catch (IOException e) {
+            e.printStackTrace();
+            log.error("Could not add {} to the archive. {}", tradable.getId(), e.getMessage());
+        }
+    }
+
+    public boolean contains(String id) {
+        return positionById.containsKey(id);
+    }
+
+    public ObservableList<TradableIndexEntry> getIndex() {
+        return index;
+    }
+
+    public Optional<T> getTradableById(String id) {
+        Integer position = positionById.get(id);
+        if (position == null)
+            return Optional.empty();
+
+        List<T> page = getPageTradables(getPage(position));
+        int positionInPage = position - getPage(position) * PAGE_SIZE;
+        return positionInPage < page.size() ? Optional.of(page.get(positionInPage)) : Optional.empty();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void addEntry(ArchiveStorage.Entry<TradableIndexEntry> entry) {
+        positionById.put(entry.index.getId(), entries.size());
+        entries.add(entry);
+        index.add(entry.index);
+    }
+
+    private List<T> getPageTradables(int page) {
+        List<T> tradables = pageCache.get(page);
+        if (tradables == null) {
+            int from = page * PAGE_SIZE;
+            int to = Math.min(from + PAGE_SIZE, entries.size());
+            try {
+                long now = System.currentTimeMillis();
+                tradables = archiveStorage.read(entries.subList(from, to));
+                log.trace("Loading page {} with {} tradables took {}msec", page, tradables.size(), System.currentTimeMillis() - now);
+                pageCache.put(page, tradables);
+            } catch (IOException e) {
+                e.printStackTrace();
+                log.error("Could not read page {} from the archive. {}", page, e.getMessage());
+                return Collections.emptyList();
+            }
+        }
+        return tradables;
+    }
+
+    private static int getPage(int position) {
+        return position / PAGE_SIZE;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.app.Version;
+import org.bitcoinj.core.Coin;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * The data of a tradable we need without loading the tradable itself from the archive.
+ */
+@Immutable
+public final class TradableIndexEntry implements Serializable {
+    // That object is saved to disc. We need to take care of changes to not break deserialization.
+    private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
+
+    private final String id;
+    private final Date date;
+    private final String currencyCode;
+    // In satoshi. The trade amount for trades, the offer amount otherwise.
+    private final long amount;
+
+    public TradableIndexEntry(Tradable tradable) {
+        id = tradable.getId();
+        date = tradable.getDate();
+        currencyCode = tradable.getOffer().getCurrencyCode();
+        if (tradable instanceof Trade && ((Trade) tradable).getTradeAmount() != null)
+            amount = ((Trade) tradable).getTradeAmount().value;
+        else
+            amount = tradable.getOffer().getAmount().value;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getCurrencyCode() {
+        return currencyCode;
+    }
+
+    public Coin getAmount() {
+        return Coin.valueOf(amount);
+    }
+
+    @Override
+    public String toString() {
+        return "TradableIndexEntry{" +
+                "id='" + id + '\'' +
+                ", date=" + date +
+                ", currencyCode='" + currencyCode + '\'' +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -18,24 +18,34 @@
 package io.bitsquare.trade;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.storage.RecordList;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
-public class TradableList<T extends Tradable> extends ArrayList<T> implements Serializable {
+public class TradableList<T extends Tradable> extends ArrayList<T> implements Serializable, RecordList {
     // That object is saved to disc. We need to take care of changes to not break deserialization.
     private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
 
     private static final Logger log = LoggerFactory.getLogger(TradableList.class);
 
     transient final private Storage<TradableList<T>> storage;
+    // If set each tradable is persisted as its own record, so a change of one tradable does not rewrite the whole list
+    @Nullable
+    transient final private RecordStorage<T> recordStorage;
     // Use getObservableList() also class locally, to be sure that object exists in case we use the object as deserialized form
     transient private ObservableList<T> observableList;
 
@@ -46,11 +56,40 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public TradableList(Storage<TradableList<T>> storage, String fileName) {
+        this(storage, null, fileName);
+    }
+
+    public TradableList(Storage<TradableList<T>> storage, @Nullable RecordStorage<T> recordStorage, String fileName) {
         this.storage = storage;
+        this.recordStorage = recordStorage;
+
+        TradableList<T> persisted = storage.initAndGetPersisted(this, fileName);
+        if (recordStorage == null) {
+            if (persisted != null)
+                this.addAll(persisted);
+        } else {
+            Map<String, T> persistedRecords = recordStorage.initAndGetPersisted(fileName);
+            this.addAll(persistedRecords.values());
 
-        TradableList persisted = storage.initAndGetPersisted(this, fileName);
-        if (persisted != null) {
-            this.addAll(persisted);
+            if (persisted != null) {
+                // We migrate the list from the single file to records. The file is only removed after all records
+                // have been written. If we fail or get interrupted the next start continues with the records which
+                // are still missing.
+                log.info("Migrate {} with {} entries to records.", fileName, persisted.size());
+                List<T> toMigrate = persisted.stream()
+                        .filter(tradable -> !persistedRecords.containsKey(tradable.getId()))
+                        .collect(Collectors.toList());
+                super.addAll(toMigrate);
+                try {
+                    for (T tradable : toMigrate) {
+                        recordStorage.saveNow(tradable.getId(), tradable);
+                    }
+                    storage.remove(fileName);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    log.error("Migration of {} to records failed. We keep the file. {}", fileName, e.getMessage());
+                }
+            }
         }
         observableList = FXCollections.observableArrayList(this);
     }
@@ -67,7 +106,10 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     public boolean add(T tradable) {
         boolean result = super.add(tradable);
         getObservableList().add(tradable);
-        storage.queueUpForSave();
+        if (recordStorage != null)
+            recordStorage.queueUpForSave(tradable.getId(), tradable);
+        else
+            storage.queueUpForSave();
         return result;
     }
 
@@ -75,10 +117,42 @@ public class TradableList<T extends Tradable> extends ArrayList<T> implements Se
     public boolean remove(Object tradable) {
         boolean result = super.remove(tradable);
         getObservableList().remove(tradable);
-        storage.queueUpForSave();
+        if (recordStorage != null) {
+            if (result)
+                recordStorage.remove(((Tradable) tradable).getId());
+        } else {
+            storage.queueUpForSave();
+        }
         return result;
     }
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // RecordList implementation
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public boolean isPersistedAsRecords() {
+        return recordStorage != null;
+    }
+
+    @Override
+    public void queueUpRecordForSave(String recordId) {
+        if (recordStorage != null) {
+            Optional<T> tradableOptional = stream().filter(e -> e.getId().equals(recordId)).findAny();
+            if (tradableOptional.isPresent())
+                recordStorage.queueUpForSave(recordId, tradableOptional.get());
+            else
+                log.debug("No tradable with id {} in that list. It might have been moved to another list.", recordId);
+        }
+    }
+
+    @Override
+    public void queueUpAllRecordsForSave() {
+        if (recordStorage != null)
+            stream().forEach(tradable -> recordStorage.queueUpForSave(tradable.getId(), tradable));
+    }
+
     public ObservableList<T> getObservableList() {
         if (observableList == null)
             observableList = FXCollections.observableArrayList(this);
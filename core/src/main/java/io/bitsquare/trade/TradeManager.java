@@ -33,6 +33,7 @@ import io.bitsquare.p2p.P2PService;
 import io.bitsquare.p2p.messaging.DecryptedDirectMessageListener;
 import io.bitsquare.p2p.messaging.DecryptedMailboxListener;
 import io.bitsquare.p2p.messaging.DecryptedMsgWithPubKey;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.closed.ClosedTradableManager;
 import io.bitsquare.trade.failed.FailedTradesManager;
@@ -110,7 +111,7 @@ public class TradeManager {
         this.p2PService = p2PService;
 
         tradableListStorage = new Storage<>(storageDir);
-        this.trades = new TradableList<>(tradableListStorage, "PendingTrades");
+        this.trades = new TradableList<>(tradableListStorage, new RecordStorage<>(storageDir), "PendingTrades");
 
         p2PService.addDecryptedDirectMessageListener(new DecryptedDirectMessageListener() {
             @Override
@@ -246,6 +247,12 @@ public class TradeManager {
     // Take offer
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Called when the user looks at that offer, so the connection to the offerer is ready when it gets taken
+    public void preConnectToOfferer(Offer offer) {
+        if (!isMyOffer(offer))
+            p2PService.preConnect(offer.getOffererNodeAddress());
+    }
+
     public void checkOfferAvailability(Offer offer,
                                        ResultHandler resultHandler) {
         offer.checkOfferAvailability(getOfferAvailabilityModel(offer), resultHandler);
@@ -19,9 +19,9 @@ package io.bitsquare.trade.closed;
 
 import com.google.inject.Inject;
 import io.bitsquare.common.crypto.KeyRing;
-import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.Tradable;
-import io.bitsquare.trade.TradableList;
+import io.bitsquare.trade.TradableArchive;
+import io.bitsquare.trade.TradableIndexEntry;
 import io.bitsquare.trade.offer.Offer;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
@@ -33,13 +33,13 @@ import java.util.Optional;
 
 public class ClosedTradableManager {
     private static final Logger log = LoggerFactory.getLogger(ClosedTradableManager.class);
-    private final TradableList<Tradable> closedTrades;
+    private final TradableArchive<Tradable> closedTrades;
     private final KeyRing keyRing;
 
     @Inject
     public ClosedTradableManager(KeyRing keyRing, @Named("storage.dir") File storageDir) {
         this.keyRing = keyRing;
-        this.closedTrades = new TradableList<>(new Storage<>(storageDir), "ClosedTrades");
+        this.closedTrades = new TradableArchive<>(storageDir, "ClosedTrades");
     }
 
     public void add(Tradable tradable) {
@@ -50,12 +50,17 @@ public class ClosedTradableManager {
         return offer.isMyOffer(keyRing);
     }
 
-    public ObservableList<Tradable> getClosedTrades() {
-        return closedTrades.getObservableList();
+    // The tradables are loaded on demand with getTradableById
+    public ObservableList<TradableIndexEntry> getClosedTrades() {
+        return closedTrades.getIndex();
+    }
+
+    public boolean contains(String id) {
+        return closedTrades.contains(id);
     }
 
     public Optional<Tradable> getTradableById(String id) {
-        return closedTrades.stream().filter(e -> e.getId().equals(id)).findFirst();
+        return closedTrades.getTradableById(id);
     }
 
 }
@@ -18,6 +18,7 @@
 package io.bitsquare.trade.offer;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.Tradable;
@@ -36,7 +37,7 @@ public class OpenOffer implements Tradable, Serializable {
 
     // Timeout for offer reservation during takeoffer process. If deposit tx is not completed in that time we reset the offer to AVAILABLE state. 
     private static final long TIMEOUT_SEC = 30;
-    transient private java.util.Timer timeoutTimer;
+    transient private Timer timeoutTimer;
 
     public enum State {
         AVAILABLE,
@@ -80,7 +81,7 @@ public class OpenOffer implements Tradable, Serializable {
     public void setState(State state) {
         log.trace("setState" + state);
         this.state = state;
-        storage.queueUpForSave();
+        storage.queueUpRecordForSave(getId());
 
         // We keep it reserved for a limited time, if trade preparation fails we revert to available state
         if (this.state == State.RESERVED)
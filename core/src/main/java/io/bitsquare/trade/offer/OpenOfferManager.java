@@ -30,6 +30,7 @@ import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.P2PService;
 import io.bitsquare.p2p.messaging.SendDirectMessageListener;
+import io.bitsquare.storage.RecordStorage;
 import io.bitsquare.storage.Storage;
 import io.bitsquare.trade.TradableList;
 import io.bitsquare.trade.closed.ClosedTradableManager;
@@ -93,7 +94,7 @@ public class OpenOfferManager {
         this.closedTradableManager = closedTradableManager;
 
         openOffersStorage = new Storage<>(storageDir);
-        this.openOffers = new TradableList<>(openOffersStorage, "OpenOffers");
+        this.openOffers = new TradableList<>(openOffersStorage, new RecordStorage<>(storageDir), "OpenOffers");
 
         init();
     }
@@ -156,7 +157,7 @@ public class OpenOfferManager {
     }
 
     private void rePublishOffers() {
-        Log.traceCall("Number of offer for republish: " + openOffers.size());
+        Log.traceCall("Number of offer for republish: {}", openOffers.size());
         for (OpenOffer openOffer : openOffers) {
             offerBookService.republishOffer(openOffer.getOffer(),
                     () -> log.debug("Successful added offer to P2P network"),
@@ -203,7 +204,6 @@ public class OpenOfferManager {
                 transaction -> {
                     OpenOffer openOffer = new OpenOffer(offer, openOffersStorage);
                     openOffers.add(openOffer);
-                    openOffersStorage.queueUpForSave();
                     resultHandler.handleResult(transaction);
                 }
         );
@@ -17,9 +17,11 @@
 
 package io.bitsquare.trade.protocol.availability;
 
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.messaging.DecryptedDirectMessageListener;
@@ -35,16 +37,23 @@ import static io.bitsquare.util.Validator.nonEmptyStringOf;
 
 public class OfferAvailabilityProtocol {
     private static final Logger log = LoggerFactory.getLogger(OfferAvailabilityProtocol.class);
-
     private static final long TIMEOUT_SEC = 10;
 
+    private static final TaskPipeline<OfferAvailabilityModel> SEND_OFFER_AVAILABILITY_REQUEST = TaskPipeline.of(
+            "OfferAvailabilityProtocol.sendOfferAvailabilityRequest",
+            SendOfferAvailabilityRequest::new);
+
+    private static final TaskPipeline<OfferAvailabilityModel> HANDLE_OFFER_AVAILABILITY_RESPONSE = TaskPipeline.of(
+            "OfferAvailabilityProtocol.handleOfferAvailabilityResponse",
+            ProcessOfferAvailabilityResponse::new);
+
     private final OfferAvailabilityModel model;
     private final ResultHandler resultHandler;
     private final ErrorMessageHandler errorMessageHandler;
     private final DecryptedDirectMessageListener decryptedDirectMessageListener;
 
     private TaskRunner<OfferAvailabilityModel> taskRunner;
-    private java.util.Timer timeoutTimer;
+    private Timer timeoutTimer;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -97,9 +106,8 @@ public class OfferAvailabilityProtocol {
                     errorMessageHandler.handleErrorMessage(errorMessage);
                 }
         );
-        taskRunner.addTasks(SendOfferAvailabilityRequest.class);
         startTimeout();
-        taskRunner.run();
+        taskRunner.run(SEND_OFFER_AVAILABILITY_REQUEST);
     }
 
     public void cancel() {
@@ -129,8 +137,7 @@ public class OfferAvailabilityProtocol {
                     errorMessageHandler.handleErrorMessage(errorMessage);
                 }
         );
-        taskRunner.addTasks(ProcessOfferAvailabilityResponse.class);
-        taskRunner.run();
+        taskRunner.run(HANDLE_OFFER_AVAILABILITY_RESPONSE);
     }
 
     private void startTimeout() {
@@ -17,6 +17,7 @@
 
 package io.bitsquare.trade.protocol.placeoffer;
 
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.common.taskrunner.TaskRunner;
 import io.bitsquare.trade.handlers.TransactionResultHandler;
 import io.bitsquare.trade.protocol.placeoffer.tasks.AddOfferToRemoteOfferBook;
@@ -26,9 +27,18 @@ import io.bitsquare.trade.protocol.placeoffer.tasks.ValidateOffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static io.bitsquare.common.taskrunner.TaskPipeline.checkpoint;
+
 public class PlaceOfferProtocol {
     private static final Logger log = LoggerFactory.getLogger(PlaceOfferProtocol.class);
 
+    private static final TaskPipeline<PlaceOfferModel> PLACE_OFFER = TaskPipeline.of(
+            "PlaceOfferProtocol.placeOffer",
+            ValidateOffer::new,
+            CreateOfferFeeTx::new,
+            AddOfferToRemoteOfferBook::new,
+            checkpoint(BroadcastCreateOfferFeeTx::new));
+
     private final PlaceOfferModel model;
     private final TransactionResultHandler resultHandler;
 
@@ -69,13 +79,7 @@ public class PlaceOfferProtocol {
                     log.error(errorMessage);
                 }
         );
-        taskRunner.addTasks(
-                ValidateOffer.class,
-                CreateOfferFeeTx.class,
-                AddOfferToRemoteOfferBook.class,
-                BroadcastCreateOfferFeeTx.class
-        );
 
-        taskRunner.run();
+        taskRunner.run(PLACE_OFFER);
     }
 }
@@ -19,6 +19,7 @@ package io.bitsquare.trade.protocol.trade;
 
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.messaging.MailboxMessage;
@@ -36,12 +37,43 @@ import io.bitsquare.trade.protocol.trade.tasks.shared.SetupPayoutTxLockTimeReach
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static io.bitsquare.common.taskrunner.TaskPipeline.checkpoint;
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.bitsquare.util.Validator.checkTradeId;
 
 public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtocol, OffererProtocol {
     private static final Logger log = LoggerFactory.getLogger(BuyerAsOffererProtocol.class);
 
+    private static final TaskPipeline<Trade> HANDLE_TAKE_OFFER_REQUEST = TaskPipeline.of(
+            "BuyerAsOffererProtocol.handleTakeOfferRequest",
+            ProcessPayDepositRequest::new,
+            VerifyArbitrationSelection::new,
+            VerifyTakerAccount::new,
+            LoadTakeOfferFeeTx::new,
+            CreateAndSignContract::new,
+            checkpoint(CreateAndSignDepositTxAsBuyer::new),
+            InitWaitPeriodForOpenDispute::new,
+            SetupDepositBalanceListener::new,
+            SendPublishDepositTxRequest::new);
+
+    private static final TaskPipeline<Trade> HANDLE_DEPOSIT_TX_PUBLISHED_MESSAGE = TaskPipeline.of(
+            "BuyerAsOffererProtocol.handleDepositTxPublishedMessage",
+            ProcessDepositTxPublishedMessage::new,
+            AddDepositTxToWallet::new);
+
+    private static final TaskPipeline<Trade> ON_FIAT_PAYMENT_STARTED = TaskPipeline.of(
+            "BuyerAsOffererProtocol.onFiatPaymentStarted",
+            VerifyTakeOfferFeePayment::new,
+            SendFiatTransferStartedMessage::new);
+
+    private static final TaskPipeline<Trade> HANDLE_FINALIZE_PAYOUT_TX_REQUEST = TaskPipeline.of(
+            "BuyerAsOffererProtocol.handleFinalizePayoutTxRequest",
+            ProcessFinalizePayoutTxRequest::new,
+            checkpoint(SignAndFinalizePayoutTx::new),
+            checkpoint(CommitPayoutTx::new),
+            SendPayoutTxFinalizedMessage::new,
+            SetupPayoutTxLockTimeReachedListener::new);
+
     private final BuyerAsOffererTrade buyerAsOffererTrade;
 
 
@@ -65,8 +97,7 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
-            taskRunner.run();
+            taskRunner.run(SETUP_PAYOUT_TX_LOCK_TIME_REACHED_LISTENER);
         }
     }
 
@@ -105,19 +136,8 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
         TradeTaskRunner taskRunner = new TradeTaskRunner(buyerAsOffererTrade,
                 () -> handleTaskRunnerSuccess("handleTakeOfferRequest"),
                 this::handleTaskRunnerFault);
-        taskRunner.addTasks(
-                ProcessPayDepositRequest.class,
-                VerifyArbitrationSelection.class,
-                VerifyTakerAccount.class,
-                LoadTakeOfferFeeTx.class,
-                CreateAndSignContract.class,
-                CreateAndSignDepositTxAsBuyer.class,
-                InitWaitPeriodForOpenDispute.class,
-                SetupDepositBalanceListener.class,
-                SendPublishDepositTxRequest.class
-        );
         startTimeout();
-        taskRunner.run();
+        taskRunner.run(HANDLE_TAKE_OFFER_REQUEST);
     }
 
 
@@ -133,11 +153,7 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
         TradeTaskRunner taskRunner = new TradeTaskRunner(buyerAsOffererTrade,
                 () -> handleTaskRunnerSuccess("handle DepositTxPublishedMessage"),
                 this::handleTaskRunnerFault);
-        taskRunner.addTasks(
-                ProcessDepositTxPublishedMessage.class,
-                AddDepositTxToWallet.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_DEPOSIT_TX_PUBLISHED_MESSAGE);
     }
 
 
@@ -159,11 +175,7 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                     errorMessageHandler.handleErrorMessage(errorMessage);
                     handleTaskRunnerFault(errorMessage);
                 });
-        taskRunner.addTasks(
-                VerifyTakeOfferFeePayment.class,
-                SendFiatTransferStartedMessage.class
-        );
-        taskRunner.run();
+        taskRunner.run(ON_FIAT_PAYMENT_STARTED);
     }
 
 
@@ -183,14 +195,7 @@ public class BuyerAsOffererProtocol extends TradeProtocol implements BuyerProtoc
                 },
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessFinalizePayoutTxRequest.class,
-                SignAndFinalizePayoutTx.class,
-                CommitPayoutTx.class,
-                SendPayoutTxFinalizedMessage.class,
-                SetupPayoutTxLockTimeReachedListener.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_FINALIZE_PAYOUT_TX_REQUEST);
     }
 
 
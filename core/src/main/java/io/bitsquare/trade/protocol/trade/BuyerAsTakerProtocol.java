@@ -20,6 +20,7 @@ package io.bitsquare.trade.protocol.trade;
 
 import io.bitsquare.common.handlers.ErrorMessageHandler;
 import io.bitsquare.common.handlers.ResultHandler;
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.messaging.MailboxMessage;
@@ -35,9 +36,41 @@ import io.bitsquare.trade.protocol.trade.tasks.taker.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static io.bitsquare.common.taskrunner.TaskPipeline.checkpoint;
+
 public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol, TakerProtocol {
     private static final Logger log = LoggerFactory.getLogger(BuyerAsTakerProtocol.class);
 
+    private static final TaskPipeline<Trade> TAKE_AVAILABLE_OFFER = TaskPipeline.of(
+            "BuyerAsTakerProtocol.takeAvailableOffer",
+            SelectArbitrator::new,
+            LoadCreateOfferFeeTx::new,
+            CreateTakeOfferFeeTx::new,
+            checkpoint(BroadcastTakeOfferFeeTx::new),
+            CreateDepositTxInputsAsBuyer::new,
+            SendPayDepositRequest::new);
+
+    private static final TaskPipeline<Trade> HANDLE_PUBLISH_DEPOSIT_TX_REQUEST = TaskPipeline.of(
+            "BuyerAsTakerProtocol.handlePublishDepositTxRequest",
+            ProcessPublishDepositTxRequest::new,
+            VerifyOffererAccount::new,
+            VerifyAndSignContract::new,
+            checkpoint(SignAndPublishDepositTxAsBuyer::new),
+            SendDepositTxPublishedMessage::new);
+
+    private static final TaskPipeline<Trade> ON_FIAT_PAYMENT_STARTED = TaskPipeline.of(
+            "BuyerAsTakerProtocol.onFiatPaymentStarted",
+            VerifyOfferFeePayment::new,
+            SendFiatTransferStartedMessage::new);
+
+    private static final TaskPipeline<Trade> HANDLE_FINALIZE_PAYOUT_TX_REQUEST = TaskPipeline.of(
+            "BuyerAsTakerProtocol.handleFinalizePayoutTxRequest",
+            ProcessFinalizePayoutTxRequest::new,
+            checkpoint(SignAndFinalizePayoutTx::new),
+            checkpoint(CommitPayoutTx::new),
+            SendPayoutTxFinalizedMessage::new,
+            SetupPayoutTxLockTimeReachedListener::new);
+
     private final BuyerAsTakerTrade buyerAsTakerTrade;
 
 
@@ -62,8 +95,7 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
-            taskRunner.run();
+            taskRunner.run(SETUP_PAYOUT_TX_LOCK_TIME_REACHED_LISTENER);
         }
     }
 
@@ -91,16 +123,8 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                 () -> handleTaskRunnerSuccess("takeAvailableOffer"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                SelectArbitrator.class,
-                LoadCreateOfferFeeTx.class,
-                CreateTakeOfferFeeTx.class,
-                BroadcastTakeOfferFeeTx.class,
-                CreateDepositTxInputsAsBuyer.class,
-                SendPayDepositRequest.class
-        );
         startTimeout();
-        taskRunner.run();
+        taskRunner.run(TAKE_AVAILABLE_OFFER);
     }
 
 
@@ -116,14 +140,7 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
         TradeTaskRunner taskRunner = new TradeTaskRunner(buyerAsTakerTrade,
                 () -> handleTaskRunnerSuccess("PublishDepositTxRequest"),
                 this::handleTaskRunnerFault);
-        taskRunner.addTasks(
-                ProcessPublishDepositTxRequest.class,
-                VerifyOffererAccount.class,
-                VerifyAndSignContract.class,
-                SignAndPublishDepositTxAsBuyer.class,
-                SendDepositTxPublishedMessage.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_PUBLISH_DEPOSIT_TX_REQUEST);
     }
 
 
@@ -145,11 +162,7 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                     errorMessageHandler.handleErrorMessage(errorMessage);
                     handleTaskRunnerFault(errorMessage);
                 });
-        taskRunner.addTasks(
-                VerifyOfferFeePayment.class,
-                SendFiatTransferStartedMessage.class
-        );
-        taskRunner.run();
+        taskRunner.run(ON_FIAT_PAYMENT_STARTED);
     }
 
 
@@ -168,14 +181,7 @@ public class BuyerAsTakerProtocol extends TradeProtocol implements BuyerProtocol
                 },
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessFinalizePayoutTxRequest.class,
-                SignAndFinalizePayoutTx.class,
-                CommitPayoutTx.class,
-                SendPayoutTxFinalizedMessage.class,
-                SetupPayoutTxLockTimeReachedListener.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_FINALIZE_PAYOUT_TX_REQUEST);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -18,6 +18,7 @@
 package io.bitsquare.trade.protocol.trade;
 
 
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.messaging.MailboxMessage;
@@ -32,12 +33,46 @@ import io.bitsquare.trade.protocol.trade.tasks.shared.SetupPayoutTxLockTimeReach
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static io.bitsquare.common.taskrunner.TaskPipeline.checkpoint;
 import static com.google.common.base.Preconditions.checkArgument;
 import static io.bitsquare.util.Validator.checkTradeId;
 
 public class SellerAsOffererProtocol extends TradeProtocol implements SellerProtocol, OffererProtocol {
     private static final Logger log = LoggerFactory.getLogger(SellerAsOffererProtocol.class);
 
+    private static final TaskPipeline<Trade> HANDLE_TAKE_OFFER_REQUEST = TaskPipeline.of(
+            "SellerAsOffererProtocol.handleTakeOfferRequest",
+            ProcessPayDepositRequest::new,
+            VerifyArbitrationSelection::new,
+            VerifyTakerAccount::new,
+            LoadTakeOfferFeeTx::new,
+            InitWaitPeriodForOpenDispute::new,
+            CreateAndSignContract::new,
+            checkpoint(CreateAndSignDepositTxAsSeller::new),
+            SetupDepositBalanceListener::new,
+            SendPublishDepositTxRequest::new);
+
+    private static final TaskPipeline<Trade> HANDLE_DEPOSIT_TX_PUBLISHED_MESSAGE = TaskPipeline.of(
+            "SellerAsOffererProtocol.handleDepositTxPublishedMessage",
+            ProcessDepositTxPublishedMessage::new,
+            AddDepositTxToWallet::new);
+
+    private static final TaskPipeline<Trade> HANDLE_FIAT_TRANSFER_STARTED_MESSAGE = TaskPipeline.of(
+            "SellerAsOffererProtocol.handleFiatTransferStartedMessage",
+            ProcessFiatTransferStartedMessage::new);
+
+    private static final TaskPipeline<Trade> ON_FIAT_PAYMENT_RECEIVED = TaskPipeline.of(
+            "SellerAsOffererProtocol.onFiatPaymentReceived",
+            VerifyTakeOfferFeePayment::new,
+            checkpoint(SignPayoutTx::new),
+            SendFinalizePayoutTxRequest::new);
+
+    private static final TaskPipeline<Trade> HANDLE_PAYOUT_TX_FINALIZED_MESSAGE = TaskPipeline.of(
+            "SellerAsOffererProtocol.handlePayoutTxFinalizedMessage",
+            ProcessPayoutTxFinalizedMessage::new,
+            checkpoint(CommitPayoutTx::new),
+            SetupPayoutTxLockTimeReachedListener::new);
+
     private final SellerAsOffererTrade sellerAsOffererTrade;
 
 
@@ -61,8 +96,7 @@ public class SellerAsOffererProtocol extends TradeProtocol implements SellerProt
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
-            taskRunner.run();
+            taskRunner.run(SETUP_PAYOUT_TX_LOCK_TIME_REACHED_LISTENER);
         }
     }
 
@@ -103,19 +137,8 @@ public class SellerAsOffererProtocol extends TradeProtocol implements SellerProt
                 () -> handleTaskRunnerSuccess("handleTakeOfferRequest"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessPayDepositRequest.class,
-                VerifyArbitrationSelection.class,
-                VerifyTakerAccount.class,
-                LoadTakeOfferFeeTx.class,
-                InitWaitPeriodForOpenDispute.class,
-                CreateAndSignContract.class,
-                CreateAndSignDepositTxAsSeller.class,
-                SetupDepositBalanceListener.class,
-                SendPublishDepositTxRequest.class
-        );
         startTimeout();
-        taskRunner.run();
+        taskRunner.run(HANDLE_TAKE_OFFER_REQUEST);
     }
 
 
@@ -132,11 +155,7 @@ public class SellerAsOffererProtocol extends TradeProtocol implements SellerProt
                 () -> handleTaskRunnerSuccess("DepositTxPublishedMessage"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessDepositTxPublishedMessage.class,
-                AddDepositTxToWallet.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_DEPOSIT_TX_PUBLISHED_MESSAGE);
     }
 
 
@@ -152,8 +171,7 @@ public class SellerAsOffererProtocol extends TradeProtocol implements SellerProt
                 () -> handleTaskRunnerSuccess("FiatTransferStartedMessage"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(ProcessFiatTransferStartedMessage.class);
-        taskRunner.run();
+        taskRunner.run(HANDLE_FIAT_TRANSFER_STARTED_MESSAGE);
     }
 
 
@@ -170,12 +188,7 @@ public class SellerAsOffererProtocol extends TradeProtocol implements SellerProt
                 () -> handleTaskRunnerSuccess("onFiatPaymentReceived"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                VerifyTakeOfferFeePayment.class,
-                SignPayoutTx.class,
-                SendFinalizePayoutTxRequest.class
-        );
-        taskRunner.run();
+        taskRunner.run(ON_FIAT_PAYMENT_RECEIVED);
     }
 
     private void handle(PayoutTxFinalizedMessage tradeMessage, NodeAddress sender) {
@@ -189,12 +202,7 @@ public class SellerAsOffererProtocol extends TradeProtocol implements SellerProt
                 },
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessPayoutTxFinalizedMessage.class,
-                CommitPayoutTx.class,
-                SetupPayoutTxLockTimeReachedListener.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_PAYOUT_TX_FINALIZED_MESSAGE);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
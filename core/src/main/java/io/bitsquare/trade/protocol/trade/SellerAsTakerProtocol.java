@@ -18,6 +18,7 @@
 package io.bitsquare.trade.protocol.trade;
 
 
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.messaging.MailboxMessage;
@@ -34,9 +35,44 @@ import io.bitsquare.trade.protocol.trade.tasks.taker.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static io.bitsquare.common.taskrunner.TaskPipeline.checkpoint;
+
 public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtocol, TakerProtocol {
     private static final Logger log = LoggerFactory.getLogger(SellerAsTakerProtocol.class);
 
+    private static final TaskPipeline<Trade> TAKE_AVAILABLE_OFFER = TaskPipeline.of(
+            "SellerAsTakerProtocol.takeAvailableOffer",
+            SelectArbitrator::new,
+            LoadCreateOfferFeeTx::new,
+            CreateTakeOfferFeeTx::new,
+            checkpoint(BroadcastTakeOfferFeeTx::new),
+            CreateDepositTxInputsAsSeller::new,
+            SendPayDepositRequest::new);
+
+    private static final TaskPipeline<Trade> HANDLE_PUBLISH_DEPOSIT_TX_REQUEST = TaskPipeline.of(
+            "SellerAsTakerProtocol.handlePublishDepositTxRequest",
+            ProcessPublishDepositTxRequest::new,
+            VerifyOffererAccount::new,
+            VerifyAndSignContract::new,
+            checkpoint(SignAndPublishDepositTxAsSeller::new),
+            SendDepositTxPublishedMessage::new);
+
+    private static final TaskPipeline<Trade> HANDLE_FIAT_TRANSFER_STARTED_MESSAGE = TaskPipeline.of(
+            "SellerAsTakerProtocol.handleFiatTransferStartedMessage",
+            ProcessFiatTransferStartedMessage::new);
+
+    private static final TaskPipeline<Trade> ON_FIAT_PAYMENT_RECEIVED = TaskPipeline.of(
+            "SellerAsTakerProtocol.onFiatPaymentReceived",
+            VerifyOfferFeePayment::new,
+            checkpoint(SignPayoutTx::new),
+            SendFinalizePayoutTxRequest::new);
+
+    private static final TaskPipeline<Trade> HANDLE_PAYOUT_TX_FINALIZED_MESSAGE = TaskPipeline.of(
+            "SellerAsTakerProtocol.handlePayoutTxFinalizedMessage",
+            ProcessPayoutTxFinalizedMessage::new,
+            checkpoint(CommitPayoutTx::new),
+            SetupPayoutTxLockTimeReachedListener::new);
+
     private final SellerAsTakerTrade sellerAsTakerTrade;
 
 
@@ -62,8 +98,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
-            taskRunner.run();
+            taskRunner.run(SETUP_PAYOUT_TX_LOCK_TIME_REACHED_LISTENER);
         }
     }
 
@@ -97,16 +132,8 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 () -> handleTaskRunnerSuccess("takeAvailableOffer"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                SelectArbitrator.class,
-                LoadCreateOfferFeeTx.class,
-                CreateTakeOfferFeeTx.class,
-                BroadcastTakeOfferFeeTx.class,
-                CreateDepositTxInputsAsSeller.class,
-                SendPayDepositRequest.class
-        );
         startTimeout();
-        taskRunner.run();
+        taskRunner.run(TAKE_AVAILABLE_OFFER);
     }
 
 
@@ -124,14 +151,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 () -> handleTaskRunnerSuccess("PayDepositRequest"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessPublishDepositTxRequest.class,
-                VerifyOffererAccount.class,
-                VerifyAndSignContract.class,
-                SignAndPublishDepositTxAsSeller.class,
-                SendDepositTxPublishedMessage.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_PUBLISH_DEPOSIT_TX_REQUEST);
     }
 
 
@@ -147,8 +167,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 () -> handleTaskRunnerSuccess("FiatTransferStartedMessage"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(ProcessFiatTransferStartedMessage.class);
-        taskRunner.run();
+        taskRunner.run(HANDLE_FIAT_TRANSFER_STARTED_MESSAGE);
     }
 
 
@@ -165,12 +184,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 () -> handleTaskRunnerSuccess("onFiatPaymentReceived"),
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                VerifyOfferFeePayment.class,
-                SignPayoutTx.class,
-                SendFinalizePayoutTxRequest.class
-        );
-        taskRunner.run();
+        taskRunner.run(ON_FIAT_PAYMENT_RECEIVED);
     }
 
     private void handle(PayoutTxFinalizedMessage tradeMessage, NodeAddress sender) {
@@ -185,12 +199,7 @@ public class SellerAsTakerProtocol extends TradeProtocol implements SellerProtoc
                 },
                 this::handleTaskRunnerFault);
 
-        taskRunner.addTasks(
-                ProcessPayoutTxFinalizedMessage.class,
-                CommitPayoutTx.class,
-                SetupPayoutTxLockTimeReachedListener.class
-        );
-        taskRunner.run();
+        taskRunner.run(HANDLE_PAYOUT_TX_FINALIZED_MESSAGE);
     }
 
 
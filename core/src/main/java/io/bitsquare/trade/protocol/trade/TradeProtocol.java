@@ -17,8 +17,10 @@
 
 package io.bitsquare.trade.protocol.trade;
 
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.crypto.PubKeyRing;
+import io.bitsquare.common.taskrunner.TaskPipeline;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.messaging.DecryptedDirectMessageListener;
@@ -40,10 +42,14 @@ public abstract class TradeProtocol {
     private static final Logger log = LoggerFactory.getLogger(TradeProtocol.class);
     private static final long TIMEOUT_SEC = 30;
 
+    protected static final TaskPipeline<Trade> SETUP_PAYOUT_TX_LOCK_TIME_REACHED_LISTENER = TaskPipeline.of(
+            "TradeProtocol.setupPayoutTxLockTimeReachedListener",
+            SetupPayoutTxLockTimeReachedListener::new);
+
     protected final ProcessModel processModel;
     private final DecryptedDirectMessageListener decryptedDirectMessageListener;
     protected Trade trade;
-    private java.util.Timer timeoutTimer;
+    private Timer timeoutTimer;
 
     public TradeProtocol(Trade trade) {
         this.trade = trade;
@@ -115,8 +121,7 @@ public abstract class TradeProtocol {
                     },
                     this::handleTaskRunnerFault);
 
-            taskRunner.addTasks(SetupPayoutTxLockTimeReachedListener.class);
-            taskRunner.run();
+            taskRunner.run(SETUP_PAYOUT_TX_LOCK_TIME_REACHED_LISTENER);
         }
     }
 
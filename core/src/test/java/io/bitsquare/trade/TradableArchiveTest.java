@@ -0,0 +1,92 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.storage.PersistenceService;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.trade.mocks.MockTradable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class TradableArchiveTest {
+    private static final String FILE_NAME = "ClosedTrades";
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("temp_tests", "");
+        dir.delete();
+        dir.mkdir();
+
+        // The history as written by versions which persisted it as one file
+        Storage<ArrayList<MockTradable>> storage = new Storage<>(dir);
+        ArrayList<MockTradable> legacyList = new ArrayList<>();
+        storage.initAndGetPersisted(legacyList, FILE_NAME);
+        for (int i = 0; i < 120; i++)
+            legacyList.add(new MockTradable(String.valueOf(i)));
+        storage.queueUpForSave();
+        PersistenceService.flushAll();
+        assertTrue(new File(dir, FILE_NAME).isFile());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Utilities.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testMigrationFromLegacyFile() {
+        TradableArchive<MockTradable> archive = new TradableArchive<>(dir, FILE_NAME);
+        assertEquals(120, archive.getIndex().size());
+        assertFalse(new File(dir, FILE_NAME).exists());
+
+        TradableArchive<MockTradable> reloaded = new TradableArchive<>(dir, FILE_NAME);
+        assertEquals(120, reloaded.getIndex().size());
+        assertEquals("0", reloaded.getIndex().get(0).getId());
+        assertEquals("EUR", reloaded.getIndex().get(0).getCurrencyCode());
+        // From the last page
+        assertEquals("119", reloaded.getTradableById("119").get().getId());
+    }
+
+    @Test
+    public void testLegacyFileIsKeptIfMigrationFails() {
+        // A directory in place of the archive file lets the append fail
+        File archiveFile = new File(dir, FILE_NAME + ".archive");
+        assertTrue(archiveFile.mkdir());
+
+        // The app still starts, just without the history
+        TradableArchive<MockTradable> archive = new TradableArchive<>(dir, FILE_NAME);
+        assertTrue(archive.getIndex().isEmpty());
+        assertTrue(new File(dir, FILE_NAME).isFile());
+
+        // The next start retries the migration
+        assertTrue(archiveFile.delete());
+        TradableArchive<MockTradable> reloaded = new TradableArchive<>(dir, FILE_NAME);
+        assertEquals(120, reloaded.getIndex().size());
+        assertFalse(new File(dir, FILE_NAME).exists());
+    }
+}
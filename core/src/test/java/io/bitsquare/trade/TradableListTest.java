@@ -0,0 +1,79 @@
+/*
+ * This file is part of Bitsquare.
+ *
+ * Bitsquare is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bitsquare is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bitsquare. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.bitsquare.trade;
+
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.storage.PersistenceService;
+import io.bitsquare.storage.RecordStorage;
+import io.bitsquare.storage.Storage;
+import io.bitsquare.trade.mocks.MockTradable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TradableListTest {
+    private static final String FILE_NAME = "PendingTrades";
+
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("temp_tests", "");
+        dir.delete();
+        dir.mkdir();
+
+        // The list as written by versions which persisted it as one file
+        TradableList<MockTradable> legacyList = new TradableList<>(new Storage<>(dir), FILE_NAME);
+        legacyList.add(new MockTradable("1"));
+        legacyList.add(new MockTradable("2"));
+        PersistenceService.flushAll();
+        assertTrue(new File(dir, FILE_NAME).isFile());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Utilities.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testMigrationFromLegacyFile() {
+        TradableList<MockTradable> list = new TradableList<>(new Storage<>(dir), new RecordStorage<>(dir), FILE_NAME);
+        assertEquals(2, list.size());
+        assertFalse(new File(dir, FILE_NAME).exists());
+
+        TradableList<MockTradable> reloaded = new TradableList<>(new Storage<>(dir), new RecordStorage<>(dir), FILE_NAME);
+        assertEquals(2, reloaded.size());
+        assertTrue(reloaded.stream().anyMatch(tradable -> tradable.getId().equals("1")));
+        assertTrue(reloaded.stream().anyMatch(tradable -> tradable.getId().equals("2")));
+    }
+
+    @Test
+    public void testLegacyFileIsKeptIfMigrationFails() throws IOException {
+        // A file in place of the records directory lets every record write fail
+        assertTrue(new File(dir, FILE_NAME + ".records").createNewFile());
+
+        TradableList<MockTradable> list = new TradableList<>(new Storage<>(dir), new RecordStorage<>(dir), FILE_NAME);
+        assertEquals(2, list.size());
+        assertTrue(new File(dir, FILE_NAME).isFile());
+    }
+}
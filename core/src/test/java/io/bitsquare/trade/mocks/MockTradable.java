@@ -0,0 +1,39 @@
+package io.bitsquare.trade.mocks;
+
+import io.bitsquare.trade.Tradable;
+import io.bitsquare.trade.offer.Offer;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+public final class MockTradable implements Tradable {
+    private final String id;
+    private final Date date = new Date();
+    private final Offer offer;
+
+    public MockTradable(String id) {
+        this.id = id;
+        offer = new Offer(id, null, null, Offer.Direction.BUY, 2500000, 100000, 100000, "SEPA", "EUR", null, "account",
+                new ArrayList<>(), null);
+    }
+
+    @Override
+    public Offer getOffer() {
+        return offer;
+    }
+
+    @Override
+    public Date getDate() {
+        return date;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getShortId() {
+        return id;
+    }
+}
@@ -39,7 +39,9 @@ import io.bitsquare.gui.popups.Popup;
 import io.bitsquare.gui.popups.SendAlertMessagePopup;
 import io.bitsquare.gui.util.ImageUtil;
 import io.bitsquare.p2p.P2PService;
+import io.bitsquare.storage.PersistenceService;
 import io.bitsquare.storage.Storage;
+import io.bitsquare.storage.StoragePrefetcher;
 import io.bitsquare.trade.offer.OpenOfferManager;
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -63,6 +65,7 @@ import org.reactfx.util.FxTimer;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.env.Environment;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.security.Security;
@@ -118,6 +121,12 @@ public class BitsquareApp extends Application {
 
         Security.addProvider(new BouncyCastleProvider());
 
+        PersistenceService.setDurability(env.getProperty(PersistenceService.DURABILITY_KEY,
+                PersistenceService.Durability.class, PersistenceService.DEFAULT_DURABILITY));
+
+        // Read the persisted data in parallel before the objects owning them get created
+        StoragePrefetcher.prefetch(new File(env.getRequiredProperty(Storage.DIR_KEY)));
+
         BitsquareApp.primaryStage = primaryStage;
 
         shutDownHandler = this::stop;
@@ -134,6 +143,7 @@ public class BitsquareApp extends Application {
             CachingViewLoader viewLoader = injector.getInstance(CachingViewLoader.class);
             mainView = (MainView) viewLoader.load(MainView.class);
             mainView.setPersistedFilesCorrupted(corruptedDatabaseFiles);
+            StoragePrefetcher.clear();
 
             Storage.setDatabaseCorruptionHandler((String fileName) -> {
                 corruptedDatabaseFiles.add(fileName);
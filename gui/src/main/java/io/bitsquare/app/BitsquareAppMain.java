@@ -20,6 +20,7 @@ package io.bitsquare.app;
 import io.bitsquare.BitsquareException;
 import io.bitsquare.btc.BitcoinNetwork;
 import io.bitsquare.btc.RegTestHost;
+import io.bitsquare.storage.PersistenceService;
 import io.bitsquare.util.joptsimple.EnumValueConverter;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
@@ -109,6 +110,10 @@ public class BitsquareAppMain extends BitsquareExecutable {
         parser.accepts(ProgramArguments.DEV_TEST, description("Enable arbitrator dev priv key", false))
                 .withRequiredArg()
                 .ofType(boolean.class);
+        parser.accepts(ProgramArguments.HEDGED_REQUESTS,
+                description("Send a second data request if the first seed node is slow to respond", true))
+                .withRequiredArg()
+                .ofType(boolean.class);
         parser.accepts(BitcoinNetwork.KEY, description("Bitcoin network", BitcoinNetwork.DEFAULT))
                 .withRequiredArg()
                 .ofType(BitcoinNetwork.class)
@@ -118,6 +123,12 @@ public class BitsquareAppMain extends BitsquareExecutable {
                 .withRequiredArg()
                 .ofType(RegTestHost.class)
                 .withValuesConvertedBy(new EnumValueConverter(RegTestHost.class));
+
+        parser.accepts(PersistenceService.DURABILITY_KEY,
+                description("How persisted data is synced to disk", PersistenceService.DEFAULT_DURABILITY))
+                .withRequiredArg()
+                .ofType(PersistenceService.Durability.class)
+                .withValuesConvertedBy(new EnumValueConverter(PersistenceService.Durability.class));
     }
 
     @Override
@@ -120,8 +120,8 @@ public class MainViewModel implements ViewModel {
     private int numBTCPeers = 0;
     private Timer checkForBtcSyncStateTimer;
     private ChangeListener<Number> numConnectedPeersListener, btcNumPeersListener;
-    private java.util.Timer numberofBtcPeersTimer;
-    private java.util.Timer numberofP2PNetworkPeersTimer;
+    private io.bitsquare.common.Timer numberofBtcPeersTimer;
+    private io.bitsquare.common.Timer numberofP2PNetworkPeersTimer;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
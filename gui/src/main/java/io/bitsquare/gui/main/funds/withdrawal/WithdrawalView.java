@@ -407,8 +407,7 @@ public class WithdrawalView extends ActivatableView<VBox, Void> {
 
     private boolean detailsAvailable(WithdrawalListItem item) {
         String offerId = item.getAddressEntry().getOfferId();
-        return closedTradableManager.getTradableById(offerId).isPresent() ||
-                failedTradesManager.getTradeById(offerId).isPresent();
+        return closedTradableManager.contains(offerId) || failedTradesManager.contains(offerId);
     }
 
     private void openDetails(WithdrawalListItem item) {
@@ -43,6 +43,7 @@ public class OfferBook {
     private static final Logger log = LoggerFactory.getLogger(OfferBook.class);
 
     private final OfferBookService offerBookService;
+    private final TradeManager tradeManager;
     private final ObservableList<OfferBookListItem> offerBookListItems = FXCollections.observableArrayList();
 
 
@@ -53,6 +54,7 @@ public class OfferBook {
     @Inject
     OfferBook(OfferBookService offerBookService, TradeManager tradeManager) {
         this.offerBookService = offerBookService;
+        this.tradeManager = tradeManager;
         offerBookService.addHashSetChangedListener(new HashMapChangedListener() {
             @Override
             public void onAdded(ProtectedData entry) {
@@ -84,6 +86,11 @@ public class OfferBook {
         });
     }
 
+    // The user is likely to take that offer, so we open the connection to the offerer in advance
+    public void preConnectToOfferer(Offer offer) {
+        tradeManager.preConnectToOfferer(offer);
+    }
+
     public ObservableList<OfferBookListItem> getOfferBookListItems() {
         return offerBookListItems;
     }
@@ -457,15 +457,19 @@ public class OfferBookView extends ActivatableViewAndModel<GridPane, OfferBookVi
                                             iconView.setId("image-remove");
                                             title = "Remove";
                                             button.setOnAction(e -> onRemoveOpenOffer(offer));
+                                            button.setOnMouseEntered(null);
                                         } else {
                                             iconView.setId(offer.getDirection() == Offer.Direction.SELL ? "image-buy" : "image-sell");
                                             title = model.getDirectionLabel(offer);
                                             button.setOnAction(e -> onTakeOffer(offer));
+                                            // Hovering an offer is a good hint that the user will take it
+                                            button.setOnMouseEntered(e -> model.onOfferHovered(offer));
                                         }
                                     } else {
                                         title = "Not matching";
                                         iconView.setId(null);
                                         button.setOnAction(e -> onShowInfo(isPaymentAccountValidForOffer, hasMatchingArbitrator));
+                                        button.setOnMouseEntered(null);
                                     }
 
                                     button.setText(title);
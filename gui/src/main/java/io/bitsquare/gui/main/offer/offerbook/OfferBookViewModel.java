@@ -130,6 +130,11 @@ class OfferBookViewModel extends ActivatableViewModel {
         filterList();
     }
 
+    void onOfferHovered(Offer offer) {
+        if (isBootstrapped())
+            offerBook.preConnectToOfferer(offer);
+    }
+
     void onRemoveOpenOffer(Offer offer, ResultHandler resultHandler, ErrorMessageHandler errorMessageHandler) {
         openOfferManager.onRemoveOpenOffer(offer, resultHandler, errorMessageHandler);
     }
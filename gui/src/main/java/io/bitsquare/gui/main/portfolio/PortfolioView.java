@@ -25,7 +25,7 @@ import io.bitsquare.gui.main.portfolio.closedtrades.ClosedTradesView;
 import io.bitsquare.gui.main.portfolio.failedtrades.FailedTradesView;
 import io.bitsquare.gui.main.portfolio.openoffer.OpenOffersView;
 import io.bitsquare.gui.main.portfolio.pendingtrades.PendingTradesView;
-import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.TradableIndexEntry;
 import io.bitsquare.trade.failed.FailedTradesManager;
 import javafx.beans.value.ChangeListener;
 import javafx.collections.ListChangeListener;
@@ -77,7 +77,7 @@ public class PortfolioView extends ActivatableViewAndModel<TabPane, Activatable>
 
     @Override
     protected void activate() {
-        failedTradesManager.getFailedTrades().addListener((ListChangeListener<Trade>) c -> {
+        failedTradesManager.getFailedTrades().addListener((ListChangeListener<TradableIndexEntry>) c -> {
             if (failedTradesManager.getFailedTrades().size() > 0 && root.getTabs().size() == 3)
                 root.getTabs().add(failedTradesTab);
         });
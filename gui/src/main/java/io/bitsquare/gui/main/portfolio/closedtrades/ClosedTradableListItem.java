@@ -18,19 +18,30 @@
 package io.bitsquare.gui.main.portfolio.closedtrades;
 
 import io.bitsquare.trade.Tradable;
+import io.bitsquare.trade.TradableIndexEntry;
+import io.bitsquare.trade.closed.ClosedTradableManager;
 
 /**
- * We could remove that wrapper if it is not needed for additional UI only fields.
+ * Holds the index entry of the archived tradable. The tradable itself is loaded when the row gets displayed.
  */
 class ClosedTradableListItem {
 
-    private final Tradable tradable;
+    private final TradableIndexEntry indexEntry;
+    private final ClosedTradableManager closedTradableManager;
+    private Tradable tradable;
 
-    ClosedTradableListItem(Tradable tradable) {
-        this.tradable = tradable;
+    ClosedTradableListItem(TradableIndexEntry indexEntry, ClosedTradableManager closedTradableManager) {
+        this.indexEntry = indexEntry;
+        this.closedTradableManager = closedTradableManager;
+    }
+
+    TradableIndexEntry getIndexEntry() {
+        return indexEntry;
     }
 
     Tradable getTradable() {
+        if (tradable == null)
+            tradable = closedTradableManager.getTradableById(indexEntry.getId()).orElse(null);
         return tradable;
     }
 }
@@ -19,7 +19,7 @@ package io.bitsquare.gui.main.portfolio.closedtrades;
 
 import com.google.inject.Inject;
 import io.bitsquare.gui.common.model.ActivatableDataModel;
-import io.bitsquare.trade.Tradable;
+import io.bitsquare.trade.TradableIndexEntry;
 import io.bitsquare.trade.closed.ClosedTradableManager;
 import io.bitsquare.trade.offer.Offer;
 import javafx.collections.FXCollections;
@@ -32,7 +32,7 @@ class ClosedTradesDataModel extends ActivatableDataModel {
     private final ClosedTradableManager closedTradableManager;
 
     private final ObservableList<ClosedTradableListItem> list = FXCollections.observableArrayList();
-    private final ListChangeListener<Tradable> tradesListChangeListener;
+    private final ListChangeListener<TradableIndexEntry> tradesListChangeListener;
 
     @Inject
     public ClosedTradesDataModel(ClosedTradableManager closedTradableManager) {
@@ -63,10 +63,12 @@ class ClosedTradesDataModel extends ActivatableDataModel {
     private void applyList() {
         list.clear();
 
-        list.addAll(closedTradableManager.getClosedTrades().stream().map(ClosedTradableListItem::new).collect(Collectors.toList()));
+        list.addAll(closedTradableManager.getClosedTrades().stream()
+                .map(indexEntry -> new ClosedTradableListItem(indexEntry, closedTradableManager))
+                .collect(Collectors.toList()));
 
         // we sort by date, earliest first
-        list.sort((o1, o2) -> o2.getTradable().getDate().compareTo(o1.getTradable().getDate()));
+        list.sort((o1, o2) -> o2.getIndexEntry().getDate().compareTo(o1.getIndexEntry().getDate()));
     }
 
 }
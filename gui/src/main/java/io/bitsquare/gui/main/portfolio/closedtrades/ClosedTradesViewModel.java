@@ -71,7 +71,7 @@ class ClosedTradesViewModel extends ActivatableWithDataModel<ClosedTradesDataMod
     }
 
     String getDate(ClosedTradableListItem item) {
-        return formatter.formatDateTime(item.getTradable().getDate());
+        return formatter.formatDateTime(item.getIndexEntry().getDate());
     }
 
     String getState(ClosedTradableListItem item) {
@@ -19,7 +19,7 @@ package io.bitsquare.gui.main.portfolio.failedtrades;
 
 import com.google.inject.Inject;
 import io.bitsquare.gui.common.model.ActivatableDataModel;
-import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.TradableIndexEntry;
 import io.bitsquare.trade.failed.FailedTradesManager;
 import io.bitsquare.trade.offer.Offer;
 import javafx.collections.FXCollections;
@@ -33,7 +33,7 @@ class FailedTradesDataModel extends ActivatableDataModel {
     private final FailedTradesManager failedTradesManager;
 
     private final ObservableList<FailedTradesListItem> list = FXCollections.observableArrayList();
-    private final ListChangeListener<Trade> tradesListChangeListener;
+    private final ListChangeListener<TradableIndexEntry> tradesListChangeListener;
 
     @Inject
     public FailedTradesDataModel(FailedTradesManager failedTradesManager) {
@@ -64,10 +64,12 @@ class FailedTradesDataModel extends ActivatableDataModel {
     private void applyList() {
         list.clear();
 
-        list.addAll(failedTradesManager.getFailedTrades().stream().map(FailedTradesListItem::new).collect(Collectors.toList()));
+        list.addAll(failedTradesManager.getFailedTrades().stream()
+                .map(indexEntry -> new FailedTradesListItem(indexEntry, failedTradesManager))
+                .collect(Collectors.toList()));
 
         // we sort by date, earliest first
-        list.sort((o1, o2) -> o2.getTrade().getDate().compareTo(o1.getTrade().getDate()));
+        list.sort((o1, o2) -> o2.getIndexEntry().getDate().compareTo(o1.getIndexEntry().getDate()));
     }
 
 }
@@ -17,20 +17,31 @@
 
 package io.bitsquare.gui.main.portfolio.failedtrades;
 
+import io.bitsquare.trade.TradableIndexEntry;
 import io.bitsquare.trade.Trade;
+import io.bitsquare.trade.failed.FailedTradesManager;
 
 /**
- * We could remove that wrapper if it is not needed for additional UI only fields.
+ * Holds the index entry of the archived trade. The trade itself is loaded when the row gets displayed.
  */
 class FailedTradesListItem {
 
-    private final Trade trade;
+    private final TradableIndexEntry indexEntry;
+    private final FailedTradesManager failedTradesManager;
+    private Trade trade;
 
-    FailedTradesListItem(Trade trade) {
-        this.trade = trade;
+    FailedTradesListItem(TradableIndexEntry indexEntry, FailedTradesManager failedTradesManager) {
+        this.indexEntry = indexEntry;
+        this.failedTradesManager = failedTradesManager;
+    }
+
+    TradableIndexEntry getIndexEntry() {
+        return indexEntry;
     }
 
     Trade getTrade() {
+        if (trade == null)
+            trade = failedTradesManager.getTradeById(indexEntry.getId()).orElse(null);
         return trade;
     }
 }
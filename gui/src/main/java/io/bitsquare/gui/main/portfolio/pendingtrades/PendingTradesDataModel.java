@@ -241,7 +241,7 @@ public class PendingTradesDataModel extends ActivatableDataModel {
     }
 
     private void doOpenDispute(boolean isSupportTicket, Transaction depositTx) {
-        Log.traceCall("depositTx=" + depositTx);
+        Log.traceCall("depositTx={}", depositTx);
         byte[] depositTxSerialized = null;
         byte[] payoutTxSerialized = null;
         String depositTxHashAsString = null;
@@ -17,12 +17,17 @@ import com.msopentech.thali.toronionproxy.FileUtilities;
 import com.msopentech.thali.toronionproxy.OnionProxyContext;
 import com.msopentech.thali.toronionproxy.OsData;
 import com.msopentech.thali.toronionproxy.WriteObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
 
 public class JavaOnionProxyContext extends OnionProxyContext {
+    private static final Logger LOG = LoggerFactory.getLogger(JavaOnionProxyContext.class);
 
     public JavaOnionProxyContext(File workingDirectory) {
         super(workingDirectory);
@@ -51,21 +56,42 @@ public class JavaOnionProxyContext extends OnionProxyContext {
     }
 
     @Override
-    public void installFiles() throws IOException, InterruptedException {
-        super.installFiles();
+    protected void installBundledFiles() throws IOException {
+        super.installBundledFiles();
         switch (OsData.getOsType()) {
             case Windows:
             case Linux32:
             case Linux64:
             case Mac:
-                FileUtilities.extractContentFromZip(getWorkingDirectory(),
+                // Verifies the installation of an earlier start and only writes the files which have changed
+                int numFilesWritten = FileUtilities.extractChangedContentFromZip(getWorkingDirectory(),
                         getAssetOrResourceByName(getPathToTorExecutable() + "tor.zip"));
+                LOG.info("Tor binary verified, " + numFilesWritten + " file(s) installed");
                 break;
             default:
                 throw new RuntimeException("We don't support Tor on this OS yet");
         }
     }
 
+    @Override
+    protected String getBundledFilesVersion() throws IOException {
+        // Size and modification time of the resources are taken from the jar's directory, so nothing gets inflated
+        StringBuilder version = new StringBuilder();
+        for (String fileName : new String[]{geoIpName, geoIpv6Name, getPathToTorExecutable() + "tor.zip"}) {
+            URL url = getClass().getResource("/" + fileName);
+            if (url == null)
+                return null;
+            URLConnection connection = url.openConnection();
+            try {
+                version.append(fileName).append(':').append(connection.getContentLengthLong()).append(':')
+                        .append(connection.getLastModified()).append('\n');
+            } finally {
+                connection.getInputStream().close();
+            }
+        }
+        return version.toString();
+    }
+
     @Override
     protected String getPathToTorExecutable() {
         String path = "native/";
@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -99,6 +100,28 @@ public class FileUtilities {
         FileUtilities.copy(readFrom, out);
     }
 
+    /**
+     * Like cleanInstallOneFile but leaves fileToWriteTo untouched if it has the same content as the stream.
+     *
+     * @param readFrom      Stream to read from, will be closed
+     * @param fileToWriteTo File to write to
+     * @return True if the file was written
+     * @throws java.io.IOException - If any of the file operations fail
+     */
+    public static boolean installOneFileIfChanged(InputStream readFrom, File fileToWriteTo) throws IOException {
+        byte[] content;
+        try {
+            content = readFully(readFrom);
+        } finally {
+            readFrom.close();
+        }
+        if (hasContent(fileToWriteTo, content))
+            return false;
+
+        cleanInstallOneFile(new ByteArrayInputStream(content), fileToWriteTo);
+        return true;
+    }
+
     public static void recursiveFileDelete(File fileOrDirectory) {
         if (fileOrDirectory.isDirectory()) {
             for (File child : fileOrDirectory.listFiles()) {
@@ -151,4 +174,60 @@ public class FileUtilities {
             }
         }
     }
+
+    /**
+     * Like extractContentFromZip but only overwrites the files which do not have the same content as their entry
+     * in the zip file. So an installation from an earlier start is verified instead of written again.
+     *
+     * @param destinationDirectory Directory files are to be extracted to
+     * @param zipFileInputStream   Stream to unzip
+     * @return Number of files written
+     * @throws java.io.IOException - If there are any file errors
+     */
+    public static int extractChangedContentFromZip(File destinationDirectory, InputStream zipFileInputStream)
+            throws IOException {
+        int numFilesWritten = 0;
+        try {
+            ZipInputStream zipInputStream = new ZipInputStream(zipFileInputStream);
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                File file = new File(destinationDirectory, zipEntry.getName());
+                if (zipEntry.isDirectory()) {
+                    if (file.exists() == false && file.mkdirs() == false) {
+                        throw new RuntimeException("Could not create directory " + file);
+                    }
+                } else {
+                    byte[] content = readFully(zipInputStream);
+                    if (hasContent(file, content) == false) {
+                        cleanInstallOneFile(new ByteArrayInputStream(content), file);
+                        numFilesWritten++;
+                    }
+                }
+            }
+        } finally {
+            if (zipFileInputStream != null) {
+                zipFileInputStream.close();
+            }
+        }
+        return numFilesWritten;
+    }
+
+    private static boolean hasContent(File file, byte[] content) throws IOException {
+        // Comparing the length first saves us reading files which have changed anyway
+        return file.isFile() && file.length() == content.length && Arrays.equals(read(file), content);
+    }
+
+    /**
+     * Won't close the input stream when it's done, needed to handle ZipInputStreams
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        while (true) {
+            int read = in.read(buf);
+            if (read == -1) break;
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+    }
 }
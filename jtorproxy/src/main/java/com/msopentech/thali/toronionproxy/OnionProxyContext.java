@@ -13,9 +13,14 @@ See the Apache 2 License for the specific language governing permissions and lim
 
 package com.msopentech.thali.toronionproxy;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -25,14 +30,18 @@ import java.util.Map;
  * as well as managing file locations.
  */
 abstract public class OnionProxyContext {
+    private static final Logger LOG = LoggerFactory.getLogger(OnionProxyContext.class);
+
     protected final static String hiddenserviceDirectoryName = "hiddenservice";
     protected final static String geoIpName = "geoip";
     protected final static String geoIpv6Name = "geoip6";
     protected final static String torrcName = "torrc";
+    protected final static String installedVersionName = "installed_version";
     protected final File workingDirectory;
     protected final File geoIpFile;
     protected final File geoIpv6File;
     protected final File torrcFile;
+    protected final File installedVersionFile;
     protected final File torExecutableFile;
     protected final File cookieFile;
     protected final File hostnameFile;
@@ -42,19 +51,17 @@ abstract public class OnionProxyContext {
         geoIpFile = new File(getWorkingDirectory(), geoIpName);
         geoIpv6File = new File(getWorkingDirectory(), geoIpv6Name);
         torrcFile = new File(getWorkingDirectory(), torrcName);
+        installedVersionFile = new File(getWorkingDirectory(), installedVersionName);
         torExecutableFile = new File(getWorkingDirectory(), getTorExecutableFileName());
         cookieFile = new File(getWorkingDirectory(), ".tor/control_auth_cookie");
         hostnameFile = new File(getWorkingDirectory(), "/" + hiddenserviceDirectoryName + "/hostname");
     }
 
     protected void installFiles() throws IOException, InterruptedException {
-        // This is sleezy but we have cases where an old instance of the Tor OP
-        // needs an extra second to
-        // clean itself up. Without that time we can't do things like delete its
-        // binary (which we currently
-        // do by default, something we hope to fix with
-        // https://github.com/thaliproject/Tor_Onion_Proxy_Library/issues/13
-        Thread.sleep(1000, 0);
+        // We don't sleep here anymore to give an old instance of the Tor OP the time to clean itself up. We only
+        // overwrite the binary if it has changed (see
+        // https://github.com/thaliproject/Tor_Onion_Proxy_Library/issues/13) and after a stop we wait already in
+        // deleteAllFilesButHiddenServices.
         if (getWorkingDirectory().listFiles() != null) {
             for (File f : getWorkingDirectory().listFiles()) {
                 if (f.getAbsolutePath().startsWith(torrcFile.getAbsolutePath())) {
@@ -72,11 +79,50 @@ abstract public class OnionProxyContext {
             throw new RuntimeException("Could not create root directory!");
         }
 
-        FileUtilities.cleanInstallOneFile(getAssetOrResourceByName(geoIpName), geoIpFile);
-        FileUtilities.cleanInstallOneFile(getAssetOrResourceByName(geoIpv6Name), geoIpv6File);
+        // The bundled files are large and rarely change. If the version of an earlier install matches we don't even
+        // read them, otherwise we only write the files which have changed.
+        String bundledFilesVersion = getBundledFilesVersion();
+        if (bundledFilesVersion != null && isInstalled(bundledFilesVersion)) {
+            LOG.info("Bundled files of an earlier start are up to date");
+        } else {
+            if (installedVersionFile.exists() && installedVersionFile.delete() == false)
+                throw new RuntimeException("Could not delete " + installedVersionFile);
+            installBundledFiles();
+            // Only written after a successful install
+            if (bundledFilesVersion != null)
+                FileUtilities.cleanInstallOneFile(
+                        new ByteArrayInputStream(bundledFilesVersion.getBytes(StandardCharsets.UTF_8)),
+                        installedVersionFile);
+        }
         FileUtilities.cleanInstallOneFile(getAssetOrResourceByName(torrcName), torrcFile);
     }
 
+    /**
+     * Installs the files bundled with the app which don't change between starts.
+     */
+    protected void installBundledFiles() throws IOException {
+        if (FileUtilities.installOneFileIfChanged(getAssetOrResourceByName(geoIpName), geoIpFile))
+            LOG.info("Installed " + geoIpName);
+        if (FileUtilities.installOneFileIfChanged(getAssetOrResourceByName(geoIpv6Name), geoIpv6File))
+            LOG.info("Installed " + geoIpv6Name);
+    }
+
+    /**
+     * A version of the files installed by installBundledFiles which changes when one of them changes and is
+     * cheap to get, so we don't have to read the files at every start.
+     *
+     * @return The version or null if not known, then the installed files are verified at every start
+     */
+    protected String getBundledFilesVersion() throws IOException {
+        return null;
+    }
+
+    private boolean isInstalled(String bundledFilesVersion) throws IOException {
+        return installedVersionFile.isFile() && geoIpFile.isFile() && geoIpv6File.isFile() &&
+                torExecutableFile.isFile() &&
+                bundledFilesVersion.equals(new String(FileUtilities.read(installedVersionFile), StandardCharsets.UTF_8));
+    }
+
     /**
      * Sets environment variables and working directory needed for Tor
      *
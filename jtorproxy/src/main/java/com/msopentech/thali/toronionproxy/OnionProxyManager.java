@@ -58,12 +58,16 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
  * This class began life as TorPlugin from the Briar Project
  */
 public abstract class OnionProxyManager {
-    private static final String[] EVENTS = {"CIRC", "WARN", "ERR"};
-    private static final String[] EVENTS_HS = {"EXTENDED", "CIRC", "ORCONN", "INFO", "NOTICE", "WARN", "ERR", "HS_DESC"};
+    // STATUS_CLIENT tells us when bootstrapping has completed
+    private static final String[] EVENTS = {"CIRC", "WARN", "ERR", "STATUS_CLIENT"};
+    private static final String[] EVENTS_HS = {"EXTENDED", "CIRC", "ORCONN", "INFO", "NOTICE", "WARN", "ERR", "HS_DESC",
+            "STATUS_CLIENT"};
 
     private static final String OWNER = "__OwningControllerProcess";
     private static final int COOKIE_TIMEOUT = 3 * 1000; // Milliseconds
     private static final int HOSTNAME_TIMEOUT = 30 * 1000; // Milliseconds
+    // We wait for the bootstrap event, but check the status at that interval in case we missed it
+    private static final int BOOTSTRAP_CHECK_INTERVAL = 5 * 1000; // Milliseconds
     private static final Logger LOG = LoggerFactory.getLogger(OnionProxyManager.class);
 
     protected final OnionProxyContext onionProxyContext;
@@ -82,6 +86,11 @@ public abstract class OnionProxyManager {
 
     private OnionProxyManagerEventHandler eventHandler;
 
+    // Ports of the hidden service we configure while Tor is bootstrapping, 0 if none
+    private int hiddenServicePortToPrepare;
+    private int localPortToPrepare;
+    private WriteObserver preparedHostNameFileObserver;
+
     public OnionProxyManager(OnionProxyContext onionProxyContext) {
         this.onionProxyContext = onionProxyContext;
         eventHandler = new OnionProxyManagerEventHandler();
@@ -91,6 +100,19 @@ public abstract class OnionProxyManager {
         eventHandler.setHStoWatchFor(hs, listener);
     }
 
+    /**
+     * Lets Tor configure the hidden service as soon as it is started, so creating the keys of a new hidden service
+     * and loading them runs in parallel to bootstrapping. A later publishHiddenService with the same ports only
+     * needs to wait for the hostname then. Must be called before startWithRepeat.
+     *
+     * @param hiddenServicePort The port that the hidden service will accept connections on
+     * @param localPort         The local port that the hidden service will relay connections to
+     */
+    public synchronized void prepareHiddenService(int hiddenServicePort, int localPort) {
+        hiddenServicePortToPrepare = hiddenServicePort;
+        localPortToPrepare = localPort;
+    }
+
     /**
      * This is a blocking call that will try to start the Tor OP, connect it to
      * the network and get it to be fully bootstrapped. Sometimes the bootstrap
@@ -117,17 +139,25 @@ public abstract class OnionProxyManager {
                 if (installAndStartTorOp() == false) {
                     return false;
                 }
+                if (hiddenServicePortToPrepare > 0) {
+                    eventHandler.setPreparedHS(hiddenServicePortToPrepare, localPortToPrepare);
+                    preparedHostNameFileObserver = configureHiddenService(hiddenServicePortToPrepare,
+                            localPortToPrepare);
+                }
+                CountDownLatch bootstrapLatch = new CountDownLatch(1);
+                eventHandler.setBootstrapLatch(bootstrapLatch);
                 enableNetwork(true);
 
-                // We will check every second to see if boot strapping has
-                // finally finished
-                for (int secondsWaited = 0; secondsWaited < secondsBeforeTimeOut; ++secondsWaited) {
-                    if (isBootstrapped() == false) {
-                        Thread.sleep(1000, 0);
-                    } else {
-                        LOG.info("Tor has bootstrapped");
-                        return true;
-                    }
+                // We get notified by the STATUS_CLIENT event as soon as boot strapping has finished
+                long deadline = System.currentTimeMillis() + secondsBeforeTimeOut * 1000L;
+                boolean bootstrapped = isBootstrapped();
+                while (bootstrapped == false && System.currentTimeMillis() < deadline) {
+                    long timeout = Math.min(BOOTSTRAP_CHECK_INTERVAL, deadline - System.currentTimeMillis());
+                    bootstrapped = bootstrapLatch.await(timeout, MILLISECONDS) || isBootstrapped();
+                }
+                if (bootstrapped) {
+                    LOG.info("Tor has bootstrapped");
+                    return true;
                 }
 
                 // Bootstrapping isn't over so we need to restart and try again
@@ -197,6 +227,32 @@ public abstract class OnionProxyManager {
             throw new RuntimeException("Service is not running.");
         }
 
+        WriteObserver hostNameFileObserver;
+        if (preparedHostNameFileObserver != null && hiddenServicePort == hiddenServicePortToPrepare &&
+                localPort == localPortToPrepare) {
+            LOG.info("Hidden service was configured at startup");
+            hostNameFileObserver = preparedHostNameFileObserver;
+            preparedHostNameFileObserver = null;
+        } else {
+            hostNameFileObserver = configureHiddenService(hiddenServicePort, localPort);
+        }
+
+        // Wait for the hostname file to be created/updated
+        File hostnameFile = onionProxyContext.getHostNameFile();
+        if (!hostNameFileObserver.poll(HOSTNAME_TIMEOUT, MILLISECONDS)) {
+            FileUtilities.listFilesToLog(hostnameFile.getParentFile());
+            throw new RuntimeException("Wait for hidden service hostname file to be created expired.");
+        }
+
+        // Publish the hidden service's onion hostname in transport properties
+        String hostname = new String(FileUtilities.read(hostnameFile), "UTF-8").trim();
+        LOG.info("Hidden service config has completed.");
+
+        return hostname;
+    }
+
+    // Sets the hidden service config and returns the observer of the hostname file Tor writes when it is done
+    private WriteObserver configureHiddenService(int hiddenServicePort, int localPort) throws IOException {
         List<ConfigEntry> currentHiddenServices = controlConnection.getConf("HiddenServiceOptions");
 
         if ((currentHiddenServices.size() == 1
@@ -246,17 +302,7 @@ public abstract class OnionProxyManager {
                 "HiddenServicePort " + hiddenServicePort + " 127.0.0.1:" + localPort);
         controlConnection.setConf(config);
         controlConnection.saveConf();
-        // Wait for the hostname file to be created/updated
-        if (!hostNameFileObserver.poll(HOSTNAME_TIMEOUT, MILLISECONDS)) {
-            FileUtilities.listFilesToLog(hostnameFile.getParentFile());
-            throw new RuntimeException("Wait for hidden service hostname file to be created expired.");
-        }
-
-        // Publish the hidden service's onion hostname in transport properties
-        String hostname = new String(FileUtilities.read(hostnameFile), "UTF-8").trim();
-        LOG.info("Hidden service config has completed.");
-
-        return hostname;
+        return hostNameFileObserver;
     }
 
     public synchronized boolean isHiddenServiceAvailable(String onionurl) {
@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Logs the data we get from notifications from the Tor OP. This is really just
@@ -47,15 +48,39 @@ public class OnionProxyManagerEventHandler implements EventHandler {
     private HiddenServiceDescriptor hs;
     private HiddenServiceReadyListener listener;
     private boolean hsPublished;
+    // Ports of the hidden service configured at startup and whether its descriptor got uploaded before we knew it
+    private int preparedHiddenServicePort;
+    private int preparedLocalPort;
+    private boolean preparedHsPublished;
+    private volatile CountDownLatch bootstrapLatch;
 
-    public void setHStoWatchFor(HiddenServiceDescriptor hs, HiddenServiceReadyListener listener) {
+    public synchronized void setHStoWatchFor(HiddenServiceDescriptor hs, HiddenServiceReadyListener listener) {
         if (hs == this.hs && hsPublished) {
             listener.onConnect(hs);
             return;
         }
         this.listener = listener;
         this.hs = hs;
-        hsPublished = false;
+        // If the hidden service was configured while bootstrapping, the descriptor might be uploaded already
+        hsPublished = preparedHsPublished && hs.getServicePort() == preparedHiddenServicePort &&
+                hs.getLocalPort() == preparedLocalPort;
+        preparedHsPublished = false;
+        if (hsPublished) {
+            LOG.info("Hidden service " + hs.getFullAddress() + " published.");
+            listener.onConnect(hs);
+        }
+    }
+
+    // Called when the hidden service gets configured before its descriptor is known, see
+    // OnionProxyManager.prepareHiddenService
+    public synchronized void setPreparedHS(int hiddenServicePort, int localPort) {
+        preparedHiddenServicePort = hiddenServicePort;
+        preparedLocalPort = localPort;
+    }
+
+    // Gets counted down when Tor reports that boot strapping has completed
+    public void setBootstrapLatch(CountDownLatch bootstrapLatch) {
+        this.bootstrapLatch = bootstrapLatch;
     }
 
     @Override
@@ -107,16 +132,29 @@ public class OnionProxyManagerEventHandler implements EventHandler {
     public void unrecognized(String type, String msg) {
         final String msg2 = "unrecognized: type: " + type + ", msg: " + msg;
         LOG.trace(msg2);
+        if (type.equals("STATUS_CLIENT"))
+            checkForBootstrap(msg);
     }
 
-    private void checkforHS(String msg) {
-        if (hs == null || hsPublished == true)
+    private synchronized void checkforHS(String msg) {
+        if (hsPublished == true)
             return;
         String pattern = "uploading rendezvous descriptor";
         if (msg.toLowerCase().contains(pattern)) {
-            hsPublished = true;
-            LOG.info("Hidden service " + hs.getFullAddress() + " published.");
-            listener.onConnect(hs);
+            if (hs != null) {
+                hsPublished = true;
+                LOG.info("Hidden service " + hs.getFullAddress() + " published.");
+                listener.onConnect(hs);
+            } else if (preparedHiddenServicePort > 0) {
+                preparedHsPublished = true;
+            }
         }
     }
+
+    // The event looks like: NOTICE BOOTSTRAP PROGRESS=100 TAG=done SUMMARY="Done"
+    private void checkForBootstrap(String msg) {
+        CountDownLatch latch = bootstrapLatch;
+        if (latch != null && msg.contains("BOOTSTRAP") && msg.contains("PROGRESS=100"))
+            latch.countDown();
+    }
 }
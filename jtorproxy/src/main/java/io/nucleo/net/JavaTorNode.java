@@ -12,4 +12,16 @@ public class JavaTorNode extends TorNode<JavaOnionProxyManager, JavaOnionProxyCo
         super(new JavaOnionProxyManager(new JavaOnionProxyContext(torDirectory)));
     }
 
+    // The hidden service gets configured while Tor is bootstrapping, see OnionProxyManager.prepareHiddenService
+    public JavaTorNode(File torDirectory, int localPort, int servicePort) throws IOException {
+        super(prepareHiddenService(new JavaOnionProxyManager(new JavaOnionProxyContext(torDirectory)),
+                localPort, servicePort));
+    }
+
+    private static JavaOnionProxyManager prepareHiddenService(JavaOnionProxyManager mgr, int localPort,
+                                                              int servicePort) {
+        mgr.prepareHiddenService(servicePort, localPort);
+        return mgr;
+    }
+
 }
@@ -21,6 +21,7 @@ import com.google.inject.Singleton;
 import com.google.inject.name.Names;
 import io.bitsquare.app.AppModule;
 import io.bitsquare.app.ProgramArguments;
+import io.bitsquare.p2p.peers.RequestDataManager;
 import io.bitsquare.p2p.seed.SeedNodesRepository;
 import org.springframework.core.env.Environment;
 
@@ -52,5 +53,7 @@ public class P2PModule extends AppModule {
 
         Integer networkId = env.getProperty(ProgramArguments.NETWORK_ID, int.class, 1);
         bind(int.class).annotatedWith(Names.named(ProgramArguments.NETWORK_ID)).toInstance(networkId);
+
+        RequestDataManager.setHedgedRequests(env.getProperty(ProgramArguments.HEDGED_REQUESTS, boolean.class, true));
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import com.google.inject.name.Named;
 import io.bitsquare.app.Log;
 import io.bitsquare.app.ProgramArguments;
 import io.bitsquare.common.ByteArray;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.crypto.CryptoException;
 import io.bitsquare.common.crypto.KeyRing;
@@ -125,7 +126,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         Set<NodeAddress> seedNodeAddresses = seedNodesRepository.getSeedNodeAddresses(useLocalhost, networkId);
         peerManager = new PeerManager(networkNode, seedNodeAddresses, storageDir);
 
-        requestDataManager = new RequestDataManager(networkNode, p2PDataStorage, peerManager, seedNodeAddresses, this);
+        requestDataManager = new RequestDataManager(networkNode, p2PDataStorage, peerManager, seedNodeAddresses,
+                storageDir, this);
 
         peerExchangeManager = new PeerExchangeManager(networkNode, peerManager, seedNodeAddresses);
 
@@ -320,7 +322,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     @Override
     public void onMessage(Message message, Connection connection) {
         if (message instanceof PrefixedSealedAndSignedMessage) {
-            Log.traceCall(message.toString());
+            Log.traceCall("{}", message);
             // Seed nodes don't have set the encryptionService
             if (optionalEncryptionService.isPresent()) {
                 try {
@@ -370,6 +372,14 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     // DirectMessages
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // In case we expect to send a direct message to that peer soon we open the connection in advance.
+    // See NetworkNode.preConnect
+    public void preConnect(NodeAddress peerNodeAddress) {
+        Log.traceCall();
+        if (isBootstrapped())
+            networkNode.preConnect(peerNodeAddress);
+    }
+
     public void sendEncryptedDirectMessage(NodeAddress peerNodeAddress, PubKeyRing pubKeyRing, DirectMessage message,
                                            SendDirectMessageListener sendDirectMessageListener) {
         Log.traceCall();
@@ -458,7 +468,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     public void sendEncryptedMailboxMessage(NodeAddress peersNodeAddress, PubKeyRing peersPubKeyRing,
                                             MailboxMessage message,
                                             SendMailboxMessageListener sendMailboxMessageListener) {
-        Log.traceCall("message " + message);
+        Log.traceCall("message {}", message);
         checkNotNull(peersNodeAddress,
                 "PeerAddress must not be null (sendEncryptedMailboxMessage)");
         checkNotNull(networkNode.getNodeAddress(),
@@ -0,0 +1,30 @@
+package io.bitsquare.p2p.network;
+
+/**
+ * Features of the network protocol which older nodes do not understand. A node advertises the features it supports
+ * with the messages which start a connection (see {@link io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage})
+ * and a connection uses a feature only after the peer has advertised it.
+ * <p>
+ * The capabilities are the bits of an int. Messages of older nodes do not have that field and are read with no
+ * capabilities. A field of a class which older nodes do not know would break the deserialization of the whole message.
+ */
+public class Capabilities {
+    // Compact frames of the MessageCodecRegistry instead of Java serialisation
+    public static final int CODEC = 1;
+    // Ping/Pong for the round trip time and the keep alive checks
+    public static final int PING = 1 << 1;
+
+    private static volatile int supportedCapabilities = CODEC | PING;
+
+    public static int getSupportedCapabilities() {
+        return supportedCapabilities;
+    }
+
+    public static void setSupportedCapabilities(int supportedCapabilities) {
+        Capabilities.supportedCapabilities = supportedCapabilities;
+    }
+
+    public static boolean isSupported(int capabilities, int capability) {
+        return (capabilities & capability) == capability;
+    }
+}
@@ -1,17 +1,22 @@
 package io.bitsquare.p2p.network;
 
-import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.bitsquare.app.Log;
 import io.bitsquare.app.Version;
 import io.bitsquare.common.ByteArrayUtils;
+import io.bitsquare.common.ExecutionService;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.crypto.PrefixedSealedAndSignedMessage;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.Utils;
+import io.bitsquare.p2p.network.codec.MessageCodecRegistry;
+import io.bitsquare.p2p.network.codec.WireFormat;
 import io.bitsquare.p2p.network.messages.CloseConnectionMessage;
+import io.bitsquare.p2p.network.messages.Ping;
+import io.bitsquare.p2p.network.messages.Pong;
 import io.bitsquare.p2p.network.messages.SendersNodeAddressMessage;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
@@ -25,6 +30,7 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.util.Date;
 import java.util.Optional;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.*;
 
@@ -65,12 +71,12 @@ public class Connection implements MessageListener {
     private final ConnectionListener connectionListener;
     private final String portInfo;
     private final String uid = UUID.randomUUID().toString();
-    private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
     // holder of state shared between InputHandler and Connection
     private final SharedModel sharedModel;
 
     // set in init
     private InputHandler inputHandler;
+    private Future<?> inputHandlerFuture;
     private ObjectOutputStream objectOutputStream;
 
     // mutable data, set from other threads but not changed internally.
@@ -81,9 +87,19 @@ public class Connection implements MessageListener {
     // java.util.zip.DataFormatException: invalid literal/lengths set
     // use GZIPInputStream but problems with blocking
     private final boolean useCompression = false;
-    private PeerType peerType;
+    private volatile PeerType peerType;
+    // Switches to CODEC as soon the peer has advertised it or has sent us a codec frame
+    private volatile WireFormat wireFormat = WireFormat.JAVA_SERIALIZATION;
     private final ObjectProperty<NodeAddress> nodeAddressProperty = new SimpleObjectProperty<>();
 
+    // Smoothed round trip time in ms, -1 as long we don't have a sample
+    private volatile long roundTripTime = -1;
+    private volatile long pingNonce;
+    private volatile long pingSentTimeStamp;
+    // Older nodes don't know the Ping message and would close the connection, so we only send a Ping after the peer
+    // has advertised the PING capability or has sent us a Ping or a Pong.
+    private volatile boolean pingSupported;
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -120,14 +136,15 @@ public class Connection implements MessageListener {
             ObjectInputStream objectInputStream = new ObjectInputStream(socket.getInputStream());
 
 
-            // We create a thread for handling inputStream data
+            // The inputStream data is handled on a thread of the network pool
             inputHandler = new InputHandler(sharedModel, objectInputStream, portInfo, this, useCompression);
-            singleThreadExecutor.submit(inputHandler);
-        } catch (IOException e) {
+            inputHandlerFuture = ExecutionService.getExecutor(ExecutionService.Pool.NETWORK).submit(inputHandler);
+        } catch (IOException | RejectedExecutionException e) {
             sharedModel.handleConnectionException(e);
         }
 
         sharedModel.updateLastActivityDate();
+        sharedModel.updateLastReceivedTimeStamp();
 
         // Use Peer as default, in case of other types they will set it as soon as possible.
         peerType = PeerType.PEER;
@@ -135,7 +152,7 @@ public class Connection implements MessageListener {
         if (peersNodeAddress != null)
             setPeersNodeAddress(peersNodeAddress);
 
-        log.trace("\nNew connection created " + this.toString());
+        log.trace("New connection created {}", this);
 
         UserThread.execute(() -> connectionListener.onConnection(this));
     }
@@ -151,25 +168,22 @@ public class Connection implements MessageListener {
         Log.traceCall();
         if (!stopped) {
             try {
-                String peersNodeAddress = peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null";
+                // We log only the type of the message. The message itself can be large, so it gets logged at TRACE.
+                NodeAddress peersNodeAddress = peersNodeAddressOptional.orElse(null);
                 if (message instanceof PrefixedSealedAndSignedMessage && peersNodeAddressOptional.isPresent()) {
                     setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                    log.info("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                    "Sending direct message to peer" +
-                                    "Write object to outputStream to peer: {} (uid={})\nmessage={}" +
-                                    "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                            peersNodeAddress, uid, message);
+                    log.info(">> Sending direct message {} to peer {} (uid={})", message.getClass().getSimpleName(),
+                            peersNodeAddress, uid);
                 } else {
-                    log.info("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                    "Write object to outputStream to peer: {} (uid={})\nmessage={}" +
-                                    "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                            peersNodeAddress, uid, message);
+                    log.info(">> Sending {} to peer {} (uid={})", message.getClass().getSimpleName(), peersNodeAddress, uid);
                 }
+                log.trace("Sent message={}", message);
 
                 Object objectToWrite;
                 //noinspection ConstantConditions
-                if (useCompression) {
+                if (wireFormat == WireFormat.CODEC && MessageCodecRegistry.hasCodec(message)) {
+                    objectToWrite = MessageCodecRegistry.encode(message);
+                } else if (useCompression) {
                     byte[] messageAsBytes = ByteArrayUtils.objectToByteArray(message);
                     // log.trace("Write object uncompressed data size: " + messageAsBytes.length);
                     @SuppressWarnings("UnnecessaryLocalVariable") byte[] compressed = Utils.compress(message);
@@ -195,6 +209,33 @@ public class Connection implements MessageListener {
         }
     }
 
+    /**
+     * Sends a Ping on a network thread. The Pong updates the round trip time and gets passed to the message listeners.
+     *
+     * @return false if the peer does not support Ping or the connection is stopped.
+     */
+    public boolean ping() {
+        if (stopped || !pingSupported)
+            return false;
+
+        long nonce = new Random().nextLong();
+        try {
+            ExecutionService.getExecutor(ExecutionService.Pool.NETWORK).submit(() -> {
+                pingNonce = nonce;
+                pingSentTimeStamp = System.currentTimeMillis();
+                sendMessage(new Ping(nonce));
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Could not send Ping. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public void updateRoundTripTime(long sample) {
+        roundTripTime = roundTripTime < 0 ? sample : (7 * roundTripTime + sample) / 8;
+    }
+
     @SuppressWarnings("unused")
     public void reportIllegalRequest(IllegalRequest illegalRequest) {
         Log.traceCall();
@@ -202,6 +243,40 @@ public class Connection implements MessageListener {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Capabilities, Ping
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from the InputHandler thread. We use only the features both sides support.
+    private void onPeersCapabilities(int peersCapabilities) {
+        int capabilities = peersCapabilities & Capabilities.getSupportedCapabilities();
+        if (Capabilities.isSupported(capabilities, Capabilities.CODEC))
+            setWireFormat(WireFormat.CODEC);
+        if (Capabilities.isSupported(capabilities, Capabilities.PING))
+            pingSupported = true;
+    }
+
+    // Called from the InputHandler thread
+    private void onPing(Ping ping) {
+        pingSupported = true;
+        sendMessage(new Pong(ping.nonce));
+    }
+
+    // Called from the InputHandler thread. Returns true if the Pong is the response to our last Ping.
+    private boolean onPong(Pong pong) {
+        pingSupported = true;
+        if (pingNonce == 0 || pong.requestNonce != pingNonce) {
+            log.debug("Pong does not match our last Ping. We drop it. pong={}", pong);
+            return false;
+        }
+
+        pingNonce = 0;
+        updateRoundTripTime(System.currentTimeMillis() - pingSentTimeStamp);
+        log.trace("Round trip time of connection {} is {} ms", uid, roundTripTime);
+        return true;
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // MessageListener implementation
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -219,22 +294,25 @@ public class Connection implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void setPeerType(PeerType peerType) {
-        Log.traceCall(peerType.toString());
+        Log.traceCall("{}", peerType);
         this.peerType = peerType;
     }
 
+    public void setWireFormat(WireFormat wireFormat) {
+        if (this.wireFormat != wireFormat) {
+            log.debug("Wire format of connection {} changed to {}", uid, wireFormat);
+            this.wireFormat = wireFormat;
+        }
+    }
+
     private synchronized void setPeersNodeAddress(NodeAddress peerNodeAddress) {
-        Log.traceCall(peerNodeAddress.toString());
+        Log.traceCall("{}", peerNodeAddress);
         checkNotNull(peerNodeAddress, "peerAddress must not be null");
         peersNodeAddressOptional = Optional.of(peerNodeAddress);
 
         String peersNodeAddress = getPeersNodeAddressOptional().isPresent() ? getPeersNodeAddressOptional().get().getFullAddress() : "";
         if (this instanceof InboundConnection) {
-            log.info("\n\n############################################################\n" +
-                    "We got the peers node address set.\n" +
-                    "peersNodeAddress= " + peersNodeAddress +
-                    "\nuid=" + getUid() +
-                    "\n############################################################\n");
+            log.info("We got the peers node address set. peersNodeAddress={}, uid={}", peersNodeAddress, getUid());
         }
 
         nodeAddressProperty.set(peerNodeAddress);
@@ -250,7 +328,15 @@ public class Connection implements MessageListener {
     }
 
     public Date getLastActivityDate() {
-        return sharedModel.getLastActivityDate();
+        return new Date(sharedModel.getLastActivityTimeStamp());
+    }
+
+    public long getLastActivityTimeStamp() {
+        return sharedModel.getLastActivityTimeStamp();
+    }
+
+    public long getLastReceivedTimeStamp() {
+        return sharedModel.getLastReceivedTimeStamp();
     }
 
     public String getUid() {
@@ -269,6 +355,29 @@ public class Connection implements MessageListener {
         return peerType;
     }
 
+    /**
+     * @return The smoothed round trip time in ms or -1 if not measured yet.
+     */
+    public long getRoundTripTime() {
+        return roundTripTime;
+    }
+
+    public boolean isPingSupported() {
+        return pingSupported;
+    }
+
+    public boolean isPingPending() {
+        return pingNonce != 0;
+    }
+
+    public long getPingSentTimeStamp() {
+        return pingSentTimeStamp;
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
     public ReadOnlyObjectProperty<NodeAddress> getNodeAddressProperty() {
         return nodeAddressProperty;
     }
@@ -291,42 +400,51 @@ public class Connection implements MessageListener {
     }
 
     private void shutDown(boolean sendCloseConnectionMessage, @Nullable Runnable shutDownCompleteHandler) {
-        Log.traceCall(this.toString());
+        Log.traceCall("{}", this);
         if (!stopped) {
             String peersNodeAddress = peersNodeAddressOptional.isPresent() ? peersNodeAddressOptional.get().toString() : "null";
-            log.info("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
-                    "ShutDown connection:"
-                    + "\npeersNodeAddress=" + peersNodeAddress
-                    + "\nlocalPort/port=" + sharedModel.getSocket().getLocalPort()
-                    + "/" + sharedModel.getSocket().getPort()
-                    + "\nuid=" + uid
-                    + "\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n");
+            log.info("ShutDown connection: peersNodeAddress={}, localPort/port={}/{}, uid={}", peersNodeAddress,
+                    sharedModel.getSocket().getLocalPort(), sharedModel.getSocket().getPort(), uid);
 
-            log.trace("ShutDown connection requested. Connection=" + this.toString());
+            log.trace("ShutDown connection requested. Connection={}", this);
 
+            boolean closeConnectionMessageSubmitted = false;
             if (sendCloseConnectionMessage) {
-                new Thread(() -> {
-                    Thread.currentThread().setName("Connection:SendCloseConnectionMessage-" + this.uid);
-                    Log.traceCall("sendCloseConnectionMessage");
-                    try {
-                        sendMessage(new CloseConnectionMessage());
-                        setStopFlags();
-
-                        Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
-                    } catch (Throwable t) {
-                        log.error(t.getMessage());
-                        t.printStackTrace();
-                    } finally {
-                        UserThread.execute(() -> doShutDown(shutDownCompleteHandler));
-                    }
-                }).start();
-            } else {
+                try {
+                    ExecutionService.getExecutor(ExecutionService.Pool.NETWORK).submit(() -> {
+                        Thread.currentThread().setName("Connection:SendCloseConnectionMessage-" + this.uid);
+                        Log.traceCall("sendCloseConnectionMessage");
+                        try {
+                            sendMessage(new CloseConnectionMessage());
+                            setStopFlags();
+
+                            Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+                        } catch (Throwable t) {
+                            log.error(t.getMessage());
+                            t.printStackTrace();
+                        } finally {
+                            UserThread.execute(() -> doShutDown(shutDownCompleteHandler));
+                        }
+                    });
+                    closeConnectionMessageSubmitted = true;
+                } catch (RejectedExecutionException e) {
+                    log.debug("Could not send CloseConnectionMessage. {}", e.getMessage());
+                }
+            }
+
+            if (!closeConnectionMessageSubmitted) {
                 setStopFlags();
                 doShutDown(shutDownCompleteHandler);
             }
         }
     }
 
+    // The peer did not respond to our Ping. We don't send a CloseConnectionMessage as it would not arrive anyway.
+    void shutDownUnresponsive() {
+        sharedModel.setShutDownReason(ConnectionListener.Reason.TIMEOUT);
+        shutDown(false);
+    }
+
     private void setStopFlags() {
         stopped = true;
         sharedModel.stop();
@@ -351,9 +469,11 @@ public class Connection implements MessageListener {
             log.error("Exception at shutdown. " + e.getMessage());
             e.printStackTrace();
         } finally {
-            MoreExecutors.shutdownAndAwaitTermination(singleThreadExecutor, 500, TimeUnit.MILLISECONDS);
+            // The closed socket ends the blocking read, the interrupt covers the case that the handler is not reading
+            if (inputHandlerFuture != null)
+                inputHandlerFuture.cancel(true);
 
-            log.debug("Connection shutdown complete " + this.toString());
+            log.debug("Connection shutdown complete {}", this);
             // keep UserThread.execute as its not clear if that is called from a non-UserThread
 
             if (shutDownCompleteHandler != null)
@@ -402,6 +522,7 @@ public class Connection implements MessageListener {
                 ", sharedSpace=" + sharedModel.toString() +
                 ", stopped=" + stopped +
                 ", useCompression=" + useCompression +
+                ", wireFormat=" + wireFormat +
                 '}';
     }
 
@@ -422,7 +543,9 @@ public class Connection implements MessageListener {
         private final ConcurrentHashMap<IllegalRequest, Integer> illegalRequests = new ConcurrentHashMap<>();
 
         // mutable
-        private Date lastActivityDate;
+        private volatile long lastActivityTimeStamp;
+        // Only messages from the peer, our own sending does not tell if the peer is still alive
+        private volatile long lastReceivedTimeStamp;
         private volatile boolean stopped;
         private ConnectionListener.Reason shutDownReason;
 
@@ -432,20 +555,31 @@ public class Connection implements MessageListener {
             this.socket = socket;
         }
 
-        public synchronized void updateLastActivityDate() {
+        public void updateLastActivityDate() {
             Log.traceCall();
-            lastActivityDate = new Date();
+            lastActivityTimeStamp = System.currentTimeMillis();
         }
 
-        public synchronized Date getLastActivityDate() {
-            // Log.traceCall();
-            return lastActivityDate;
+        public long getLastActivityTimeStamp() {
+            return lastActivityTimeStamp;
+        }
+
+        public void updateLastReceivedTimeStamp() {
+            lastReceivedTimeStamp = System.currentTimeMillis();
+        }
+
+        public long getLastReceivedTimeStamp() {
+            return lastReceivedTimeStamp;
+        }
+
+        public synchronized void setShutDownReason(ConnectionListener.Reason shutDownReason) {
+            this.shutDownReason = shutDownReason;
         }
 
         public void reportIllegalRequest(IllegalRequest illegalRequest) {
             Log.traceCall();
             log.warn("We got reported an illegal request " + illegalRequest);
-            log.debug("connection={}" + this);
+            log.debug("connection={}", this);
             int violations;
             if (illegalRequests.contains(illegalRequest))
                 violations = illegalRequests.get(illegalRequest);
@@ -460,7 +594,7 @@ public class Connection implements MessageListener {
                         "violations={}\n" +
                         "illegalRequest={}\n" +
                         "illegalRequests={}", violations, illegalRequest, illegalRequests.toString());
-                log.debug("connection={}" + this);
+                log.debug("connection={}", this);
                 shutDown();
             } else {
                 illegalRequests.put(illegalRequest, ++violations);
@@ -468,7 +602,7 @@ public class Connection implements MessageListener {
         }
 
         public void handleConnectionException(Throwable e) {
-            Log.traceCall(e.toString());
+            Log.traceCall("{}", e);
             if (e instanceof SocketException) {
                 if (socket.isClosed())
                     shutDownReason = ConnectionListener.Reason.SOCKET_CLOSED;
@@ -477,7 +611,7 @@ public class Connection implements MessageListener {
             } else if (e instanceof SocketTimeoutException || e instanceof TimeoutException) {
                 shutDownReason = ConnectionListener.Reason.TIMEOUT;
                 log.debug("TimeoutException at socket " + socket.toString());
-                log.debug("connection={}" + this);
+                log.debug("connection={}", this);
             } else if (e instanceof EOFException) {
                 shutDownReason = ConnectionListener.Reason.PEER_DISCONNECTED;
             } else if (e instanceof NoClassDefFoundError || e instanceof ClassNotFoundException) {
@@ -485,7 +619,7 @@ public class Connection implements MessageListener {
             } else {
                 shutDownReason = ConnectionListener.Reason.UNKNOWN;
                 log.warn("Exception at socket " + socket.toString());
-                log.debug("connection={}" + this);
+                log.debug("connection={}", this);
                 e.printStackTrace();
             }
 
@@ -523,7 +657,7 @@ public class Connection implements MessageListener {
             return "SharedSpace{" +
                     ", socket=" + socket +
                     ", illegalRequests=" + illegalRequests +
-                    ", lastActivityDate=" + lastActivityDate +
+                    ", lastActivityDate=" + new Date(lastActivityTimeStamp) +
                     '}';
         }
     }
@@ -571,35 +705,56 @@ public class Connection implements MessageListener {
                 Thread.currentThread().setName("InputHandler-" + portInfo);
                 while (!stopped && !Thread.currentThread().isInterrupted()) {
                     try {
-                        log.trace("InputHandler waiting for incoming messages connection=" + sharedModel.getConnectionInfo());
+                        log.trace("InputHandler waiting for incoming messages connection={}", sharedModel.connection);
                         Object rawInputObject = objectInputStream.readObject();
-                        log.trace("New data arrived at inputHandler.Connection=" + sharedModel.getConnectionInfo());
-
-                        log.info("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                "New data arrived at inputHandler.\nReceived object={}"
-                                + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n", rawInputObject);
-
-                        int size = ByteArrayUtils.objectToByteArray(rawInputObject).length;
-                        if (size > getMaxMsgSize()) {
-                            sharedModel.reportIllegalRequest(IllegalRequest.MaxSizeExceeded);
-                            return;
-                        }
+                        log.trace("New data arrived at inputHandler. Received object={}", rawInputObject);
 
+                        int size;
                         Serializable serializable = null;
-                        if (useCompression) {
-                            if (rawInputObject instanceof byte[]) {
-                                byte[] compressedObjectAsBytes = (byte[]) rawInputObject;
-                                size = compressedObjectAsBytes.length;
-                                //log.trace("Read object compressed data size: " + size);
-                                serializable = Utils.decompress(compressedObjectAsBytes);
-                            } else {
+                        if (rawInputObject instanceof byte[] && MessageCodecRegistry.isFrame((byte[]) rawInputObject)) {
+                            byte[] frame = (byte[]) rawInputObject;
+                            size = frame.length;
+                            if (size > getMaxMsgSize()) {
+                                sharedModel.reportIllegalRequest(IllegalRequest.MaxSizeExceeded);
+                                return;
+                            }
+                            // The networkId field of the decoded message is set by our own version, so we need to 
+                            // check the one of the frame
+                            if (MessageCodecRegistry.getNetworkId(frame) != Version.getNetworkId()) {
+                                sharedModel.reportIllegalRequest(IllegalRequest.WrongNetworkId);
+                                return;
+                            }
+                            try {
+                                serializable = MessageCodecRegistry.decode(frame);
+                            } catch (IOException e) {
+                                log.warn("Decoding codec frame failed. " + e.getMessage());
                                 sharedModel.reportIllegalRequest(IllegalRequest.InvalidDataType);
+                                return;
                             }
+                            // The peer understands codec frames so we use them as well
+                            sharedModel.connection.onPeersCapabilities(Capabilities.CODEC);
                         } else {
-                            if (rawInputObject instanceof Serializable) {
-                                serializable = (Serializable) rawInputObject;
+                            size = ByteArrayUtils.objectToByteArray(rawInputObject).length;
+                            if (size > getMaxMsgSize()) {
+                                sharedModel.reportIllegalRequest(IllegalRequest.MaxSizeExceeded);
+                                return;
+                            }
+
+                            if (useCompression) {
+                                if (rawInputObject instanceof byte[]) {
+                                    byte[] compressedObjectAsBytes = (byte[]) rawInputObject;
+                                    size = compressedObjectAsBytes.length;
+                                    //log.trace("Read object compressed data size: " + size);
+                                    serializable = Utils.decompress(compressedObjectAsBytes);
+                                } else {
+                                    sharedModel.reportIllegalRequest(IllegalRequest.InvalidDataType);
+                                }
                             } else {
-                                sharedModel.reportIllegalRequest(IllegalRequest.InvalidDataType);
+                                if (rawInputObject instanceof Serializable) {
+                                    serializable = (Serializable) rawInputObject;
+                                } else {
+                                    sharedModel.reportIllegalRequest(IllegalRequest.InvalidDataType);
+                                }
                             }
                         }
                         //log.trace("Read object decompressed data size: " + ByteArrayUtils.objectToByteArray(serializable).length);
@@ -621,11 +776,22 @@ public class Connection implements MessageListener {
                         }
 
                         sharedModel.updateLastActivityDate();
+                        sharedModel.updateLastReceivedTimeStamp();
                         Connection connection = sharedModel.connection;
+                        log.info("<< Received {} ({} bytes) on connection uid={}", message.getClass().getSimpleName(), size,
+                                connection.getUid());
+                        if (message instanceof SupportedCapabilitiesMessage)
+                            connection.onPeersCapabilities(((SupportedCapabilitiesMessage) message).getSupportedCapabilities());
                         if (message instanceof CloseConnectionMessage) {
                             log.info("CloseConnectionMessage received on connection {}", connection);
                             stopped = true;
                             sharedModel.shutDown();
+                        } else if (message instanceof Ping) {
+                            if (!stopped)
+                                connection.onPing((Ping) message);
+                        } else if (message instanceof Pong) {
+                            if (!stopped && connection.onPong((Pong) message))
+                                messageListener.onMessage(message, connection);
                         } else if (!stopped) {
                             // First a seed node gets a message form a peer (PreliminaryDataRequest using 
                             // AnonymousMessage interface) which does not has its hidden service 
@@ -0,0 +1,119 @@
+package io.bitsquare.p2p.network;
+
+import io.bitsquare.app.Log;
+import io.bitsquare.common.ExecutionService;
+import io.bitsquare.common.UserThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects dead peers on idle connections.
+ * <p>
+ * If we have not received anything from a peer for IDLE_TIMEOUT we send a Ping. If the peer does not respond within
+ * PONG_TIMEOUT we close the connection. Connections with traffic don't cost anything: the timeouts of all
+ * connections are kept in one timing wheel and a connection only gets checked when its deadline has passed.
+ * <p>
+ * Peers which do not support Ping (see Connection.isPingSupported) are not checked, for them we still rely on the
+ * socket timeout.
+ * <p>
+ * Runs in UserThread.
+ */
+class KeepAliveManager {
+    private static final Logger log = LoggerFactory.getLogger(KeepAliveManager.class);
+
+    private static final long IDLE_TIMEOUT = 30 * 1000;
+    // Tor circuits can be slow, so we are generous with the response time
+    private static final long PONG_TIMEOUT = 30 * 1000;
+    private static final long TICK_DURATION = 1000;
+    private static final int NUM_SLOTS = 128;
+
+    private final TimingWheel<String> timingWheel = new TimingWheel<>(TICK_DURATION, NUM_SLOTS,
+            System.currentTimeMillis());
+    // The hashCode of Connection changes when the peers address gets set, so we use the uid as key
+    private final Map<String, Connection> connectionsByUid = new HashMap<>();
+    private ScheduledFuture<?> tickFuture;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void start() {
+        if (tickFuture == null)
+            tickFuture = ExecutionService.scheduleAtFixedRate(
+                    () -> UserThread.execute(() -> onTick(System.currentTimeMillis())),
+                    TICK_DURATION, TICK_DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    void shutDown() {
+        Log.traceCall();
+        if (tickFuture != null) {
+            tickFuture.cancel(false);
+            tickFuture = null;
+        }
+        timingWheel.clear();
+        connectionsByUid.clear();
+    }
+
+    void add(Connection connection) {
+        connectionsByUid.put(connection.getUid(), connection);
+        timingWheel.schedule(connection.getUid(), connection.getLastReceivedTimeStamp() + IDLE_TIMEOUT);
+    }
+
+    void remove(Connection connection) {
+        connectionsByUid.remove(connection.getUid());
+        timingWheel.cancel(connection.getUid());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Package private for tests
+    void onTick(long now) {
+        for (String uid : timingWheel.advance(now)) {
+            Connection connection = connectionsByUid.get(uid);
+            if (connection != null) {
+                if (connection.isStopped())
+                    connectionsByUid.remove(uid);
+                else
+                    check(connection, now);
+            }
+        }
+    }
+
+    private void check(Connection connection, long now) {
+        String uid = connection.getUid();
+        // A Ping is pending and we have not heard anything from the peer since we sent it
+        if (connection.isPingPending() && connection.getLastReceivedTimeStamp() < connection.getPingSentTimeStamp()) {
+            long pongDeadline = connection.getPingSentTimeStamp() + PONG_TIMEOUT;
+            if (now >= pongDeadline) {
+                log.info("Peer did not respond to our Ping for {} sec. We close the connection {}",
+                        PONG_TIMEOUT / 1000, connection);
+                connectionsByUid.remove(uid);
+                connection.shutDownUnresponsive();
+            } else {
+                timingWheel.schedule(uid, pongDeadline);
+            }
+            return;
+        }
+
+        long idleDeadline = connection.getLastReceivedTimeStamp() + IDLE_TIMEOUT;
+        if (now < idleDeadline) {
+            // We got messages in the meantime
+            timingWheel.schedule(uid, idleDeadline);
+        } else if (connection.ping()) {
+            log.trace("Connection {} is idle. We sent a Ping.", uid);
+            timingWheel.schedule(uid, now + PONG_TIMEOUT);
+        } else {
+            // Peer has not advertised Ping support (yet), we check again later
+            timingWheel.schedule(uid, now + IDLE_TIMEOUT);
+        }
+    }
+}
@@ -55,8 +55,6 @@ public class LocalhostNetworkNode extends NetworkNode {
         if (setupListener != null)
             addSetupListener(setupListener);
 
-        createExecutorService();
-
         //Tor delay simulation
         createTorNode(torNode -> {
             Log.traceCall("torNode created");
@@ -2,8 +2,9 @@ package io.bitsquare.p2p.network;
 
 import com.google.common.util.concurrent.*;
 import io.bitsquare.app.Log;
+import io.bitsquare.common.ExecutionService;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
-import io.bitsquare.common.util.Utilities;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import org.jetbrains.annotations.NotNull;
@@ -15,10 +16,10 @@ import java.io.IOException;
 import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.HashSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -27,14 +28,25 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public abstract class NetworkNode implements MessageListener, ConnectionListener {
     private static final Logger log = LoggerFactory.getLogger(NetworkNode.class);
 
+    // Max. number of pre-connected connections which did not carry a message yet
+    private static final int MAX_PRE_CONNECTIONS = 3;
+    private static final long PRE_CONNECT_IDLE_TIMEOUT_SEC = 120;
+
     final int servicePort;
 
     private final CopyOnWriteArraySet<Connection> inBoundConnections = new CopyOnWriteArraySet<>();
     private final CopyOnWriteArraySet<MessageListener> messageListeners = new CopyOnWriteArraySet<>();
     private final CopyOnWriteArraySet<ConnectionListener> connectionListeners = new CopyOnWriteArraySet<>();
     final CopyOnWriteArraySet<SetupListener> setupListeners = new CopyOnWriteArraySet<>();
-    ListeningExecutorService executorService;
+    // Shared by all nodes, see ExecutionService.Pool.NETWORK
+    final ListeningExecutorService executorService = ExecutionService.getExecutor(ExecutionService.Pool.NETWORK);
     private Server server;
+    private final KeepAliveManager keepAliveManager = new KeepAliveManager();
+    // Idle timers of the pre-connected peers we have not sent a message to yet, the least recently hinted first
+    private final Map<NodeAddress, Timer> preConnectTimers = new LinkedHashMap<>();
+    private final Map<NodeAddress, ListenableFuture<Connection>> preConnectFutures = new HashMap<>();
+    // Pre-connects which got evicted while still connecting. Their connection gets closed once it is established.
+    private final Set<NodeAddress> evictedPreConnects = new HashSet<>();
 
     private volatile boolean shutDownInProgress;
     // accessed from different threads
@@ -48,6 +60,7 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
     NetworkNode(int servicePort) {
         Log.traceCall();
         this.servicePort = servicePort;
+        keepAliveManager.start();
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -57,16 +70,19 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
     abstract public void start(@Nullable SetupListener setupListener);
 
     public SettableFuture<Connection> sendMessage(@NotNull NodeAddress peersNodeAddress, Message message) {
-        Log.traceCall("peerAddress: " + peersNodeAddress + " / message: " + message);
+        Log.traceCall("peerAddress: {} / message: {}", peersNodeAddress, message);
         checkNotNull(peersNodeAddress, "peerAddress must not be null");
+        // A pre-connected connection is in use now, so it does not get closed as idle or evicted
+        stopPreConnectTimer(peersNodeAddress);
+        evictedPreConnects.remove(peersNodeAddress);
 
         Optional<Connection> outboundConnectionOptional = lookupOutboundConnection(peersNodeAddress);
         Connection connection = outboundConnectionOptional.isPresent() ? outboundConnectionOptional.get() : null;
         if (connection != null)
-            log.trace("We have found a connection in outBoundConnections. Connection.uid=" + connection.getUid());
+            log.trace("We have found a connection in outBoundConnections. Connection.uid={}", connection.getUid());
 
         if (connection != null && connection.isStopped()) {
-            log.trace("We have a connection which is already stopped in outBoundConnections. Connection.uid=" + connection.getUid());
+            log.trace("We have a connection which is already stopped in outBoundConnections. Connection.uid={}", connection.getUid());
             outBoundConnections.remove(connection);
             connection = null;
         }
@@ -75,17 +91,37 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
             Optional<Connection> inboundConnectionOptional = lookupInboundConnection(peersNodeAddress);
             if (inboundConnectionOptional.isPresent()) connection = inboundConnectionOptional.get();
             if (connection != null)
-                log.trace("We have found a connection in inBoundConnections. Connection.uid=" + connection.getUid());
+                log.trace("We have found a connection in inBoundConnections. Connection.uid={}", connection.getUid());
         }
 
+        ListenableFuture<Connection> preConnectFuture = preConnectFutures.get(peersNodeAddress);
         if (connection != null) {
             return sendMessage(connection, message);
+        } else if (preConnectFuture != null) {
+            log.trace("A pre-connect to peerAddress {} is in progress. " +
+                    "We send the message when it is completed.", peersNodeAddress);
+            final SettableFuture<Connection> resultFuture = SettableFuture.create();
+            // If the pre-connect has failed we try again with a new connection
+            Runnable sendAfterPreConnect = () -> UserThread.execute(() -> {
+                preConnectFutures.remove(peersNodeAddress, preConnectFuture);
+                Futures.addCallback(sendMessage(peersNodeAddress, message), new FutureCallback<Connection>() {
+                    public void onSuccess(Connection connection) {
+                        resultFuture.set(connection);
+                    }
+
+                    public void onFailure(@NotNull Throwable throwable) {
+                        resultFuture.setException(throwable);
+                    }
+                });
+            });
+            preConnectFuture.addListener(sendAfterPreConnect, MoreExecutors.directExecutor());
+            return resultFuture;
         } else {
             log.trace("We have not found any connection for peerAddress {}. " +
                     "We will create a new outbound connection.", peersNodeAddress);
 
             final SettableFuture<Connection> resultFuture = SettableFuture.create();
-            ListenableFuture<Connection> future = executorService.submit(() -> {
+            ListenableFuture<Connection> future = submit(() -> {
                 Thread.currentThread().setName("NetworkNode:SendMessage-to-" + peersNodeAddress);
                 OutboundConnection outboundConnection = null;
                 try {
@@ -94,13 +130,8 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
                     outboundConnection = new OutboundConnection(socket, NetworkNode.this, NetworkNode.this, peersNodeAddress);
                     outBoundConnections.add(outboundConnection);
 
-                    log.info("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
-                            "NetworkNode created new outbound connection:"
-                            + "\nmyNodeAddress=" + getNodeAddress()
-                            + "\npeersNodeAddress=" + peersNodeAddress
-                            + "\nuid=" + outboundConnection.getUid()
-                            + "\nmessage=" + message
-                            + "\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n");
+                    log.info("NetworkNode created new outbound connection: myNodeAddress={}, peersNodeAddress={}, uid={}, message={}",
+                            getNodeAddress(), peersNodeAddress, outboundConnection.getUid(), message.getClass().getSimpleName());
 
                     // can take a while when using tor
                     outboundConnection.sendMessage(message);
@@ -129,9 +160,9 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
     }
 
     public SettableFuture<Connection> sendMessage(Connection connection, Message message) {
-        Log.traceCall("message: " + message + " to connection: " + connection);
+        Log.traceCall("message: {} to connection: {}", message, connection);
         // connection.sendMessage might take a bit (compression, write to stream), so we use a thread to not block
-        ListenableFuture<Connection> future = executorService.submit(() -> {
+        ListenableFuture<Connection> future = submit(() -> {
             Thread.currentThread().setName("NetworkNode:SendMessage-to-" + connection.getUid());
             connection.sendMessage(message);
             return connection;
@@ -149,6 +180,78 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
         return resultFuture;
     }
 
+    /**
+     * Opens a connection to that peer in advance, so a later sendMessage to it does not need to wait for the
+     * connection setup, which takes several seconds with Tor.
+     * We keep max. MAX_PRE_CONNECTIONS unused pre-connected connections and close them if we have not sent a message
+     * to that peer within PRE_CONNECT_IDLE_TIMEOUT_SEC. If all are in use the least recently hinted one is closed,
+     * as the latest hint is the most likely to be followed by a message (e.g. the offer the user moved the mouse to
+     * last).
+     */
+    public void preConnect(NodeAddress peersNodeAddress) {
+        Log.traceCall("peersNodeAddress={}", peersNodeAddress);
+        if (shutDownInProgress ||
+                getNodeAddress() == null ||
+                peersNodeAddress.equals(getNodeAddress()))
+            return;
+
+        if (preConnectTimers.containsKey(peersNodeAddress)) {
+            // Hinted again, so it becomes the most recently hinted one and its idle time starts again
+            stopPreConnectTimer(peersNodeAddress);
+            startPreConnectTimer(peersNodeAddress);
+            return;
+        }
+
+        if (lookupOutboundConnection(peersNodeAddress).isPresent() ||
+                lookupInboundConnection(peersNodeAddress).isPresent())
+            return;
+
+        if (preConnectTimers.size() >= MAX_PRE_CONNECTIONS) {
+            NodeAddress leastRecentlyHinted = preConnectTimers.keySet().iterator().next();
+            log.debug("We have already {} pre-connected peers. We close the one to {} to pre-connect to {}.",
+                    preConnectTimers.size(), leastRecentlyHinted, peersNodeAddress);
+            closePreConnection(leastRecentlyHinted);
+        }
+
+        startPreConnectTimer(peersNodeAddress);
+        ListenableFuture<Connection> future = submit(() -> {
+            Thread.currentThread().setName("NetworkNode:PreConnect-to-" + peersNodeAddress);
+            // can take a while when using tor
+            Socket socket = createSocket(peersNodeAddress);
+            OutboundConnection outboundConnection = new OutboundConnection(socket, NetworkNode.this, NetworkNode.this, peersNodeAddress);
+            // It is meant for direct messages, so the PeerManager does not close it at peer exchange and for the
+            // connection limit only if we have more than MAX_CONNECTIONS_EXTENDED_2 connections
+            outboundConnection.setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+            outBoundConnections.add(outboundConnection);
+
+            log.info("NetworkNode created new pre-connected outbound connection: myNodeAddress={}, peersNodeAddress={}, uid={}",
+                    getNodeAddress(), peersNodeAddress, outboundConnection.getUid());
+            return outboundConnection;
+        });
+        preConnectFutures.put(peersNodeAddress, future);
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            public void onSuccess(Connection connection) {
+                UserThread.execute(() -> {
+                    preConnectFutures.remove(peersNodeAddress, future);
+                    if (evictedPreConnects.remove(peersNodeAddress)) {
+                        log.debug("Pre-connect to {} got evicted while connecting. We close it.", peersNodeAddress);
+                        connection.shutDown();
+                    }
+                });
+            }
+
+            public void onFailure(@NotNull Throwable throwable) {
+                log.debug("Pre-connect to {} failed. That is expected if the peer is offline. Exception: {}",
+                        peersNodeAddress, throwable.getMessage());
+                UserThread.execute(() -> {
+                    preConnectFutures.remove(peersNodeAddress, future);
+                    evictedPreConnects.remove(peersNodeAddress);
+                    stopPreConnectTimer(peersNodeAddress);
+                });
+            }
+        });
+    }
+
     public Set<Connection> getAllConnections() {
         // Can contain inbound and outbound connections with the same peer node address, 
         // as connection hashcode is using uid and port info
@@ -178,6 +281,11 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
         log.info("Shutdown NetworkNode");
         if (!shutDownInProgress) {
             shutDownInProgress = true;
+            keepAliveManager.shutDown();
+            preConnectTimers.values().stream().forEach(Timer::cancel);
+            preConnectTimers.clear();
+            preConnectFutures.clear();
+            evictedPreConnects.clear();
             if (server != null) {
                 server.shutDown();
                 server = null;
@@ -209,15 +317,19 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
 
     @Override
     public void onConnection(Connection connection) {
-        Log.traceCall("connection=" + connection);
+        Log.traceCall("connection={}", connection);
+        keepAliveManager.add(connection);
         connectionListeners.stream().forEach(e -> e.onConnection(connection));
     }
 
     @Override
     public void onDisconnect(Reason reason, Connection connection) {
-        Log.traceCall("connection = " + connection);
+        Log.traceCall("connection = {}", connection);
         outBoundConnections.remove(connection);
         inBoundConnections.remove(connection);
+        keepAliveManager.remove(connection);
+        if (connection instanceof OutboundConnection)
+            connection.getPeersNodeAddressOptional().ifPresent(this::stopPreConnectTimer);
         connectionListeners.stream().forEach(e -> e.onDisconnect(reason, connection));
     }
 
@@ -279,24 +391,19 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
     // Protected
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    void createExecutorService() {
-        Log.traceCall();
-        executorService = Utilities.getListeningExecutorService("NetworkNode-" + servicePort, 20, 50, 120L);
-    }
-
     void startServer(ServerSocket serverSocket) {
         Log.traceCall();
         ConnectionListener startServerConnectionListener = new ConnectionListener() {
             @Override
             public void onConnection(Connection connection) {
-                Log.traceCall("startServerConnectionListener connection=" + connection);
+                Log.traceCall("startServerConnectionListener connection={}", connection);
                 inBoundConnections.add(connection);
                 NetworkNode.this.onConnection(connection);
             }
 
             @Override
             public void onDisconnect(Reason reason, Connection connection) {
-                Log.traceCall("onDisconnect at incoming connection = " + connection);
+                Log.traceCall("onDisconnect at incoming connection = {}", connection);
                 inBoundConnections.remove(connection);
                 NetworkNode.this.onDisconnect(reason, connection);
             }
@@ -314,17 +421,52 @@ public abstract class NetworkNode implements MessageListener, ConnectionListener
     }
 
     private Optional<Connection> lookupOutboundConnection(NodeAddress peersNodeAddress) {
-        Log.traceCall("search for " + peersNodeAddress.toString() + " / outBoundConnections " + outBoundConnections);
+        Log.traceCall("search for {} / outBoundConnections {}", peersNodeAddress, outBoundConnections);
         return outBoundConnections.stream()
                 .filter(e -> e.getPeersNodeAddressOptional().isPresent() && peersNodeAddress.equals(e.getPeersNodeAddressOptional().get())).findAny();
     }
 
     private Optional<Connection> lookupInboundConnection(NodeAddress peersNodeAddress) {
-        Log.traceCall("search for " + peersNodeAddress.toString() + " / inBoundConnections " + inBoundConnections);
+        Log.traceCall("search for {} / inBoundConnections {}", peersNodeAddress, inBoundConnections);
         return inBoundConnections.stream()
                 .filter(e -> e.getPeersNodeAddressOptional().isPresent() && peersNodeAddress.equals(e.getPeersNodeAddressOptional().get())).findAny();
     }
 
+    private void startPreConnectTimer(NodeAddress peersNodeAddress) {
+        preConnectTimers.put(peersNodeAddress,
+                UserThread.runAfter(() -> onPreConnectTimeout(peersNodeAddress), PRE_CONNECT_IDLE_TIMEOUT_SEC));
+    }
+
+    private void onPreConnectTimeout(NodeAddress peersNodeAddress) {
+        log.info("We have not used the pre-connected connection to {} within {} sec. We close it.",
+                peersNodeAddress, PRE_CONNECT_IDLE_TIMEOUT_SEC);
+        closePreConnection(peersNodeAddress);
+    }
+
+    private void closePreConnection(NodeAddress peersNodeAddress) {
+        stopPreConnectTimer(peersNodeAddress);
+        ListenableFuture<Connection> future = preConnectFutures.get(peersNodeAddress);
+        if (future != null && !future.isDone())
+            evictedPreConnects.add(peersNodeAddress);
+        else
+            lookupOutboundConnection(peersNodeAddress).ifPresent(Connection::shutDown);
+    }
+
+    private void stopPreConnectTimer(NodeAddress peersNodeAddress) {
+        Timer timer = preConnectTimers.remove(peersNodeAddress);
+        if (timer != null)
+            timer.cancel();
+    }
+
+    // If the network pool is exhausted the send fails like any other send, so the caller gets informed.
+    private ListenableFuture<Connection> submit(Callable<Connection> task) {
+        try {
+            return executorService.submit(task);
+        } catch (RejectedExecutionException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
     abstract protected Socket createSocket(NodeAddress peersNodeAddress) throws IOException;
 
     @Nullable
@@ -0,0 +1,112 @@
+package io.bitsquare.p2p.network;
+
+import java.util.*;
+
+/**
+ * Hashed timing wheel for many timeouts with a coarse resolution.
+ * <p>
+ * Scheduling and canceling is O(1) and advancing costs only the entries of the passed slots, so we don't need a
+ * timer per entry. Deadlines further away than one revolution stay in their slot until their round has come.
+ * <p>
+ * Not thread safe.
+ */
+class TimingWheel<K> {
+    private final long tickDuration;
+    private final List<Set<K>> slots;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    // Index of the next tick to process. A tick covers the deadlines from (tick * tickDuration) to the next tick.
+    // The current tick gets processed at each advance, as it can hold deadlines later than now.
+    private long nextTick;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    TimingWheel(long tickDuration, int numSlots, long now) {
+        this.tickDuration = tickDuration;
+        slots = new ArrayList<>(numSlots);
+        for (int i = 0; i < numSlots; i++)
+            slots.add(new LinkedHashSet<>());
+        nextTick = now / tickDuration;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Replaces an earlier deadline of that key
+    void schedule(K key, long deadline) {
+        cancel(key);
+        // Past deadlines fire at the next advance
+        long tick = Math.max(nextTick, deadline / tickDuration);
+        Set<K> slot = getSlot(tick);
+        entries.put(key, new Entry<>(deadline, slot));
+        slot.add(key);
+    }
+
+    void cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry != null)
+            entry.slot.remove(key);
+    }
+
+    /**
+     * @return The keys with a deadline up to now. They are removed from the wheel.
+     */
+    List<K> advance(long now) {
+        List<K> expired = new ArrayList<>();
+        long lastTick = now / tickDuration;
+        // After a long pause (e.g. sleep mode) we don't need to walk more than one revolution
+        if (lastTick - nextTick >= slots.size())
+            nextTick = lastTick - slots.size() + 1;
+
+        for (long tick = nextTick; tick <= lastTick; tick++) {
+            Iterator<K> iterator = getSlot(tick).iterator();
+            while (iterator.hasNext()) {
+                K key = iterator.next();
+                if (entries.get(key).deadline <= now) {
+                    iterator.remove();
+                    entries.remove(key);
+                    expired.add(key);
+                }
+            }
+        }
+        nextTick = Math.max(nextTick, lastTick);
+        return expired;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        slots.stream().forEach(Set::clear);
+        entries.clear();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private Set<K> getSlot(long tick) {
+        return slots.get((int) (tick % slots.size()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Entry
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Entry<K> {
+        final long deadline;
+        final Set<K> slot;
+
+        Entry(long deadline, Set<K> slot) {
+            this.deadline = deadline;
+            this.slot = slot;
+        }
+    }
+}
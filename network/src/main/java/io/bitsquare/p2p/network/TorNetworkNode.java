@@ -3,10 +3,10 @@ package io.bitsquare.p2p.network;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.MoreExecutors;
 import com.msopentech.thali.java.toronionproxy.JavaOnionProxyContext;
 import com.msopentech.thali.java.toronionproxy.JavaOnionProxyManager;
 import io.bitsquare.app.Log;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.util.Utilities;
 import io.bitsquare.p2p.NodeAddress;
@@ -22,7 +22,6 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.net.Socket;
-import java.util.Timer;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -66,10 +65,10 @@ public class TorNetworkNode extends NetworkNode {
         if (setupListener != null)
             addSetupListener(setupListener);
 
-        createExecutorService();
-
+        // Tor configures the hidden service with that port already while it is bootstrapping
+        int localPort = Utils.findFreeSystemPort();
         // Create the tor node (takes about 6 sec.)
-        createTorNode(torDir, torNode -> {
+        createTorNode(torDir, localPort, torNode -> {
             Log.traceCall("torNode created");
             TorNetworkNode.this.torNetworkNode = torNode;
 
@@ -77,7 +76,7 @@ public class TorNetworkNode extends NetworkNode {
 
             // Create Hidden Service (takes about 40 sec.)
             createHiddenService(torNode,
-                    Utils.findFreeSystemPort(),
+                    localPort,
                     servicePort,
                     hiddenServiceDescriptor -> {
                         Log.traceCall("hiddenService created");
@@ -113,21 +112,15 @@ public class TorNetworkNode extends NetworkNode {
 
         shutDownTimeoutTimer = UserThread.runAfter(() -> {
             log.error("A timeout occurred at shutDown");
-            shutDownExecutorService();
+            completeShutDown();
         }, SHUT_DOWN_TIMEOUT, TimeUnit.MILLISECONDS);
 
-        if (executorService != null) {
-            executorService.submit(() -> UserThread.execute(() -> {
-                // We want to stay in UserThread
-                super.shutDown(() -> {
-                    networkNodeShutDownDoneComplete = true;
-                    if (torShutDownComplete)
-                        shutDownExecutorService();
-                });
-            }));
-        } else {
-            log.error("executorService must not be null at shutDown");
-        }
+        // We want to stay in UserThread
+        UserThread.execute(() -> super.shutDown(() -> {
+            networkNodeShutDownDoneComplete = true;
+            if (torShutDownComplete)
+                completeShutDown();
+        }));
         executorService.submit(() -> {
             Utilities.setThreadName("NetworkNode:torNodeShutdown");
             try {
@@ -140,14 +133,14 @@ public class TorNetworkNode extends NetworkNode {
                 UserThread.execute(() -> {
                     torShutDownComplete = true;
                     if (networkNodeShutDownDoneComplete)
-                        shutDownExecutorService();
+                        completeShutDown();
                 });
             } catch (Throwable e) {
                 UserThread.execute(() -> {
                     log.error("Shutdown torNode failed with exception: " + e.getMessage());
                     e.printStackTrace();
                     // We want to switch to UserThread
-                    shutDownExecutorService();
+                    completeShutDown();
                 });
             }
         });
@@ -157,24 +150,12 @@ public class TorNetworkNode extends NetworkNode {
     // shutdown, restart
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void shutDownExecutorService() {
+    // The threads are owned by the ExecutionService, so there is nothing to wait for here. Called on the UserThread.
+    private void completeShutDown() {
         Log.traceCall();
         shutDownTimeoutTimer.cancel();
-        new Thread(() -> {
-            Utilities.setThreadName("NetworkNode:shutDownExecutorService");
-            try {
-                long ts = System.currentTimeMillis();
-                log.debug("Shutdown executorService");
-                MoreExecutors.shutdownAndAwaitTermination(executorService, 500, TimeUnit.MILLISECONDS);
-                log.debug("Shutdown executorService done after " + (System.currentTimeMillis() - ts) + " ms.");
-                log.info("Shutdown completed");
-                shutDownCompleteHandler.run();
-            } catch (Throwable t) {
-                log.error("Shutdown executorService failed with exception: " + t.getMessage());
-                t.printStackTrace();
-                shutDownCompleteHandler.run();
-            }
-        }).start();
+        log.info("Shutdown completed");
+        shutDownCompleteHandler.run();
     }
 
     private void restartTor() {
@@ -197,7 +178,7 @@ public class TorNetworkNode extends NetworkNode {
     // create tor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void createTorNode(final File torDir, final Consumer<TorNode> resultHandler) {
+    private void createTorNode(final File torDir, int localPort, final Consumer<TorNode> resultHandler) {
         Log.traceCall();
         ListenableFuture<TorNode<JavaOnionProxyManager, JavaOnionProxyContext>> future = executorService.submit(() -> {
             Utilities.setThreadName("TorNetworkNode:CreateTorNode");
@@ -206,7 +187,7 @@ public class TorNetworkNode extends NetworkNode {
                 log.trace("Created directory for tor");
             log.info("TorDir = " + torDir.getAbsolutePath());
             log.trace("Create TorNode");
-            TorNode<JavaOnionProxyManager, JavaOnionProxyContext> torNode = new JavaTorNode(torDir);
+            TorNode<JavaOnionProxyManager, JavaOnionProxyContext> torNode = new JavaTorNode(torDir, localPort, servicePort);
             log.info("\n\n############################################################\n" +
                     "TorNode created:" +
                     "\nTook " + (System.currentTimeMillis() - ts) + " ms"
@@ -0,0 +1,89 @@
+package io.bitsquare.p2p.network.codec;
+
+import io.bitsquare.common.ByteArrayUtils;
+import io.bitsquare.p2p.NodeAddress;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Date;
+
+public class CodecInputStream extends DataInputStream {
+
+    public CodecInputStream(ByteArrayInputStream in) {
+        super(in);
+    }
+
+    @Nullable
+    public byte[] readByteArray() throws IOException {
+        int length = readInt();
+        if (length == -1)
+            return null;
+        // We never trust a length field more than the data we actually got
+        if (length < 0 || length > available())
+            throw new MessageCodecException("Invalid length of byte array. length=" + length);
+
+        byte[] bytes = new byte[length];
+        readFully(bytes);
+        return bytes;
+    }
+
+    @Nullable
+    public String readNullableString() throws IOException {
+        return readBoolean() ? readUTF() : null;
+    }
+
+    @Nullable
+    public NodeAddress readNodeAddress() throws IOException {
+        if (readBoolean())
+            return new NodeAddress(readUTF(), readInt());
+        else
+            return null;
+    }
+
+    @Nullable
+    public Date readDate() throws IOException {
+        long time = readLong();
+        return time != -1 ? new Date(time) : null;
+    }
+
+    @Nullable
+    public PublicKey readPublicKey() throws IOException {
+        if (readBoolean()) {
+            String algorithm = readUTF();
+            byte[] encoded = readByteArray();
+            try {
+                return KeyFactory.getInstance(algorithm, "BC").generatePublic(new X509EncodedKeySpec(encoded));
+            } catch (Throwable t) {
+                throw new MessageCodecException("Could not decode public key. " + t.getMessage());
+            }
+        } else {
+            return null;
+        }
+    }
+
+    @Nullable
+    public <T extends Serializable> T readSerializable(Class<T> type) throws IOException {
+        byte[] bytes = readByteArray();
+        if (bytes == null)
+            return null;
+
+        Object object = ByteArrayUtils.byteArrayToObject(bytes);
+        if (!type.isInstance(object))
+            throw new MessageCodecException("Decoded object is not of expected type " + type.getSimpleName());
+
+        return type.cast(object);
+    }
+
+    public int readCollectionSize(int maxSize) throws IOException {
+        int size = readInt();
+        if (size < 0 || size > maxSize)
+            throw new MessageCodecException("Invalid collection size. size=" + size);
+        return size;
+    }
+}
@@ -0,0 +1,60 @@
+package io.bitsquare.p2p.network.codec;
+
+import io.bitsquare.common.ByteArrayUtils;
+import io.bitsquare.p2p.NodeAddress;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.PublicKey;
+import java.util.Date;
+
+public class CodecOutputStream extends DataOutputStream {
+
+    public CodecOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    public void writeByteArray(@Nullable byte[] bytes) throws IOException {
+        if (bytes == null) {
+            writeInt(-1);
+        } else {
+            writeInt(bytes.length);
+            write(bytes);
+        }
+    }
+
+    public void writeNullableString(@Nullable String value) throws IOException {
+        writeBoolean(value != null);
+        if (value != null)
+            writeUTF(value);
+    }
+
+    public void writeNodeAddress(@Nullable NodeAddress nodeAddress) throws IOException {
+        writeBoolean(nodeAddress != null);
+        if (nodeAddress != null) {
+            writeUTF(nodeAddress.hostName);
+            writeInt(nodeAddress.port);
+        }
+    }
+
+    public void writeDate(@Nullable Date date) throws IOException {
+        writeLong(date != null ? date.getTime() : -1);
+    }
+
+    public void writePublicKey(@Nullable PublicKey publicKey) throws IOException {
+        writeBoolean(publicKey != null);
+        if (publicKey != null) {
+            writeUTF(publicKey.getAlgorithm());
+            writeByteArray(publicKey.getEncoded());
+        }
+    }
+
+    // Fallback for nested objects which have no explicit encoding (e.g. offers as payload of protected data, see the
+    // scope in MessageCodecRegistry).
+    public void writeSerializable(@Nullable Serializable serializable) throws IOException {
+        writeByteArray(serializable != null ? ByteArrayUtils.objectToByteArray(serializable) : null);
+    }
+}
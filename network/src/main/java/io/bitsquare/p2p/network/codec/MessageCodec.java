@@ -0,0 +1,20 @@
+package io.bitsquare.p2p.network.codec;
+
+import io.bitsquare.p2p.Message;
+
+import java.io.IOException;
+
+/**
+ * Explicit encoder/decoder for one message type.
+ * The version is written into every frame, so a codec can still decode frames written by an older version of itself
+ * after fields have been added.
+ */
+public interface MessageCodec<T extends Message> {
+    Class<T> getMessageClass();
+
+    int getVersion();
+
+    void encode(T message, CodecOutputStream out) throws IOException;
+
+    T decode(CodecInputStream in, int version) throws IOException;
+}
@@ -0,0 +1,9 @@
+package io.bitsquare.p2p.network.codec;
+
+import java.io.IOException;
+
+public class MessageCodecException extends IOException {
+    public MessageCodecException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,136 @@
+package io.bitsquare.p2p.network.codec;
+
+import io.bitsquare.p2p.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Holds the codecs for all message types which can be sent as compact frames instead of Java serialized objects.
+ * <p>
+ * Frame layout: magic (2 bytes), networkId (int), typeId (short), codec version (byte), payload.
+ * <p>
+ * Messages without a registered codec are still sent with Java serialisation, so codecs can be added type by type.
+ * Older nodes cannot read codec frames, so a connection sends them only after the peer has advertised the
+ * {@link io.bitsquare.p2p.network.Capabilities#CODEC} capability.
+ * <p>
+ * Scope: the codecs cover the envelopes of the network messages, not everything inside them.
+ * <ul>
+ * <li>The payloads of protected data (offers and all other {@link io.bitsquare.p2p.storage.data.ExpirablePayload}s
+ * except mailbox payloads) are still Java serialized inside the frame. Their signature is checked over the hash of
+ * their Java serialized form, so a decoded payload would need to serialize to the very same bytes again.</li>
+ * <li>Trade and dispute messages are Java serialized and encrypted before they are put into a
+ * PrefixedSealedAndSignedMessage. The codec only covers that wrapper. The receiver decrypts and deserializes the
+ * inner message, possibly much later from its mailbox, so its format cannot be negotiated per connection.</li>
+ * </ul>
+ */
+public class MessageCodecRegistry {
+    private static final Logger log = LoggerFactory.getLogger(MessageCodecRegistry.class);
+
+    private static final byte MAGIC_0 = (byte) 0xB5;
+    private static final byte MAGIC_1 = (byte) 0x51;
+    private static final int HEADER_SIZE = 2 + 4 + 2 + 1;
+
+    private static final Map<Class<? extends Message>, Entry> entriesByClass = new ConcurrentHashMap<>();
+    private static final Map<Integer, Entry> entriesByTypeId = new ConcurrentHashMap<>();
+
+    static {
+        NetworkMessageCodecs.registerAll();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Registration
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static <T extends Message> void register(int typeId, MessageCodec<T> codec) {
+        checkArgument(typeId > 0 && typeId <= Short.MAX_VALUE, "typeId out of range. typeId=" + typeId);
+        checkArgument(codec.getVersion() >= 0 && codec.getVersion() <= 0xFF, "codec version out of range");
+        Entry entry = new Entry(typeId, codec);
+        Entry previous = entriesByTypeId.putIfAbsent(typeId, entry);
+        checkArgument(previous == null, "A codec is already registered for typeId " + typeId);
+        entriesByClass.put(codec.getMessageClass(), entry);
+    }
+
+    public static boolean hasCodec(Message message) {
+        return entriesByClass.containsKey(message.getClass());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Encode, decode
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    public static byte[] encode(Message message) throws IOException {
+        Entry entry = entriesByClass.get(message.getClass());
+        if (entry == null)
+            throw new MessageCodecException("No codec registered for " + message.getClass().getSimpleName());
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(256);
+        try (CodecOutputStream out = new CodecOutputStream(byteArrayOutputStream)) {
+            out.writeByte(MAGIC_0);
+            out.writeByte(MAGIC_1);
+            out.writeInt(message.networkId());
+            out.writeShort(entry.typeId);
+            out.writeByte(entry.codec.getVersion());
+            ((MessageCodec<Message>) entry.codec).encode(message, out);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static boolean isFrame(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    public static int getNetworkId(byte[] frame) {
+        checkArgument(isFrame(frame), "data is not a codec frame");
+        return ((frame[2] & 0xFF) << 24) | ((frame[3] & 0xFF) << 16) | ((frame[4] & 0xFF) << 8) | (frame[5] & 0xFF);
+    }
+
+    public static Message decode(byte[] frame) throws IOException {
+        if (!isFrame(frame))
+            throw new MessageCodecException("Data is not a codec frame");
+
+        try (CodecInputStream in = new CodecInputStream(new ByteArrayInputStream(frame))) {
+            in.skipBytes(2 + 4);
+            int typeId = in.readShort();
+            int version = in.readUnsignedByte();
+            Entry entry = entriesByTypeId.get(typeId);
+            if (entry == null)
+                throw new MessageCodecException("No codec registered for typeId " + typeId);
+
+            // New fields are only appended, so a frame of a newer codec version can be read by ignoring the rest.
+            Message message = entry.codec.decode(in, version);
+            if (in.available() > 0)
+                log.debug("Frame of {} has {} unread bytes. That is expected if the peer uses a newer codec version.",
+                        message.getClass().getSimpleName(), in.available());
+            return message;
+        } catch (EOFException e) {
+            throw new MessageCodecException("Frame is truncated");
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Entry
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Entry {
+        final int typeId;
+        final MessageCodec<? extends Message> codec;
+
+        Entry(int typeId, MessageCodec<? extends Message> codec) {
+            this.typeId = typeId;
+            this.codec = codec;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package io.bitsquare.p2p.network.codec;
+
+import io.bitsquare.common.crypto.SealedAndSigned;
+import io.bitsquare.crypto.PrefixedSealedAndSignedMessage;
+import io.bitsquare.p2p.Message;
+import io.bitsquare.p2p.network.messages.CloseConnectionMessage;
+import io.bitsquare.p2p.network.messages.Ping;
+import io.bitsquare.p2p.network.messages.Pong;
+import io.bitsquare.p2p.peers.ReportedPeer;
+import io.bitsquare.p2p.peers.messages.data.DataResponse;
+import io.bitsquare.p2p.peers.messages.data.PreliminaryDataRequest;
+import io.bitsquare.p2p.peers.messages.data.UpdateDataRequest;
+import io.bitsquare.p2p.peers.messages.peers.GetPeersRequest;
+import io.bitsquare.p2p.peers.messages.peers.GetPeersResponse;
+import io.bitsquare.p2p.storage.data.ExpirableMailboxPayload;
+import io.bitsquare.p2p.storage.data.ExpirablePayload;
+import io.bitsquare.p2p.storage.data.ProtectedData;
+import io.bitsquare.p2p.storage.data.ProtectedMailboxData;
+import io.bitsquare.p2p.storage.messages.AddDataMessage;
+import io.bitsquare.p2p.storage.messages.RemoveDataMessage;
+import io.bitsquare.p2p.storage.messages.RemoveMailboxDataMessage;
+
+import java.io.IOException;
+import java.util.HashSet;
+
+/**
+ * Hand written codecs for the messages of the network module.
+ * Type ids must never be reused for another message type.
+ */
+class NetworkMessageCodecs {
+    static final int CLOSE_CONNECTION_MESSAGE = 1;
+    static final int PRELIMINARY_DATA_REQUEST = 2;
+    static final int UPDATE_DATA_REQUEST = 3;
+    static final int DATA_RESPONSE = 4;
+    static final int GET_PEERS_REQUEST = 5;
+    static final int GET_PEERS_RESPONSE = 6;
+    static final int ADD_DATA_MESSAGE = 7;
+    static final int REMOVE_DATA_MESSAGE = 8;
+    static final int REMOVE_MAILBOX_DATA_MESSAGE = 9;
+    static final int PREFIXED_SEALED_AND_SIGNED_MESSAGE = 10;
+    static final int PING = 11;
+    static final int PONG = 12;
+
+    private static final int MAX_COLLECTION_SIZE = 100_000;
+
+    private static final byte PROTECTED_DATA = 0;
+    private static final byte PROTECTED_MAILBOX_DATA = 1;
+    private static final byte SERIALIZED_PAYLOAD = 0;
+    private static final byte MAILBOX_PAYLOAD = 1;
+
+    static void registerAll() {
+        MessageCodecRegistry.register(CLOSE_CONNECTION_MESSAGE, new Codec<CloseConnectionMessage>(CloseConnectionMessage.class) {
+            @Override
+            public void encode(CloseConnectionMessage message, CodecOutputStream out) {
+            }
+
+            @Override
+            public CloseConnectionMessage decode(CodecInputStream in, int version) {
+                return new CloseConnectionMessage();
+            }
+        });
+
+        MessageCodecRegistry.register(PRELIMINARY_DATA_REQUEST, new Codec<PreliminaryDataRequest>(PreliminaryDataRequest.class) {
+            @Override
+            public void encode(PreliminaryDataRequest message, CodecOutputStream out) throws IOException {
+                out.writeLong(message.getNonce());
+                out.writeInt(message.getSupportedCapabilities());
+            }
+
+            @Override
+            public PreliminaryDataRequest decode(CodecInputStream in, int version) throws IOException {
+                return new PreliminaryDataRequest(in.readLong(), in.readInt());
+            }
+        });
+
+        MessageCodecRegistry.register(UPDATE_DATA_REQUEST, new Codec<UpdateDataRequest>(UpdateDataRequest.class) {
+            @Override
+            public void encode(UpdateDataRequest message, CodecOutputStream out) throws IOException {
+                out.writeNodeAddress(message.getSenderNodeAddress());
+                out.writeLong(message.getNonce());
+                out.writeInt(message.getSupportedCapabilities());
+            }
+
+            @Override
+            public UpdateDataRequest decode(CodecInputStream in, int version) throws IOException {
+                return new UpdateDataRequest(in.readNodeAddress(), in.readLong(), in.readInt());
+            }
+        });
+
+        MessageCodecRegistry.register(DATA_RESPONSE, new Codec<DataResponse>(DataResponse.class) {
+            @Override
+            public void encode(DataResponse message, CodecOutputStream out) throws IOException {
+                out.writeInt(message.dataSet.size());
+                for (ProtectedData protectedData : message.dataSet)
+                    writeProtectedData(protectedData, out);
+                out.writeLong(message.requestNonce);
+                out.writeInt(message.getSupportedCapabilities());
+            }
+
+            @Override
+            public DataResponse decode(CodecInputStream in, int version) throws IOException {
+                int size = in.readCollectionSize(MAX_COLLECTION_SIZE);
+                HashSet<ProtectedData> dataSet = new HashSet<>();
+                for (int i = 0; i < size; i++)
+                    dataSet.add(readProtectedData(in));
+                return new DataResponse(dataSet, in.readLong(), in.readInt());
+            }
+        });
+
+        MessageCodecRegistry.register(GET_PEERS_REQUEST, new Codec<GetPeersRequest>(GetPeersRequest.class) {
+            @Override
+            public void encode(GetPeersRequest message, CodecOutputStream out) throws IOException {
+                out.writeNodeAddress(message.getSenderNodeAddress());
+                out.writeLong(message.nonce);
+                writeReportedPeers(message.reportedPeers, out);
+                out.writeInt(message.getSupportedCapabilities());
+            }
+
+            @Override
+            public GetPeersRequest decode(CodecInputStream in, int version) throws IOException {
+                return new GetPeersRequest(in.readNodeAddress(), in.readLong(), readReportedPeers(in), in.readInt());
+            }
+        });
+
+        MessageCodecRegistry.register(GET_PEERS_RESPONSE, new Codec<GetPeersResponse>(GetPeersResponse.class) {
+            @Override
+            public void encode(GetPeersResponse message, CodecOutputStream out) throws IOException {
+                out.writeLong(message.requestNonce);
+                writeReportedPeers(message.reportedPeers, out);
+                out.writeInt(message.getSupportedCapabilities());
+            }
+
+            @Override
+            public GetPeersResponse decode(CodecInputStream in, int version) throws IOException {
+                return new GetPeersResponse(in.readLong(), readReportedPeers(in), in.readInt());
+            }
+        });
+
+        MessageCodecRegistry.register(ADD_DATA_MESSAGE, new Codec<AddDataMessage>(AddDataMessage.class) {
+            @Override
+            public void encode(AddDataMessage message, CodecOutputStream out) throws IOException {
+                writeProtectedData(message.data, out);
+            }
+
+            @Override
+            public AddDataMessage decode(CodecInputStream in, int version) throws IOException {
+                return new AddDataMessage(readProtectedData(in));
+            }
+        });
+
+        MessageCodecRegistry.register(REMOVE_DATA_MESSAGE, new Codec<RemoveDataMessage>(RemoveDataMessage.class) {
+            @Override
+            public void encode(RemoveDataMessage message, CodecOutputStream out) throws IOException {
+                writeProtectedData(message.data, out);
+            }
+
+            @Override
+            public RemoveDataMessage decode(CodecInputStream in, int version) throws IOException {
+                return new RemoveDataMessage(readProtectedData(in));
+            }
+        });
+
+        MessageCodecRegistry.register(REMOVE_MAILBOX_DATA_MESSAGE, new Codec<RemoveMailboxDataMessage>(RemoveMailboxDataMessage.class) {
+            @Override
+            public void encode(RemoveMailboxDataMessage message, CodecOutputStream out) throws IOException {
+                writeProtectedData(message.data, out);
+            }
+
+            @Override
+            public RemoveMailboxDataMessage decode(CodecInputStream in, int version) throws IOException {
+                ProtectedData protectedData = readProtectedData(in);
+                if (!(protectedData instanceof ProtectedMailboxData))
+                    throw new MessageCodecException("RemoveMailboxDataMessage must contain a ProtectedMailboxData");
+                return new RemoveMailboxDataMessage((ProtectedMailboxData) protectedData);
+            }
+        });
+
+        MessageCodecRegistry.register(PREFIXED_SEALED_AND_SIGNED_MESSAGE, new Codec<PrefixedSealedAndSignedMessage>(PrefixedSealedAndSignedMessage.class) {
+            @Override
+            public void encode(PrefixedSealedAndSignedMessage message, CodecOutputStream out) throws IOException {
+                writePrefixedSealedAndSignedMessage(message, out);
+            }
+
+            @Override
+            public PrefixedSealedAndSignedMessage decode(CodecInputStream in, int version) throws IOException {
+                return readPrefixedSealedAndSignedMessage(in);
+            }
+        });
+
+        MessageCodecRegistry.register(PING, new Codec<Ping>(Ping.class) {
+            @Override
+            public void encode(Ping message, CodecOutputStream out) throws IOException {
+                out.writeLong(message.nonce);
+            }
+
+            @Override
+            public Ping decode(CodecInputStream in, int version) throws IOException {
+                return new Ping(in.readLong());
+            }
+        });
+
+        MessageCodecRegistry.register(PONG, new Codec<Pong>(Pong.class) {
+            @Override
+            public void encode(Pong message, CodecOutputStream out) throws IOException {
+                out.writeLong(message.requestNonce);
+            }
+
+            @Override
+            public Pong decode(CodecInputStream in, int version) throws IOException {
+                return new Pong(in.readLong());
+            }
+        });
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Nested types
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void writeReportedPeers(HashSet<ReportedPeer> reportedPeers, CodecOutputStream out) throws IOException {
+        out.writeInt(reportedPeers.size());
+        for (ReportedPeer reportedPeer : reportedPeers) {
+            out.writeNodeAddress(reportedPeer.nodeAddress);
+            out.writeDate(reportedPeer.lastActivityDate);
+        }
+    }
+
+    private static HashSet<ReportedPeer> readReportedPeers(CodecInputStream in) throws IOException {
+        int size = in.readCollectionSize(MAX_COLLECTION_SIZE);
+        HashSet<ReportedPeer> reportedPeers = new HashSet<>();
+        for (int i = 0; i < size; i++)
+            reportedPeers.add(new ReportedPeer(in.readNodeAddress(), in.readDate()));
+        return reportedPeers;
+    }
+
+    private static void writeProtectedData(ProtectedData protectedData, CodecOutputStream out) throws IOException {
+        boolean isMailboxData = protectedData instanceof ProtectedMailboxData;
+        out.writeByte(isMailboxData ? PROTECTED_MAILBOX_DATA : PROTECTED_DATA);
+
+        ExpirablePayload payload = protectedData.expirablePayload;
+        if (payload instanceof ExpirableMailboxPayload) {
+            ExpirableMailboxPayload mailboxPayload = (ExpirableMailboxPayload) payload;
+            out.writeByte(MAILBOX_PAYLOAD);
+            writePrefixedSealedAndSignedMessage(mailboxPayload.prefixedSealedAndSignedMessage, out);
+            out.writePublicKey(mailboxPayload.senderStoragePublicKey);
+            out.writePublicKey(mailboxPayload.receiverStoragePublicKey);
+        } else {
+            // The signature covers the hash of the Java serialized payload, so we keep that form
+            out.writeByte(SERIALIZED_PAYLOAD);
+            out.writeSerializable(payload);
+        }
+
+        out.writePublicKey(protectedData.ownerStoragePubKey);
+        out.writeInt(protectedData.sequenceNumber);
+        out.writeByteArray(protectedData.signature);
+        if (isMailboxData)
+            out.writePublicKey(((ProtectedMailboxData) protectedData).receiversPubKey);
+    }
+
+    // ttl and date are transient and set the same way as in ProtectedData.readObject
+    private static ProtectedData readProtectedData(CodecInputStream in) throws IOException {
+        byte dataType = in.readByte();
+        byte payloadType = in.readByte();
+        ExpirablePayload payload;
+        if (payloadType == MAILBOX_PAYLOAD)
+            payload = new ExpirableMailboxPayload(readPrefixedSealedAndSignedMessage(in),
+                    in.readPublicKey(),
+                    in.readPublicKey());
+        else if (payloadType == SERIALIZED_PAYLOAD)
+            payload = in.readSerializable(ExpirablePayload.class);
+        else
+            throw new MessageCodecException("Unknown payload type " + payloadType);
+
+        if (payload == null)
+            throw new MessageCodecException("Payload of protected data must not be null");
+
+        if (dataType == PROTECTED_MAILBOX_DATA) {
+            if (!(payload instanceof ExpirableMailboxPayload))
+                throw new MessageCodecException("ProtectedMailboxData must contain an ExpirableMailboxPayload");
+            return new ProtectedMailboxData((ExpirableMailboxPayload) payload,
+                    payload.getTTL(),
+                    in.readPublicKey(),
+                    in.readInt(),
+                    in.readByteArray(),
+                    in.readPublicKey());
+        } else if (dataType == PROTECTED_DATA) {
+            return new ProtectedData(payload,
+                    payload.getTTL(),
+                    in.readPublicKey(),
+                    in.readInt(),
+                    in.readByteArray());
+        } else {
+            throw new MessageCodecException("Unknown protected data type " + dataType);
+        }
+    }
+
+    private static void writePrefixedSealedAndSignedMessage(PrefixedSealedAndSignedMessage message,
+                                                            CodecOutputStream out) throws IOException {
+        out.writeNodeAddress(message.getSenderNodeAddress());
+        SealedAndSigned sealedAndSigned = message.sealedAndSigned;
+        out.writeByteArray(sealedAndSigned.encryptedSecretKey);
+        out.writeByteArray(sealedAndSigned.encryptedPayloadWithHmac);
+        out.writeByteArray(sealedAndSigned.signature);
+        out.writePublicKey(sealedAndSigned.sigPublicKey);
+        out.writeByteArray(message.addressPrefixHash);
+    }
+
+    private static PrefixedSealedAndSignedMessage readPrefixedSealedAndSignedMessage(CodecInputStream in)
+            throws IOException {
+        return new PrefixedSealedAndSignedMessage(in.readNodeAddress(),
+                new SealedAndSigned(in.readByteArray(), in.readByteArray(), in.readByteArray(), in.readPublicKey()),
+                in.readByteArray());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Codec
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static abstract class Codec<T extends Message> implements MessageCodec<T> {
+        private final Class<T> messageClass;
+
+        Codec(Class<T> messageClass) {
+            this.messageClass = messageClass;
+        }
+
+        @Override
+        public Class<T> getMessageClass() {
+            return messageClass;
+        }
+
+        @Override
+        public int getVersion() {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.bitsquare.p2p.network.codec;
+
+/**
+ * The format used for writing messages to the stream of a connection.
+ * Reading always supports both formats, so a node which has not switched to CODEC yet still understands peers which
+ * have.
+ */
+public enum WireFormat {
+    // Plain Java serialisation of the message object graph. Understood by all nodes.
+    JAVA_SERIALIZATION,
+    // Compact frames written by the registered MessageCodecs. Messages without a codec still use Java serialisation.
+    CODEC
+}
@@ -0,0 +1,10 @@
+package io.bitsquare.p2p.network.messages;
+
+import io.bitsquare.p2p.Message;
+
+/**
+ * Message which tells the receiver the capabilities of the sender (see {@link io.bitsquare.p2p.network.Capabilities}).
+ */
+public interface SupportedCapabilitiesMessage extends Message {
+    int getSupportedCapabilities();
+}
@@ -32,7 +32,7 @@ public class Broadcaster {
     }
 
     public void broadcast(DataBroadcastMessage message, @Nullable NodeAddress sender) {
-        Log.traceCall("Sender " + sender + ". Message " + message.toString());
+        Log.traceCall("Sender {}. Message {}", sender, message);
         Set<Connection> receivers = networkNode.getConfirmedConnections();
         if (!receivers.isEmpty()) {
             log.info("Broadcast message to {} peers. Message: {}", receivers.size(), message);
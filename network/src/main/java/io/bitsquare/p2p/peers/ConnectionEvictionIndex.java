@@ -0,0 +1,169 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.network.Connection;
+import io.bitsquare.p2p.network.InboundConnection;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Keeps the connections ordered by eviction priority: first by priority level, then by the peers score (worst first,
+ * see PeerScore) and last by last activity (oldest first).
+ * <p>
+ * Priority levels:
+ * 0: InboundConnection of type PEER
+ * 1: OutboundConnection of type PEER
+ * 2: All others (SEED_NODE, DIRECT_MSG_PEER)
+ * <p>
+ * Connections only ever move to a higher level (a PEER becomes a SEED_NODE or DIRECT_MSG_PEER) and their last
+ * activity only grows. If only those keys change an entry can only be too early in the order, never too late, so we
+ * don't update the index at each message but check the head entry when we peek it and re-insert it with its current
+ * key if it is stale.
+ * The score can go both ways, so a changed score would break that. The owner has to call onScoreChanged at each
+ * change of a peers score, which re-inserts all connections of that peer at once.
+ * <p>
+ * Not thread safe. Used from the UserThread only.
+ */
+class ConnectionEvictionIndex {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionEvictionIndex.class);
+
+    // Scores are grouped into buckets, so that the last activity decides between peers of about the same score
+    private static final int SCORE_BUCKETS = 10;
+
+    private static final Comparator<Entry> COMPARATOR = Comparator.<Entry>comparingInt(e -> e.level)
+            .thenComparingInt(e -> e.scoreBucket)
+            .thenComparingLong(e -> e.lastActivityTimeStamp)
+            .thenComparing(e -> e.connection.getUid());
+
+    private final TreeSet<Entry> entries = new TreeSet<>(COMPARATOR);
+    // The hashCode of Connection changes when the peers address gets set, so we use the uid as key
+    private final Map<String, Entry> entriesByUid = new HashMap<>();
+    private final ToDoubleFunction<Connection> scoreFunction;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    ConnectionEvictionIndex(ToDoubleFunction<Connection> scoreFunction) {
+        this.scoreFunction = scoreFunction;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static int getLevel(Connection connection) {
+        if (connection.getPeerType() == Connection.PeerType.PEER)
+            return connection instanceof InboundConnection ? 0 : 1;
+        else
+            return 2;
+    }
+
+    void add(Connection connection) {
+        remove(connection);
+        Entry entry = new Entry(connection, getScoreBucket(connection));
+        entries.add(entry);
+        entriesByUid.put(connection.getUid(), entry);
+    }
+
+    // Re-insert all connections of that peer with their current key. We have only a few connections, so we don't keep
+    // a map by address (which can get set after the connection was added).
+    void onScoreChanged(NodeAddress nodeAddress) {
+        new ArrayList<>(entriesByUid.values()).stream()
+                .map(entry -> entry.connection)
+                .filter(connection -> nodeAddress.equals(connection.getPeersNodeAddressOptional().orElse(null)))
+                .forEach(this::add);
+    }
+
+    void remove(Connection connection) {
+        Entry entry = entriesByUid.remove(connection.getUid());
+        if (entry != null)
+            entries.remove(entry);
+    }
+
+    /**
+     * @return The connection which should be evicted first or null if the index is empty. The connection stays in
+     * the index. Stopped connections are dropped from the index on the way.
+     */
+    @Nullable
+    Connection peek() {
+        while (!entries.isEmpty()) {
+            Entry first = entries.first();
+            if (first.connection.isStopped()) {
+                remove(first.connection);
+            } else if (first.isStale()) {
+                log.trace("Re-index stale entry of connection {}", first.connection.getUid());
+                add(first.connection);
+            } else {
+                return first.connection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the connections which should be closed to get down to the limit, in one pass in eviction order.
+     * Connections of level 1 are only removed as long we have more than maxSizeForLevel1 connections, connections of
+     * level 2 only as long we have more than maxSizeForLevel2 connections.
+     *
+     * @return The removed connections in eviction order.
+     */
+    List<Connection> removeSurplus(int limit, int maxSizeForLevel1, int maxSizeForLevel2) {
+        List<Connection> surplus = new ArrayList<>();
+        Connection connection;
+        int size;
+        while ((connection = peek()) != null && (size = size()) > limit) {
+            int level = getLevel(connection);
+            if ((level == 1 && size <= maxSizeForLevel1) || (level == 2 && size <= maxSizeForLevel2))
+                break;
+
+            remove(connection);
+            surplus.add(connection);
+        }
+        return surplus;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+        entriesByUid.clear();
+    }
+
+
+    private int getScoreBucket(Connection connection) {
+        return (int) (scoreFunction.applyAsDouble(connection) * SCORE_BUCKETS);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Entry
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private class Entry {
+        final Connection connection;
+        final int level;
+        final int scoreBucket;
+        final long lastActivityTimeStamp;
+
+        Entry(Connection connection, int scoreBucket) {
+            this.connection = connection;
+            this.level = getLevel(connection);
+            this.scoreBucket = scoreBucket;
+            this.lastActivityTimeStamp = connection.getLastActivityTimeStamp();
+        }
+
+        boolean isStale() {
+            return level != getLevel(connection) || lastActivityTimeStamp != connection.getLastActivityTimeStamp() ||
+                    scoreBucket != getScoreBucket(connection);
+        }
+    }
+}
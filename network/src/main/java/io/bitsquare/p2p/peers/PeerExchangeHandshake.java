@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bitsquare.app.Log;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
@@ -19,9 +20,7 @@ import org.slf4j.LoggerFactory;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.Timer;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -49,6 +48,8 @@ public class PeerExchangeHandshake implements MessageListener {
     private final Listener listener;
     private final long nonce = new Random().nextLong();
     private Timer timeoutTimer;
+    // Set when the request is written to the connection, so the round trip time does not include the connection setup
+    private volatile long requestSentTimeStamp;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -74,13 +75,14 @@ public class PeerExchangeHandshake implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void requestReportedPeers(NodeAddress nodeAddress, List<NodeAddress> remainingNodeAddresses) {
-        Log.traceCall("nodeAddress=" + nodeAddress);
-        Log.traceCall("this=" + this);
+        Log.traceCall("nodeAddress={}", nodeAddress);
+        Log.traceCall("this={}", this);
         checkNotNull(networkNode.getNodeAddress(), "My node address must not be null at requestReportedPeers");
         checkArgument(timeoutTimer == null, "requestData must not be called twice.");
 
         timeoutTimer = UserThread.runAfter(() -> {
                     log.info("timeoutTimer called on " + this);
+                    peerManager.resetPeerExchange(nodeAddress);
                     peerManager.shutDownConnection(nodeAddress);
                     shutDown();
                     listener.onFault("A timeout occurred");
@@ -88,13 +90,14 @@ public class PeerExchangeHandshake implements MessageListener {
                 20, TimeUnit.SECONDS);
 
         GetPeersRequest getPeersRequest = new GetPeersRequest(networkNode.getNodeAddress(), nonce,
-                getReportedPeers(nodeAddress));
+                peerManager.getReportedPeersForExchange(nodeAddress));
         SettableFuture<Connection> future = networkNode.sendMessage(nodeAddress,
                 getPeersRequest);
         Futures.addCallback(future, new FutureCallback<Connection>() {
             @Override
             public void onSuccess(Connection connection) {
                 log.trace("Send " + getPeersRequest + " to " + nodeAddress + " succeeded.");
+                requestSentTimeStamp = System.currentTimeMillis();
             }
 
             @Override
@@ -104,6 +107,7 @@ public class PeerExchangeHandshake implements MessageListener {
                         "Exception: " + throwable.getMessage();
                 log.info(errorMessage);
 
+                peerManager.resetPeerExchange(nodeAddress);
                 peerManager.shutDownConnection(nodeAddress);
                 shutDown();
                 listener.onFault(errorMessage);
@@ -112,11 +116,12 @@ public class PeerExchangeHandshake implements MessageListener {
     }
 
     public void onGetPeersRequest(GetPeersRequest message, final Connection connection) {
-        Log.traceCall("message=" + message);
-        Log.traceCall("this=" + this);
+        Log.traceCall("message={}", message);
+        Log.traceCall("this={}", this);
         checkArgument(timeoutTimer == null, "requestData must not be called twice.");
         timeoutTimer = UserThread.runAfter(() -> {
                     log.info("timeoutTimer called on " + this);
+                    connection.getPeersNodeAddressOptional().ifPresent(peerManager::resetPeerExchange);
                     peerManager.shutDownConnection(connection);
                     shutDown();
                     listener.onFault("A timeout occurred");
@@ -131,9 +136,10 @@ public class PeerExchangeHandshake implements MessageListener {
 
         checkArgument(connection.getPeersNodeAddressOptional().isPresent(),
                 "The peers address must have been already set at the moment");
+        NodeAddress peersNodeAddress = connection.getPeersNodeAddressOptional().get();
         SettableFuture<Connection> future = networkNode.sendMessage(connection,
                 new GetPeersResponse(getPeersRequest.nonce,
-                        getReportedPeers(connection.getPeersNodeAddressOptional().get())));
+                        peerManager.getReportedPeersForExchange(peersNodeAddress)));
         Futures.addCallback(future, new FutureCallback<Connection>() {
             @Override
             public void onSuccess(Connection connection) {
@@ -149,6 +155,7 @@ public class PeerExchangeHandshake implements MessageListener {
                         "Exception: " + throwable.getMessage();
                 log.info(errorMessage);
 
+                peerManager.resetPeerExchange(peersNodeAddress);
                 peerManager.shutDownConnection(connection);
                 shutDown();
                 listener.onFault(errorMessage);
@@ -165,11 +172,13 @@ public class PeerExchangeHandshake implements MessageListener {
     @Override
     public void onMessage(Message message, Connection connection) {
         if (message instanceof GetPeersResponse) {
-            Log.traceCall(message.toString() + " / connection=" + connection);
-            Log.traceCall("this=" + this);
+            Log.traceCall("{} / connection={}", message, connection);
+            Log.traceCall("this={}", this);
             GetPeersResponse getPeersResponse = (GetPeersResponse) message;
             if (getPeersResponse.requestNonce == nonce) {
                 stopTimeoutTimer();
+                if (requestSentTimeStamp > 0)
+                    peerManager.onRoundTripTime(connection, System.currentTimeMillis() - requestSentTimeStamp);
 
                 HashSet<ReportedPeer> reportedPeers = getPeersResponse.reportedPeers;
                 StringBuilder result = new StringBuilder("Received peers:");
@@ -192,15 +201,6 @@ public class PeerExchangeHandshake implements MessageListener {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private HashSet<ReportedPeer> getReportedPeers(NodeAddress receiverNodeAddress) {
-        return new HashSet<>(peerManager.getConnectedAndReportedPeers().stream()
-                .filter(e -> !peerManager.isSeedNode(e) &&
-                                !peerManager.isSelf(e) &&
-                                !e.nodeAddress.equals(receiverNodeAddress)
-                )
-                .collect(Collectors.toSet()));
-    }
-
     private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.cancel();
@@ -1,9 +1,9 @@
 package io.bitsquare.p2p.peers;
 
-import com.google.common.util.concurrent.MoreExecutors;
 import io.bitsquare.app.Log;
+import io.bitsquare.common.ExecutionService;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
-import io.bitsquare.common.util.Utilities;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.network.*;
@@ -12,7 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -25,9 +25,9 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
     private final NetworkNode networkNode;
     private final PeerManager peerManager;
     private final Set<NodeAddress> seedNodeAddresses;
-    private final ScheduledThreadPoolExecutor executor;
     private final Map<NodeAddress, PeerExchangeHandshake> peerExchangeHandshakeMap = new HashMap<>();
     private Timer connectToMorePeersTimer, maintainConnectionsTimer;
+    private ScheduledFuture<?> maintainConnectionsFuture;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -40,7 +40,6 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
         checkArgument(!seedNodeAddresses.isEmpty(), "seedNodeAddresses must not be empty");
         this.seedNodeAddresses = new HashSet<>(seedNodeAddresses);
 
-        executor = Utilities.getScheduledThreadPoolExecutor("PeerExchangeManager", 1, 10, 5);
         networkNode.addMessageListener(this);
     }
 
@@ -51,7 +50,8 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
         stopConnectToMorePeersTimer();
         stopMaintainConnectionsTimer();
         peerExchangeHandshakeMap.values().stream().forEach(PeerExchangeHandshake::shutDown);
-        MoreExecutors.shutdownAndAwaitTermination(executor, 500, TimeUnit.MILLISECONDS);
+        if (maintainConnectionsFuture != null)
+            maintainConnectionsFuture.cancel(false);
     }
 
 
@@ -67,7 +67,9 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
         requestReportedPeers(nodeAddress, remainingNodeAddresses);
 
         int delay = new Random().nextInt(60) + 60 * 3; // 3-4 min
-        executor.scheduleAtFixedRate(() -> UserThread.execute(this::maintainConnections),
+        if (maintainConnectionsFuture != null)
+            maintainConnectionsFuture.cancel(false);
+        maintainConnectionsFuture = ExecutionService.scheduleAtFixedRate(() -> UserThread.execute(this::maintainConnections),
                 delay, delay, TimeUnit.SECONDS);
     }
 
@@ -128,7 +130,7 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private void requestReportedPeers(NodeAddress nodeAddress, List<NodeAddress> remainingNodeAddresses) {
-        Log.traceCall("nodeAddress=" + nodeAddress);
+        Log.traceCall("nodeAddress={}", nodeAddress);
         if (!peerExchangeHandshakeMap.containsKey(nodeAddress)) {
             PeerExchangeHandshake peerExchangeHandshake = new PeerExchangeHandshake(networkNode,
                     peerManager,
@@ -145,6 +147,7 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
                         public void onFault(String errorMessage) {
                             log.trace("PeerExchangeHandshake of outbound connection failed. {} nodeAddress= {}",
                                     errorMessage, nodeAddress);
+                            peerManager.reportFailure(nodeAddress);
 
                             peerExchangeHandshakeMap.remove(nodeAddress);
                             if (!remainingNodeAddresses.isEmpty()) {
@@ -216,8 +219,8 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
 
         if (!peerManager.hasSufficientConnections()) {
             // We create a new list of not connected candidates
-            // 1. reported sorted by most recent lastActivityDate
-            // 2. persisted sorted by most recent lastActivityDate
+            // 1. reported sorted by score and most recent lastActivityDate
+            // 2. persisted sorted by score and most recent lastActivityDate
             // 3. seenNodes
             List<NodeAddress> list = new ArrayList<>(getFilteredAndSortedList(peerManager.getReportedPeers(), new ArrayList<>()));
             list.addAll(getFilteredAndSortedList(peerManager.getPersistedPeers(), list));
@@ -241,16 +244,17 @@ public class PeerExchangeManager implements MessageListener, ConnectionListener
         }
     }
 
-    // sorted by most recent lastActivityDate
-    private List<NodeAddress> getFilteredAndSortedList(Set<ReportedPeer> set, List<NodeAddress> list) {
-        return set.stream()
-                .filter(e -> !list.contains(e.nodeAddress) &&
+    // sorted by score, then by most recent lastActivityDate
+    private List<NodeAddress> getFilteredAndSortedList(Collection<ReportedPeer> reportedPeers, List<NodeAddress> list) {
+        Set<NodeAddress> excluded = new HashSet<>(list);
+        return reportedPeers.stream()
+                .filter(e -> !excluded.contains(e.nodeAddress) &&
                         !peerManager.isSeedNode(e) &&
                         !peerManager.isSelf(e) &&
                         !peerManager.isConfirmed(e))
                 .collect(Collectors.toList())
                 .stream()
-                .sorted((o1, o2) -> o2.lastActivityDate.compareTo(o1.lastActivityDate))
+                .sorted(peerManager::compareByScore)
                 .map(e -> e.nodeAddress)
                 .collect(Collectors.toList());
     }
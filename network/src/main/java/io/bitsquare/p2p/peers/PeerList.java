@@ -0,0 +1,188 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.p2p.NodeAddress;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Reported or persisted peers, indexed by address and ordered by lastActivityDate.
+ * <p>
+ * Lookup, insert, update and removal by address are O(1) or O(log n). The same goes for removing the oldest or a
+ * random peer. So processing a peer exchange costs only the size of the message and not the size of our peer list.
+ * <p>
+ * Each added or updated peer gets a new sequence number, so we can get the peers which changed since a given
+ * sequence number without a scan of the whole list.
+ * <p>
+ * Not thread safe. Used from the UserThread only.
+ */
+class PeerList {
+    // Oldest first, peers without lastActivityDate count as oldest
+    private static final Comparator<Entry> COMPARATOR = Comparator.<Entry>comparingLong(e -> e.getLastActivityTime())
+            .thenComparing(e -> e.peer.nodeAddress.getFullAddress());
+
+    private final Map<NodeAddress, Entry> entriesByAddress = new HashMap<>();
+    private final TreeSet<Entry> entriesByLastActivity = new TreeSet<>(COMPARATOR);
+    private final TreeMap<Long, Entry> entriesBySequence = new TreeMap<>();
+    private long sequence;
+    // For removing a random peer in O(1)
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private final Random random = new Random();
+
+    private final Collection<ReportedPeer> peers = new AbstractCollection<ReportedPeer>() {
+        @Override
+        public Iterator<ReportedPeer> iterator() {
+            Iterator<Entry> iterator = entries.iterator();
+            return new Iterator<ReportedPeer>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public ReportedPeer next() {
+                    return iterator.next().peer;
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof ReportedPeer && PeerList.this.contains(((ReportedPeer) o).nodeAddress);
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    };
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Nullable
+    ReportedPeer get(NodeAddress nodeAddress) {
+        Entry entry = entriesByAddress.get(nodeAddress);
+        return entry != null ? entry.peer : null;
+    }
+
+    boolean contains(NodeAddress nodeAddress) {
+        return entriesByAddress.containsKey(nodeAddress);
+    }
+
+    // Adds the peer or replaces the one with the same address
+    void put(ReportedPeer peer) {
+        Entry entry = entriesByAddress.get(peer.nodeAddress);
+        if (entry != null) {
+            entriesByLastActivity.remove(entry);
+            entriesBySequence.remove(entry.sequence);
+            entry.peer = peer;
+            entry.sequence = ++sequence;
+            entriesByLastActivity.add(entry);
+            entriesBySequence.put(entry.sequence, entry);
+        } else {
+            add(peer);
+        }
+    }
+
+    // Returns false if we have a peer with that address already
+    boolean putIfAbsent(ReportedPeer peer) {
+        if (contains(peer.nodeAddress))
+            return false;
+
+        add(peer);
+        return true;
+    }
+
+    @Nullable
+    ReportedPeer remove(NodeAddress nodeAddress) {
+        Entry entry = entriesByAddress.remove(nodeAddress);
+        if (entry == null)
+            return null;
+
+        entriesByLastActivity.remove(entry);
+        entriesBySequence.remove(entry.sequence);
+        // Swap with the last one so we don't need to shift the list
+        Entry last = entries.remove(entries.size() - 1);
+        if (last != entry) {
+            entries.set(entry.position, last);
+            last.position = entry.position;
+        }
+        return entry.peer;
+    }
+
+    @Nullable
+    ReportedPeer removeOldest() {
+        return entriesByLastActivity.isEmpty() ? null : remove(entriesByLastActivity.first().peer.nodeAddress);
+    }
+
+    @Nullable
+    ReportedPeer removeRandom() {
+        return entries.isEmpty() ? null : remove(entries.get(random.nextInt(entries.size())).peer.nodeAddress);
+    }
+
+    // The sequence number of the last change
+    long getSequence() {
+        return sequence;
+    }
+
+    // Peers added or updated after the given sequence number
+    List<ReportedPeer> getPeersChangedSince(long sequence) {
+        List<ReportedPeer> result = new ArrayList<>();
+        entriesBySequence.tailMap(sequence, false).values().stream().forEach(e -> result.add(e.peer));
+        return result;
+    }
+
+    // Read only view
+    Collection<ReportedPeer> getPeers() {
+        return peers;
+    }
+
+    HashSet<ReportedPeer> toHashSet() {
+        return new HashSet<>(peers);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void add(ReportedPeer peer) {
+        Entry entry = new Entry(peer, entries.size(), ++sequence);
+        entries.add(entry);
+        entriesByAddress.put(peer.nodeAddress, entry);
+        entriesByLastActivity.add(entry);
+        entriesBySequence.put(entry.sequence, entry);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Entry
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Entry {
+        ReportedPeer peer;
+        int position;
+        long sequence;
+
+        Entry(ReportedPeer peer, int position, long sequence) {
+            this.peer = peer;
+            this.position = position;
+            this.sequence = sequence;
+        }
+
+        long getLastActivityTime() {
+            return peer.lastActivityDate != null ? peer.lastActivityDate.getTime() : Long.MIN_VALUE;
+        }
+    }
+}
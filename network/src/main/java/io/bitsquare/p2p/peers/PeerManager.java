@@ -1,10 +1,14 @@
 package io.bitsquare.p2p.peers;
 
 import io.bitsquare.app.Log;
+import io.bitsquare.common.ExecutionService;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.network.*;
+import io.bitsquare.p2p.network.messages.Pong;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 import io.bitsquare.p2p.peers.messages.data.UpdateDataRequest;
 import io.bitsquare.storage.Storage;
 import javafx.beans.value.ChangeListener;
@@ -14,11 +18,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static com.google.common.base.Preconditions.checkArgument;
-
 public class PeerManager implements ConnectionListener, MessageListener {
     private static final Logger log = LoggerFactory.getLogger(PeerManager.class);
 
@@ -36,6 +37,8 @@ public class PeerManager implements ConnectionListener, MessageListener {
         MIN_CONNECTIONS = maxConnections - 4;
         MAX_CONNECTIONS_EXTENDED_1 = MAX_CONNECTIONS + 6;
         MAX_CONNECTIONS_EXTENDED_2 = MAX_CONNECTIONS_EXTENDED_1 + 6;
+        // Each connection keeps a network thread for reading, sending and connecting need some more
+        ExecutionService.ensureMaxThreads(ExecutionService.Pool.NETWORK, 4 * MAX_CONNECTIONS_EXTENDED_2);
     }
 
     static {
@@ -44,6 +47,9 @@ public class PeerManager implements ConnectionListener, MessageListener {
 
     private static final int MAX_REPORTED_PEERS = 1000;
     private static final int MAX_PERSISTED_PEERS = 500;
+    // We collect the changes of the persisted peers of a series of peer exchanges into one save
+    private static final long PERSIST_DELAY_SEC = 5;
+    private static final double DEFAULT_SCORE = new PeerScore().getScore();
 
 
     private final NetworkNode networkNode;
@@ -51,9 +57,17 @@ public class PeerManager implements ConnectionListener, MessageListener {
     @Nullable
     private Storage<HashSet<ReportedPeer>> dbStorage;
 
-    private final HashSet<ReportedPeer> persistedPeers = new HashSet<>();
-    private final Set<ReportedPeer> reportedPeers = new HashSet<>();
+    private final PeerList persistedPeers = new PeerList();
+    private final PeerList reportedPeers = new PeerList();
+    private Timer persistTimer;
     private Timer checkMaxConnectionsTimer;
+    private final ConnectionEvictionIndex evictionIndex = new ConnectionEvictionIndex(this::getScore);
+    private final Map<NodeAddress, PeerScore> peerScoreMap = new HashMap<>();
+    // uid of the connections which are counted in the peer scores
+    private final Set<String> scoredConnections = new HashSet<>();
+    // Sequence number of our reported peers at the last peer exchange with that peer. Cleared at disconnect, so a
+    // new connection gets the full list.
+    private final Map<NodeAddress, Long> exchangedSequenceMap = new HashMap<>();
     private final ChangeListener<NodeAddress> connectionNodeAddressListener;
 
 
@@ -65,6 +79,8 @@ public class PeerManager implements ConnectionListener, MessageListener {
         this.networkNode = networkNode;
         this.seedNodeAddresses = new HashSet<>(seedNodeAddresses);
         networkNode.addConnectionListener(this);
+        networkNode.addMessageListener(this);
+        networkNode.getAllConnections().stream().forEach(evictionIndex::add);
         createDbStorage(storageDir);
 
         connectionNodeAddressListener = (observable, oldValue, newValue) -> {
@@ -84,7 +100,9 @@ public class PeerManager implements ConnectionListener, MessageListener {
             HashSet<ReportedPeer> persistedPeers = dbStorage.initAndGetPersisted("persistedPeers");
             if (persistedPeers != null) {
                 log.info("We have persisted reported peers. persistedPeers.size()=" + persistedPeers.size());
-                this.persistedPeers.addAll(persistedPeers);
+                persistedPeers.stream()
+                        .filter(e -> e.nodeAddress != null)
+                        .forEach(this.persistedPeers::put);
             }
         }
     }
@@ -93,7 +111,14 @@ public class PeerManager implements ConnectionListener, MessageListener {
         Log.traceCall();
 
         networkNode.removeConnectionListener(this);
+        networkNode.removeMessageListener(this);
         stopCheckMaxConnectionsTimer();
+        evictionIndex.clear();
+        if (persistTimer != null) {
+            persistTimer.cancel();
+            persistTimer = null;
+            persistPeers();
+        }
     }
 
 
@@ -104,6 +129,7 @@ public class PeerManager implements ConnectionListener, MessageListener {
     @Override
     public void onConnection(Connection connection) {
         connection.getNodeAddressProperty().addListener(connectionNodeAddressListener);
+        evictionIndex.add(connection);
         Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
         // OutboundConnection always know their peers address
         // A seed node get only InboundConnection from other seed nodes with getData or peer exchange, 
@@ -113,11 +139,20 @@ public class PeerManager implements ConnectionListener, MessageListener {
                 seedNodeAddresses.contains(peersNodeAddressOptional.get())) {
             connection.setPeerType(Connection.PeerType.SEED_NODE);
         }
+        if (peersNodeAddressOptional.isPresent())
+            onPeerConnected(connection);
     }
 
     @Override
     public void onDisconnect(Reason reason, Connection connection) {
         connection.getNodeAddressProperty().removeListener(connectionNodeAddressListener);
+        evictionIndex.remove(connection);
+        if (scoredConnections.remove(connection.getUid())) {
+            NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().get();
+            getPeerScore(nodeAddress).onDisconnect(isFailure(reason));
+            evictionIndex.onScoreChanged(nodeAddress);
+        }
+        connection.getPeersNodeAddressOptional().ifPresent(exchangedSequenceMap::remove);
         //connection.getPeersNodeAddressOptional().ifPresent(this::removePeer);
     }
 
@@ -132,6 +167,18 @@ public class PeerManager implements ConnectionListener, MessageListener {
 
     @Override
     public void onMessage(Message message, Connection connection) {
+        // An InboundConnection gets the peers address with the first SendersNodeAddressMessage
+        if (connection.hasPeersNodeAddress() && !scoredConnections.contains(connection.getUid()))
+            onPeerConnected(connection);
+
+        if (message instanceof Pong)
+            onRoundTripTimeUpdated(connection);
+
+        // At onPeerConnected we might not have known yet that the peer supports Ping
+        if (message instanceof SupportedCapabilitiesMessage && connection.getRoundTripTime() < 0 &&
+                !connection.isPingPending())
+            connection.ping();
+
         // In case a seed node connects to another seed node we get his address at the DataRequest triggered from
         // RequestDataManager.updateDataFromConnectedSeedNode 
         if (message instanceof UpdateDataRequest) {
@@ -143,80 +190,123 @@ public class PeerManager implements ConnectionListener, MessageListener {
     }
 
 
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Peer scores
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public double getScore(NodeAddress nodeAddress) {
+        PeerScore peerScore = peerScoreMap.get(nodeAddress);
+        return peerScore != null ? peerScore.getScore() : DEFAULT_SCORE;
+    }
+
+    public double getScore(Connection connection) {
+        Optional<NodeAddress> peersNodeAddressOptional = connection.getPeersNodeAddressOptional();
+        return peersNodeAddressOptional.isPresent() ? getScore(peersNodeAddressOptional.get()) : DEFAULT_SCORE;
+    }
+
+    // Best peers first: highest score, then most recent lastActivityDate
+    public int compareByScore(ReportedPeer o1, ReportedPeer o2) {
+        int result = Double.compare(getScore(o2.nodeAddress), getScore(o1.nodeAddress));
+        return result != 0 ? result : o2.lastActivityDate.compareTo(o1.lastActivityDate);
+    }
+
+    // A connection attempt or request to that peer failed
+    public void reportFailure(NodeAddress nodeAddress) {
+        getPeerScore(nodeAddress).onFailure();
+        evictionIndex.onScoreChanged(nodeAddress);
+    }
+
+    // We got a round trip time sample from a request/response pair
+    public void onRoundTripTime(Connection connection, long roundTripTime) {
+        connection.updateRoundTripTime(roundTripTime);
+        onRoundTripTimeUpdated(connection);
+    }
+
+    private void onPeerConnected(Connection connection) {
+        scoredConnections.add(connection.getUid());
+        NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().get();
+        getPeerScore(nodeAddress).onConnection();
+        evictionIndex.onScoreChanged(nodeAddress);
+        connection.ping();
+    }
+
+    private void onRoundTripTimeUpdated(Connection connection) {
+        if (connection.hasPeersNodeAddress() && connection.getRoundTripTime() >= 0) {
+            NodeAddress nodeAddress = connection.getPeersNodeAddressOptional().get();
+            getPeerScore(nodeAddress).onRoundTripTime(connection.getRoundTripTime());
+            evictionIndex.onScoreChanged(nodeAddress);
+        }
+    }
+
+    private PeerScore getPeerScore(NodeAddress nodeAddress) {
+        PeerScore peerScore = peerScoreMap.get(nodeAddress);
+        if (peerScore == null) {
+            if (peerScoreMap.size() >= MAX_REPORTED_PEERS)
+                purgePeerScores();
+            peerScore = new PeerScore();
+            peerScoreMap.put(nodeAddress, peerScore);
+        }
+        return peerScore;
+    }
+
+    // We remove the score which was not updated for the longest time, but keep the ones of connected peers
+    private void purgePeerScores() {
+        peerScoreMap.entrySet().stream()
+                .filter(e -> !e.getValue().isConnected())
+                .min((o1, o2) -> Long.compare(o1.getValue().getLastUpdate(), o2.getValue().getLastUpdate()))
+                .ifPresent(e -> peerScoreMap.remove(e.getKey()));
+    }
+
+    private static boolean isFailure(Reason reason) {
+        return reason == Reason.RESET ||
+                reason == Reason.TIMEOUT ||
+                reason == Reason.INCOMPATIBLE_DATA ||
+                reason == Reason.UNKNOWN;
+    }
+
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Check seed node connections
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private boolean checkMaxConnections(int limit) {
+    // We close connections in order of the eviction index (see ConnectionEvictionIndex):
+    // Inbound PEER connections if we exceed the limit, any PEER connection if we exceed MAX_CONNECTIONS_EXTENDED_1
+    // and any connection if we exceed MAX_CONNECTIONS_EXTENDED_2. Within one level the oldest last activity goes
+    // first. All surplus connections are closed in one pass.
+    private void checkMaxConnections(int limit) {
         Log.traceCall();
         stopCheckMaxConnectionsTimer();
         removeSuperfluousSeedNodes();
-        Set<Connection> allConnections = networkNode.getAllConnections();
-        int size = allConnections.size();
+        int size = evictionIndex.size();
         if (size > limit) {
             log.info("We have {} connections open. Our limit is {}", size, limit);
-            log.info("Lets try to remove the inbound connections of type PEER.");
-
-            // Only InboundConnection, and PEER type connections
-            List<Connection> candidates = allConnections.stream()
-                    .filter(e -> e instanceof InboundConnection)
-                    .filter(e -> e.getPeerType() == Connection.PeerType.PEER)
-                    .collect(Collectors.toList());
-
-            if (candidates.size() == 0) {
-                log.info("No candidates found. We go to the next level and check if we exceed our " +
-                        "MAX_CONNECTIONS_NORMAL_PRIORITY limit of {}", MAX_CONNECTIONS_EXTENDED_1);
-                if (size > MAX_CONNECTIONS_EXTENDED_1) {
-                    log.info("Lets try to remove any connection of type PEER.");
-                    // Only PEER type connections
-                    candidates = allConnections.stream()
-                            .filter(e -> e.getPeerType() == Connection.PeerType.PEER)
-                            .collect(Collectors.toList());
-                    if (candidates.size() == 0) {
-                        log.info("No candidates found. We go to the next level and check if we exceed our " +
-                                "MAX_CONNECTIONS_HIGH_PRIORITY limit of {}", MAX_CONNECTIONS_EXTENDED_2);
-                        if (size > MAX_CONNECTIONS_EXTENDED_2) {
-                            log.info("Lets try to remove any connection which is not of type DIRECT_MSG_PEER.");
-                            // All connections
-                            candidates = allConnections.stream()
-                                    .collect(Collectors.toList());
-                        }
-                    }
-                }
-            }
-
-            if (candidates.size() > 0) {
-                candidates.sort((o1, o2) -> o1.getLastActivityDate().compareTo(o2.getLastActivityDate()));
-                log.info("Candidates for shut down=" + candidates);
-                Connection connection = candidates.remove(0);
-                log.info("We are going to shut down the oldest connection with last activity date="
-                        + connection.getLastActivityDate() + " / connection=" + connection);
-                connection.shutDown(() -> checkMaxConnections(limit));
-                return true;
-            } else {
-                log.debug("No candidates found to remove. allConnections=", allConnections);
-                return false;
-            }
+            evictionIndex.removeSurplus(limit, MAX_CONNECTIONS_EXTENDED_1, MAX_CONNECTIONS_EXTENDED_2).stream()
+                    .forEach(connection -> {
+                        log.info("We are going to shut down the oldest connection with last activity date="
+                                + connection.getLastActivityDate() + " / connection=" + connection);
+                        connection.shutDown();
+                    });
+            if (evictionIndex.size() > limit)
+                log.info("No more candidates found to remove at {} connections.", evictionIndex.size());
         } else {
             log.trace("We only have {} connections open and don't need to close any.", size);
-            return false;
         }
     }
 
     private void removeSuperfluousSeedNodes() {
-        Set<Connection> allConnections = networkNode.getAllConnections();
-        if (allConnections.size() > MAX_CONNECTIONS_EXTENDED_1) {
-            List<Connection> candidates = allConnections.stream()
-                    .filter(this::isSeedNode)
+        if (evictionIndex.size() > MAX_CONNECTIONS_EXTENDED_1) {
+            List<Connection> candidates = networkNode.getAllConnections().stream()
+                    .filter(e -> !e.isStopped() && isSeedNode(e))
+                    .sorted((o1, o2) -> Long.compare(o1.getLastActivityTimeStamp(), o2.getLastActivityTimeStamp()))
                     .collect(Collectors.toList());
 
-            if (candidates.size() > 1) {
-                candidates.sort((o1, o2) -> o1.getLastActivityDate().compareTo(o2.getLastActivityDate()));
-                log.info("Number of connections exceeding MAX_CONNECTIONS. Current size=" + candidates.size());
-                Connection connection = candidates.remove(0);
-                log.info("We are going to shut down the oldest connection with last activity date="
+            // We keep the seed node connection with the most recent activity
+            for (int i = 0; i < candidates.size() - 1 && evictionIndex.size() > MAX_CONNECTIONS_EXTENDED_1; i++) {
+                Connection connection = candidates.get(i);
+                log.info("We are going to shut down the oldest seed node connection with last activity date="
                         + connection.getLastActivityDate() + " / connection=" + connection);
-                connection.shutDown(this::removeSuperfluousSeedNodes);
+                evictionIndex.remove(connection);
+                connection.shutDown();
             }
         }
     }
@@ -226,13 +316,8 @@ public class PeerManager implements ConnectionListener, MessageListener {
     // Reported peers
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void removeReportedPeer(ReportedPeer reportedPeer) {
-        reportedPeers.remove(reportedPeer);
-        printReportedPeers();
-    }
-
-    public Set<ReportedPeer> getReportedPeers() {
-        return reportedPeers;
+    public Collection<ReportedPeer> getReportedPeers() {
+        return reportedPeers.getPeers();
     }
 
     public void addToReportedPeers(HashSet<ReportedPeer> reportedPeersToAdd, Connection connection) {
@@ -243,63 +328,50 @@ public class PeerManager implements ConnectionListener, MessageListener {
         if (reportedPeersToAdd.size() > (MAX_REPORTED_PEERS + PeerManager.MIN_CONNECTIONS * 3)) {
             connection.shutDown();
         } else {
-            // In case we have one of the peers already we adjust the lastActivityDate by adjusting the date to the mid 
-            // of the lastActivityDate of our already stored peer and the reported one
-            Map<ReportedPeer, ReportedPeer> reportedPeersMap = reportedPeers.stream()
-                    .collect(Collectors.toMap(e -> e, Function.identity()));
-            HashSet<ReportedPeer> adjustedReportedPeers = new HashSet<>();
-            reportedPeersToAdd.stream()
-                    .filter(e -> e.nodeAddress != null &&
-                            !e.nodeAddress.equals(networkNode.getNodeAddress()) &&
-                            !getConnectedPeers().contains(e))
-                    .forEach(e -> {
-                        if (reportedPeersMap.containsKey(e)) {
-                            if (e.lastActivityDate != null && reportedPeersMap.get(e).lastActivityDate != null) {
-                                long adjustedTime = (e.lastActivityDate.getTime() +
-                                        reportedPeersMap.get(e).lastActivityDate.getTime()) / 2;
-                                adjustedReportedPeers.add(new ReportedPeer(e.nodeAddress,
-                                        new Date(adjustedTime)));
-                            } else if (e.lastActivityDate == null) {
-                                adjustedReportedPeers.add(reportedPeersMap.get(e));
-                            } else if (reportedPeersMap.get(e).lastActivityDate == null) {
-                                adjustedReportedPeers.add(e);
-                            }
-                        } else {
-                            adjustedReportedPeers.add(e);
-                        }
-                    });
+            Set<NodeAddress> connectedNodeAddresses = networkNode.getNodeAddressesOfConfirmedConnections();
+            boolean persistedPeersChanged = false;
+            for (ReportedPeer reportedPeer : reportedPeersToAdd) {
+                if (reportedPeer.nodeAddress == null || isSelf(reportedPeer))
+                    continue;
+
+                if (!connectedNodeAddresses.contains(reportedPeer.nodeAddress)) {
+                    // In case we have one of the peers already we adjust the lastActivityDate by adjusting the date 
+                    // to the mid of the lastActivityDate of our already stored peer and the reported one
+                    // We don't touch peers which did not change, so they are not sent again at the next exchange
+                    ReportedPeer existing = reportedPeers.get(reportedPeer.nodeAddress);
+                    if (existing == null || existing.lastActivityDate == null) {
+                        reportedPeers.put(reportedPeer);
+                    } else if (reportedPeer.lastActivityDate != null) {
+                        Date date = new Date((reportedPeer.lastActivityDate.getTime() +
+                                existing.lastActivityDate.getTime()) / 2);
+                        if (!date.equals(existing.lastActivityDate))
+                            reportedPeers.put(new ReportedPeer(reportedPeer.nodeAddress, date));
+                    }
+                }
 
-            reportedPeers.addAll(adjustedReportedPeers);
+                persistedPeersChanged |= persistedPeers.putIfAbsent(reportedPeer);
+            }
 
-            purgeReportedPeersIfExceeds();
+            persistedPeersChanged |= purgeReportedPeersIfExceeds();
 
-            persistedPeers.addAll(reportedPeersToAdd);
-            persistedPeers.addAll(new HashSet<>(getConnectedPeers()));
+            for (ReportedPeer connectedPeer : getConnectedPeers())
+                persistedPeersChanged |= persistedPeers.putIfAbsent(connectedPeer);
 
             // We remove if we exceeds MAX_PERSISTED_PEERS limit
             int toRemove = persistedPeers.size() - MAX_PERSISTED_PEERS;
             if (toRemove > 0) {
-                int toRemove1 = toRemove / 2;
-                if (toRemove1 > 0) {
-                    // we remove the first half randomly to avoid attack vectors with lastActivityDate
-                    List<ReportedPeer> list = new ArrayList<>(persistedPeers);
-                    for (int i = 0; i < toRemove1; i++) {
-                        persistedPeers.remove(list.get(i));
-                    }
-                    int toRemove2 = toRemove - toRemove1;
-                    if (toRemove2 > 0) {
-                        // now we remove second half with a list sorted by oldest lastActivityDate
-                        list = new ArrayList<>(persistedPeers);
-                        list.sort((o1, o2) -> o1.lastActivityDate.compareTo(o2.lastActivityDate));
-                        for (int i = 0; i < toRemove2; i++) {
-                            persistedPeers.remove(list.get(i));
-                        }
-                    }
-                }
+                // we remove the first half randomly to avoid attack vectors with lastActivityDate
+                int toRemoveRandomly = toRemove / 2;
+                for (int i = 0; i < toRemoveRandomly; i++)
+                    persistedPeers.removeRandom();
+                // the second half by oldest lastActivityDate
+                for (int i = toRemoveRandomly; i < toRemove; i++)
+                    persistedPeers.removeOldest();
+                persistedPeersChanged = true;
             }
 
-            if (dbStorage != null)
-                dbStorage.queueUpForSave(persistedPeers);
+            if (persistedPeersChanged)
+                queueUpPersistedPeersForSave();
         }
 
         printReportedPeers();
@@ -307,11 +379,14 @@ public class PeerManager implements ConnectionListener, MessageListener {
 
     private void printReportedPeers() {
         if (!reportedPeers.isEmpty()) {
-            StringBuilder result = new StringBuilder("\n\n------------------------------------------------------------\n" +
-                    "Reported peers for node " + networkNode.getNodeAddress() + ":");
-            reportedPeers.stream().forEach(e -> result.append("\n").append(e));
-            result.append("\n------------------------------------------------------------\n");
-            log.info(result.toString());
+            log.info("We have {} reported peers and {} persisted peers.", reportedPeers.size(), persistedPeers.size());
+            if (log.isDebugEnabled()) {
+                StringBuilder result = new StringBuilder("\n\n------------------------------------------------------------\n" +
+                        "Reported peers for node " + networkNode.getNodeAddress() + ":");
+                reportedPeers.getPeers().stream().forEach(e -> result.append("\n").append(e));
+                result.append("\n------------------------------------------------------------\n");
+                log.debug(result.toString());
+            }
         }
     }
 
@@ -320,17 +395,21 @@ public class PeerManager implements ConnectionListener, MessageListener {
     //  Persisted peers
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void removeFromPersistedPeers(ReportedPeer reportedPeer) {
-        if (persistedPeers.contains(reportedPeer)) {
-            persistedPeers.remove(reportedPeer);
+    public Collection<ReportedPeer> getPersistedPeers() {
+        return persistedPeers.getPeers();
+    }
 
-            if (dbStorage != null)
-                dbStorage.queueUpForSave(persistedPeers, 5000);
-        }
+    private void queueUpPersistedPeersForSave() {
+        if (dbStorage != null && persistTimer == null)
+            persistTimer = UserThread.runAfter(() -> {
+                persistTimer = null;
+                persistPeers();
+            }, PERSIST_DELAY_SEC);
     }
 
-    public Set<ReportedPeer> getPersistedPeers() {
-        return persistedPeers;
+    private void persistPeers() {
+        if (dbStorage != null)
+            dbStorage.queueUpForSave(persistedPeers.toHashSet());
     }
 
 
@@ -342,12 +421,25 @@ public class PeerManager implements ConnectionListener, MessageListener {
         return networkNode.getNodeAddressesOfConfirmedConnections().size() >= MIN_CONNECTIONS;
     }
 
-    public Set<ReportedPeer> getConnectedAndReportedPeers() {
-        Set<ReportedPeer> result = new HashSet<>(reportedPeers);
+    /**
+     * @return The peers we send to that peer at a peer exchange: our connected peers and the reported peers which
+     * were added or updated since our last exchange with that peer, or all reported peers at the first exchange.
+     */
+    public HashSet<ReportedPeer> getReportedPeersForExchange(NodeAddress receiverNodeAddress) {
+        Long exchangedSequence = exchangedSequenceMap.get(receiverNodeAddress);
+        HashSet<ReportedPeer> result = new HashSet<>(exchangedSequence != null ?
+                reportedPeers.getPeersChangedSince(exchangedSequence) : reportedPeers.getPeers());
         result.addAll(getConnectedPeers());
+        result.removeIf(e -> isSeedNode(e) || isSelf(e) || e.nodeAddress.equals(receiverNodeAddress));
+        exchangedSequenceMap.put(receiverNodeAddress, reportedPeers.getSequence());
         return result;
     }
 
+    // The peer might not have got our last list, so we send the full list next time
+    public void resetPeerExchange(NodeAddress nodeAddress) {
+        exchangedSequenceMap.remove(nodeAddress);
+    }
+
     public boolean isSeedNode(ReportedPeer reportedPeer) {
         return seedNodeAddresses.contains(reportedPeer.nodeAddress);
     }
@@ -394,30 +486,27 @@ public class PeerManager implements ConnectionListener, MessageListener {
     //  Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private void purgeReportedPeersIfExceeds() {
+    // Returns true if persisted peers got removed
+    private boolean purgeReportedPeersIfExceeds() {
         Log.traceCall();
-        int size = getReportedPeers().size();
+        int size = reportedPeers.size();
         if (size > MAX_REPORTED_PEERS) {
             log.trace("We have more then {} reported peers. size={}. " +
                     "We remove random peers from the reported peers list.", MAX_REPORTED_PEERS, size);
-            int diff = size - MAX_REPORTED_PEERS;
-            List<ReportedPeer> list = new ArrayList<>(getReportedPeers());
+            boolean persistedPeersChanged = false;
             // we dont use sorting by lastActivityDate to avoid attack vectors and keep it more random
-            for (int i = 0; i < diff; i++) {
-                ReportedPeer toRemove = getAndRemoveRandomReportedPeer(list);
-                removeReportedPeer(toRemove);
-                removeFromPersistedPeers(toRemove);
+            for (int i = 0; i < size - MAX_REPORTED_PEERS; i++) {
+                ReportedPeer removed = reportedPeers.removeRandom();
+                if (removed != null && persistedPeers.remove(removed.nodeAddress) != null)
+                    persistedPeersChanged = true;
             }
+            return persistedPeersChanged;
         } else {
             log.trace("No need to purge reported peers. We don't have more then {} reported peers yet.", MAX_REPORTED_PEERS);
+            return false;
         }
     }
 
-    private ReportedPeer getAndRemoveRandomReportedPeer(List<ReportedPeer> list) {
-        checkArgument(!list.isEmpty(), "List must not be empty");
-        return list.remove(new Random().nextInt(list.size()));
-    }
-
     private Set<ReportedPeer> getConnectedPeers() {
         // networkNode.getConfirmedConnections includes:
         // filter(connection -> connection.getPeersNodeAddressOptional().isPresent())
@@ -438,7 +527,8 @@ public class PeerManager implements ConnectionListener, MessageListener {
             StringBuilder result = new StringBuilder("\n\n------------------------------------------------------------\n" +
                     "Connected peers for node " + networkNode.getNodeAddress() + ":");
             networkNode.getConfirmedConnections().stream().forEach(e -> result.append("\n")
-                    .append(e.getPeersNodeAddressOptional().get()).append(" ").append(e.getPeerType()));
+                    .append(e.getPeersNodeAddressOptional().get()).append(" ").append(e.getPeerType())
+                    .append(" ").append(peerScoreMap.get(e.getPeersNodeAddressOptional().get())));
             result.append("\n------------------------------------------------------------\n");
             log.info(result.toString());
         }
@@ -0,0 +1,105 @@
+package io.bitsquare.p2p.peers;
+
+/**
+ * What we have seen of a peer: round trip time, failed connections and how long the connections lasted.
+ * <p>
+ * The score is in the range 0 - 1, higher is better. It is the product of
+ * - the success rate of our connections (with a prior of one success and one failure),
+ * - a latency factor of 1 for no latency and 0.5 at 1 sec. round trip time and
+ * - a stability factor from 0.5 (short sessions) to 1 (long sessions).
+ * <p>
+ * The score only changes at events (Pong, failure, disconnect), so it can be used as a sort key.
+ * Not thread safe. Used from the UserThread only.
+ */
+class PeerScore {
+    // Typical round trip time of a Tor circuit, used as long we have no sample
+    private static final long DEFAULT_ROUND_TRIP_TIME = 1500;
+    private static final long LATENCY_SCALE = 1000;
+    private static final long SESSION_SCALE = 10 * 60 * 1000;
+
+    private long roundTripTime = -1;
+    private int numConnections;
+    private int numFailures;
+    private long connectedTime;
+    private int numSessions;
+    private long connectedSince;
+    private long lastUpdate = System.currentTimeMillis();
+    private double score;
+
+    PeerScore() {
+        updateScore();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void onConnection() {
+        numConnections++;
+        connectedSince = System.currentTimeMillis();
+        updateScore();
+    }
+
+    void onDisconnect(boolean failure) {
+        if (connectedSince > 0) {
+            connectedTime += System.currentTimeMillis() - connectedSince;
+            numSessions++;
+            connectedSince = 0;
+        }
+        if (failure)
+            numFailures++;
+        updateScore();
+    }
+
+    // A failed connection attempt or request
+    void onFailure() {
+        numConnections++;
+        numFailures++;
+        updateScore();
+    }
+
+    void onRoundTripTime(long roundTripTime) {
+        this.roundTripTime = roundTripTime;
+        updateScore();
+    }
+
+    double getScore() {
+        return score;
+    }
+
+    long getLastUpdate() {
+        return lastUpdate;
+    }
+
+    boolean isConnected() {
+        return connectedSince > 0;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void updateScore() {
+        double successRate = (double) (numConnections - numFailures + 1) / (numConnections + 2);
+        long rtt = roundTripTime >= 0 ? roundTripTime : DEFAULT_ROUND_TRIP_TIME;
+        double latencyFactor = (double) LATENCY_SCALE / (LATENCY_SCALE + rtt);
+        double averageSession = numSessions > 0 ? (double) connectedTime / numSessions : SESSION_SCALE;
+        double stabilityFactor = 0.5 + 0.5 * averageSession / (averageSession + SESSION_SCALE);
+        score = Math.max(0, successRate) * latencyFactor * stabilityFactor;
+        lastUpdate = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "PeerScore{" +
+                "score=" + String.format("%.3f", score) +
+                ", roundTripTime=" + roundTripTime +
+                ", numConnections=" + numConnections +
+                ", numFailures=" + numFailures +
+                ", numSessions=" + numSessions +
+                ", connectedTime=" + connectedTime +
+                '}';
+    }
+}
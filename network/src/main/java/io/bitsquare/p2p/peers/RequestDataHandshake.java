@@ -4,6 +4,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 import io.bitsquare.app.Log;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
@@ -22,7 +23,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.HashSet;
 import java.util.Random;
-import java.util.Timer;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -30,6 +30,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class RequestDataHandshake implements MessageListener {
     private static final Logger log = LoggerFactory.getLogger(RequestDataHandshake.class);
 
+    static final long TIMEOUT_SEC = 10;
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Listener
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -79,7 +81,7 @@ public class RequestDataHandshake implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void requestData(NodeAddress nodeAddress) {
-        Log.traceCall("nodeAddress=" + nodeAddress);
+        Log.traceCall("nodeAddress={}", nodeAddress);
         checkArgument(timeoutTimer == null, "requestData must not be called twice.");
 
         timeoutTimer = UserThread.runAfter(() -> {
@@ -88,7 +90,7 @@ public class RequestDataHandshake implements MessageListener {
                     shutDown();
                     listener.onFault("A timeout occurred");
                 },
-                10, TimeUnit.SECONDS);
+                TIMEOUT_SEC, TimeUnit.SECONDS);
 
         Message dataRequest;
         if (networkNode.getNodeAddress() == null)
@@ -120,7 +122,7 @@ public class RequestDataHandshake implements MessageListener {
     }
 
     public void onDataRequest(Message message, final Connection connection) {
-        Log.traceCall(message.toString() + " / connection=" + connection);
+        Log.traceCall("{} / connection={}", message, connection);
 
         checkArgument(timeoutTimer == null, "requestData must not be called twice.");
         timeoutTimer = UserThread.runAfter(() -> {
@@ -129,7 +131,7 @@ public class RequestDataHandshake implements MessageListener {
                     shutDown();
                     listener.onFault("A timeout occurred");
                 },
-                10, TimeUnit.SECONDS);
+                TIMEOUT_SEC, TimeUnit.SECONDS);
 
         DataRequest dataRequest = (DataRequest) message;
         DataResponse dataResponse = new DataResponse(new HashSet<>(dataStorage.getMap().values()), dataRequest.getNonce());
@@ -164,7 +166,7 @@ public class RequestDataHandshake implements MessageListener {
     @Override
     public void onMessage(Message message, Connection connection) {
         if (message instanceof DataResponse) {
-            Log.traceCall(message.toString() + " / connection=" + connection);
+            Log.traceCall("{} / connection={}", message, connection);
             DataResponse dataResponse = (DataResponse) message;
             if (dataResponse.requestNonce == nonce) {
                 stopTimeoutTimer();
@@ -1,6 +1,7 @@
 package io.bitsquare.p2p.peers;
 
 import io.bitsquare.app.Log;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
@@ -12,6 +13,7 @@ import io.bitsquare.p2p.storage.P2PDataStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -21,6 +23,19 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class RequestDataManager implements MessageListener {
     private static final Logger log = LoggerFactory.getLogger(RequestDataManager.class);
 
+    // If enabled we send a second request to the next seed node if the first one has not responded after its
+    // usual response time (see SeedNodeLatencies.getHedgeDelay). The first response wins, the other request gets
+    // canceled. Set with the hedgedRequests program argument.
+    private static volatile boolean hedgedRequests = true;
+
+    public static boolean isHedgedRequests() {
+        return hedgedRequests;
+    }
+
+    public static void setHedgedRequests(boolean hedgedRequests) {
+        RequestDataManager.hedgedRequests = hedgedRequests;
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Listener
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -47,8 +62,11 @@ public class RequestDataManager implements MessageListener {
     private final PeerManager peerManager;
     private final Collection<NodeAddress> seedNodeAddresses;
     private final Listener listener;
+    private final SeedNodeLatencies seedNodeLatencies;
 
     private final Map<NodeAddress, RequestDataHandshake> requestDataHandshakeMap = new HashMap<>();
+    private final Map<NodeAddress, Long> requestStartTimeMap = new HashMap<>();
+    private Timer hedgeTimer;
     private Optional<NodeAddress> nodeOfPreliminaryDataRequest = Optional.empty();
     private Timer requestDataTimer;
     private boolean dataUpdateRequested;
@@ -59,12 +77,13 @@ public class RequestDataManager implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public RequestDataManager(NetworkNode networkNode, P2PDataStorage dataStorage, PeerManager peerManager,
-                              Set<NodeAddress> seedNodeAddresses, Listener listener) {
+                              Set<NodeAddress> seedNodeAddresses, File storageDir, Listener listener) {
         this.networkNode = networkNode;
         this.dataStorage = dataStorage;
         this.peerManager = peerManager;
         this.seedNodeAddresses = new HashSet<>(seedNodeAddresses);
         this.listener = listener;
+        this.seedNodeLatencies = new SeedNodeLatencies(storageDir);
 
         checkArgument(!seedNodeAddresses.isEmpty(), "seedNodeAddresses must not be empty.");
         networkNode.addMessageListener(this);
@@ -73,6 +92,7 @@ public class RequestDataManager implements MessageListener {
     public void shutDown() {
         Log.traceCall();
         stopRequestDataTimer();
+        stopHedgeTimer();
         networkNode.removeMessageListener(this);
         requestDataHandshakeMap.values().stream().forEach(RequestDataHandshake::shutDown);
     }
@@ -84,8 +104,8 @@ public class RequestDataManager implements MessageListener {
 
     public void requestPreliminaryData() {
         Log.traceCall();
-        ArrayList<NodeAddress> nodeAddresses = new ArrayList<>(seedNodeAddresses);
-        Collections.shuffle(nodeAddresses);
+        // The fastest seed node we know from previous starts first
+        List<NodeAddress> nodeAddresses = seedNodeLatencies.getSortedByLatency(seedNodeAddresses);
         NodeAddress nextCandidate = nodeAddresses.get(0);
         nodeAddresses.remove(nextCandidate);
         requestData(nextCandidate, nodeAddresses);
@@ -95,8 +115,7 @@ public class RequestDataManager implements MessageListener {
         Log.traceCall();
         checkArgument(nodeOfPreliminaryDataRequest.isPresent(), "seedNodeOfPreliminaryDataRequest must be present");
         dataUpdateRequested = true;
-        List<NodeAddress> remainingNodeAddresses = new ArrayList<>(seedNodeAddresses);
-        Collections.shuffle(remainingNodeAddresses);
+        List<NodeAddress> remainingNodeAddresses = seedNodeLatencies.getSortedByLatency(seedNodeAddresses);
         NodeAddress candidate = nodeOfPreliminaryDataRequest.get();
         remainingNodeAddresses.remove(candidate);
         requestData(candidate, remainingNodeAddresses);
@@ -138,7 +157,7 @@ public class RequestDataManager implements MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private void requestData(NodeAddress nodeAddress, List<NodeAddress> remainingNodeAddresses) {
-        Log.traceCall("nodeAddress=" + nodeAddress + " /  remainingNodeAddresses=" + remainingNodeAddresses);
+        Log.traceCall("nodeAddress={} /  remainingNodeAddresses={}", nodeAddress, remainingNodeAddresses);
         if (!requestDataHandshakeMap.containsKey(nodeAddress)) {
             RequestDataHandshake requestDataHandshake = new RequestDataHandshake(networkNode, dataStorage, peerManager,
                     new RequestDataHandshake.Listener() {
@@ -147,9 +166,12 @@ public class RequestDataManager implements MessageListener {
                             log.trace("RequestDataHandshake of outbound connection complete. nodeAddress= {}",
                                     nodeAddress);
                             stopRequestDataTimer();
+                            stopHedgeTimer();
+                            onRequestCompleted(nodeAddress, true);
 
                             // need to remove before listeners are notified as they cause the update call
                             requestDataHandshakeMap.remove(nodeAddress);
+                            cancelPendingRequests();
 
                             // 1. We get a response from requestPreliminaryData
                             if (!nodeOfPreliminaryDataRequest.isPresent()) {
@@ -170,7 +192,14 @@ public class RequestDataManager implements MessageListener {
                         public void onFault(String errorMessage) {
                             log.trace("RequestDataHandshake of outbound connection failed. {} nodeAddress= {}",
                                     errorMessage, nodeAddress);
-                            if (!remainingNodeAddresses.isEmpty()) {
+                            onRequestCompleted(nodeAddress, false);
+                            requestDataHandshakeMap.remove(nodeAddress);
+                            boolean hedgedRequestPending = !requestDataHandshakeMap.isEmpty();
+
+                            if (hedgedRequestPending) {
+                                log.info("The hedged request to {} is still pending. We wait for its response.",
+                                        requestDataHandshakeMap.keySet());
+                            } else if (!remainingNodeAddresses.isEmpty()) {
                                 log.info("There are remaining nodes available for requesting data. " +
                                         "We will try requestDataFromPeers again.");
                                 NodeAddress nextCandidate = remainingNodeAddresses.get(0);
@@ -190,8 +219,7 @@ public class RequestDataManager implements MessageListener {
                                             // We don't filter out already established connections for seed nodes as it might be that
                                             // we got from the other seed node contacted but we still have not requested the initial 
                                             // data set
-                                            List<NodeAddress> list = new ArrayList<>(seedNodeAddresses);
-                                            Collections.shuffle(list);
+                                            List<NodeAddress> list = seedNodeLatencies.getSortedByLatency(seedNodeAddresses);
                                             list.addAll(getFilteredAndSortedList(peerManager.getReportedPeers(), list));
                                             list.addAll(getFilteredAndSortedList(peerManager.getPersistedPeers(), list));
                                             log.trace("Sorted and filtered list: list=" + list);
@@ -203,10 +231,8 @@ public class RequestDataManager implements MessageListener {
                                         10, 15, TimeUnit.SECONDS);
                             }
 
-                            requestDataHandshakeMap.remove(nodeAddress);
-
-                            // Notify listeners
-                            if (!nodeOfPreliminaryDataRequest.isPresent()) {
+                            // Notify listeners, unless a hedged request is still pending
+                            if (!nodeOfPreliminaryDataRequest.isPresent() && !hedgedRequestPending) {
                                 if (peerManager.isSeedNode(nodeAddress))
                                     listener.onNoSeedNodeAvailable();
                                 else
@@ -215,21 +241,74 @@ public class RequestDataManager implements MessageListener {
                         }
                     });
             requestDataHandshakeMap.put(nodeAddress, requestDataHandshake);
+            requestStartTimeMap.put(nodeAddress, System.currentTimeMillis());
             requestDataHandshake.requestData(nodeAddress);
+
+            if (hedgedRequests && requestDataHandshakeMap.size() == 1 && !remainingNodeAddresses.isEmpty())
+                startHedgeTimer(nodeAddress, remainingNodeAddresses);
         } else {
             log.warn("We have started already a requestDataHandshake to peer. " + nodeAddress);
         }
     }
 
-    // sorted by most recent lastActivityDate
-    private List<NodeAddress> getFilteredAndSortedList(Set<ReportedPeer> set, List<NodeAddress> list) {
-        return set.stream()
-                .filter(e -> !list.contains(e.nodeAddress) &&
+    private void startHedgeTimer(NodeAddress nodeAddress, List<NodeAddress> remainingNodeAddresses) {
+        stopHedgeTimer();
+        long delay = seedNodeLatencies.getHedgeDelay(nodeAddress);
+        hedgeTimer = UserThread.runAfter(() -> {
+            hedgeTimer = null;
+            if (requestDataHandshakeMap.containsKey(nodeAddress) && !remainingNodeAddresses.isEmpty()) {
+                NodeAddress nextCandidate = remainingNodeAddresses.remove(0);
+                log.info("We did not get a response from {} after {} ms. We send a hedged request to {}.",
+                        nodeAddress, delay, nextCandidate);
+                requestData(nextCandidate, remainingNodeAddresses);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void stopHedgeTimer() {
+        if (hedgeTimer != null) {
+            hedgeTimer.cancel();
+            hedgeTimer = null;
+        }
+    }
+
+    // We got a response from one node, so we don't need the responses of the other pending requests
+    private void cancelPendingRequests() {
+        requestDataHandshakeMap.entrySet().stream().forEach(e -> {
+            log.info("We got a response already. We cancel the pending request to {}.", e.getKey());
+            e.getValue().shutDown();
+            onRequestCanceled(e.getKey());
+        });
+        requestDataHandshakeMap.clear();
+    }
+
+    private void onRequestCompleted(NodeAddress nodeAddress, boolean success) {
+        Long startTime = requestStartTimeMap.remove(nodeAddress);
+        if (startTime != null && peerManager.isSeedNode(nodeAddress)) {
+            // A failed request counts as response at the timeout
+            long latency = success ? System.currentTimeMillis() - startTime : RequestDataHandshake.TIMEOUT_SEC * 1000;
+            seedNodeLatencies.onResponse(nodeAddress, latency);
+        }
+    }
+
+    // The canceled node was slower than the one which responded. We don't know how much, so we count the time we
+    // have waited for it. Otherwise a slow seed node would keep its old estimate and stay first in the order.
+    private void onRequestCanceled(NodeAddress nodeAddress) {
+        Long startTime = requestStartTimeMap.remove(nodeAddress);
+        if (startTime != null && peerManager.isSeedNode(nodeAddress))
+            seedNodeLatencies.onResponse(nodeAddress, System.currentTimeMillis() - startTime);
+    }
+
+    // sorted by score, then by most recent lastActivityDate
+    private List<NodeAddress> getFilteredAndSortedList(Collection<ReportedPeer> reportedPeers, List<NodeAddress> list) {
+        Set<NodeAddress> excluded = new HashSet<>(list);
+        return reportedPeers.stream()
+                .filter(e -> !excluded.contains(e.nodeAddress) &&
                         !peerManager.isSeedNode(e) &&
                         !peerManager.isSelf(e))
                 .collect(Collectors.toList())
                 .stream()
-                .sorted((o1, o2) -> o2.lastActivityDate.compareTo(o1.lastActivityDate))
+                .sorted(peerManager::compareByScore)
                 .map(e -> e.nodeAddress)
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,120 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.app.Version;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.storage.Storage;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Response times of the seed nodes for data requests, persisted for the next start.
+ * <p>
+ * We keep a smoothed latency and its variation per seed node, the same way TCP estimates the round trip time
+ * (RFC 6298). A failed request counts as a response at the request timeout.
+ */
+class SeedNodeLatencies {
+    private static final Logger log = LoggerFactory.getLogger(SeedNodeLatencies.class);
+
+    // Used for seed nodes we have never contacted
+    private static final long DEFAULT_LATENCY = 3000;
+    private static final long MIN_HEDGE_DELAY = 1000;
+    private static final long MAX_HEDGE_DELAY = 6000;
+
+    @Nullable
+    private Storage<HashMap<NodeAddress, Estimate>> dbStorage;
+    private final HashMap<NodeAddress, Estimate> estimates = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SeedNodeLatencies(@Nullable File storageDir) {
+        if (storageDir != null) {
+            dbStorage = new Storage<>(storageDir);
+            HashMap<NodeAddress, Estimate> persisted = dbStorage.initAndGetPersisted("SeedNodeLatencies");
+            if (persisted != null)
+                estimates.putAll(persisted);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void onResponse(NodeAddress nodeAddress, long latency) {
+        Estimate estimate = estimates.get(nodeAddress);
+        if (estimate == null) {
+            estimate = new Estimate(latency);
+            estimates.put(nodeAddress, estimate);
+        } else {
+            estimate.update(latency);
+        }
+        log.debug("Latency of seed node {}: {} ms. {}", nodeAddress, latency, estimate);
+
+        if (dbStorage != null)
+            dbStorage.queueUpForSave(estimates, 2000);
+    }
+
+    long getLatency(NodeAddress nodeAddress) {
+        Estimate estimate = estimates.get(nodeAddress);
+        return estimate != null ? estimate.smoothed : DEFAULT_LATENCY;
+    }
+
+    /**
+     * @return The time we wait for a response of that seed node before we send a second request to the next one.
+     */
+    long getHedgeDelay(NodeAddress nodeAddress) {
+        Estimate estimate = estimates.get(nodeAddress);
+        long delay = estimate != null ? estimate.smoothed + 4 * estimate.variation : 2 * DEFAULT_LATENCY;
+        return Math.min(MAX_HEDGE_DELAY, Math.max(MIN_HEDGE_DELAY, delay));
+    }
+
+    /**
+     * @return The given nodes sorted by their known latency, fastest first. Nodes with the same latency (e.g. not
+     * contacted yet) are shuffled.
+     */
+    List<NodeAddress> getSortedByLatency(Collection<NodeAddress> nodeAddresses) {
+        List<NodeAddress> list = new ArrayList<>(nodeAddresses);
+        Collections.shuffle(list);
+        list.sort((o1, o2) -> Long.compare(getLatency(o1), getLatency(o2)));
+        return list;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Estimate
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    static class Estimate implements Serializable {
+        // That object is saved to disc. We need to take care of changes to not break deserialization.
+        private static final long serialVersionUID = Version.LOCAL_DB_VERSION;
+
+        long smoothed;
+        long variation;
+
+        Estimate(long latency) {
+            smoothed = latency;
+            variation = latency / 2;
+        }
+
+        void update(long latency) {
+            variation = (3 * variation + Math.abs(smoothed - latency)) / 4;
+            smoothed = (7 * smoothed + latency) / 8;
+        }
+
+        @Override
+        public String toString() {
+            return "Estimate{" +
+                    "smoothed=" + smoothed +
+                    ", variation=" + variation +
+                    '}';
+        }
+    }
+}
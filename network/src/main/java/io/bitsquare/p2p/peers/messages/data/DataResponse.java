@@ -1,22 +1,34 @@
 package io.bitsquare.p2p.peers.messages.data;
 
 import io.bitsquare.app.Version;
-import io.bitsquare.p2p.Message;
+import io.bitsquare.p2p.network.Capabilities;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 import io.bitsquare.p2p.storage.data.ProtectedData;
 
 import java.util.HashSet;
 
-public final class DataResponse implements Message {
+public final class DataResponse implements SupportedCapabilitiesMessage {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
     private final int networkId = Version.getNetworkId();
 
     public final HashSet<ProtectedData> dataSet;
     public final long requestNonce;
+    private final int supportedCapabilities;
 
     public DataResponse(HashSet<ProtectedData> dataSet, long requestNonce) {
+        this(dataSet, requestNonce, Capabilities.getSupportedCapabilities());
+    }
+
+    public DataResponse(HashSet<ProtectedData> dataSet, long requestNonce, int supportedCapabilities) {
         this.dataSet = dataSet;
         this.requestNonce = requestNonce;
+        this.supportedCapabilities = supportedCapabilities;
+    }
+
+    @Override
+    public int getSupportedCapabilities() {
+        return supportedCapabilities;
     }
 
     @Override
@@ -46,6 +58,7 @@ public final class DataResponse implements Message {
                 "networkId=" + networkId +
                 ", dataSet=" + dataSet +
                 ", requestNonce=" + requestNonce +
+                ", supportedCapabilities=" + supportedCapabilities +
                 '}';
     }
 }
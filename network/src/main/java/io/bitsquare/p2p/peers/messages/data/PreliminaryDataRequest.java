@@ -1,17 +1,25 @@
 package io.bitsquare.p2p.peers.messages.data;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.p2p.network.Capabilities;
 import io.bitsquare.p2p.network.messages.AnonymousMessage;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 
-public final class PreliminaryDataRequest implements AnonymousMessage, DataRequest {
+public final class PreliminaryDataRequest implements AnonymousMessage, DataRequest, SupportedCapabilitiesMessage {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
 
     private final int networkId = Version.getNetworkId();
     private final long nonce;
+    private final int supportedCapabilities;
 
     public PreliminaryDataRequest(long nonce) {
+        this(nonce, Capabilities.getSupportedCapabilities());
+    }
+
+    public PreliminaryDataRequest(long nonce, int supportedCapabilities) {
         this.nonce = nonce;
+        this.supportedCapabilities = supportedCapabilities;
     }
 
     @Override
@@ -19,6 +27,11 @@ public final class PreliminaryDataRequest implements AnonymousMessage, DataReque
         return nonce;
     }
 
+    @Override
+    public int getSupportedCapabilities() {
+        return supportedCapabilities;
+    }
+
     @Override
     public int networkId() {
         return networkId;
@@ -29,6 +42,7 @@ public final class PreliminaryDataRequest implements AnonymousMessage, DataReque
         return "PreliminaryDataRequest{" +
                 "networkId=" + networkId +
                 ", nonce=" + nonce +
+                ", supportedCapabilities=" + supportedCapabilities +
                 '}';
     }
 }
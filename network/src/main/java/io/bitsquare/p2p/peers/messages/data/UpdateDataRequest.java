@@ -2,19 +2,28 @@ package io.bitsquare.p2p.peers.messages.data;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.network.Capabilities;
 import io.bitsquare.p2p.network.messages.SendersNodeAddressMessage;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 
-public final class UpdateDataRequest implements SendersNodeAddressMessage, DataRequest {
+public final class UpdateDataRequest implements SendersNodeAddressMessage, DataRequest,
+        SupportedCapabilitiesMessage {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
 
     private final int networkId = Version.getNetworkId();
     private final NodeAddress senderNodeAddress;
     private final long nonce;
+    private final int supportedCapabilities;
 
     public UpdateDataRequest(NodeAddress senderNodeAddress, long nonce) {
+        this(senderNodeAddress, nonce, Capabilities.getSupportedCapabilities());
+    }
+
+    public UpdateDataRequest(NodeAddress senderNodeAddress, long nonce, int supportedCapabilities) {
         this.senderNodeAddress = senderNodeAddress;
         this.nonce = nonce;
+        this.supportedCapabilities = supportedCapabilities;
     }
 
     @Override
@@ -27,6 +36,11 @@ public final class UpdateDataRequest implements SendersNodeAddressMessage, DataR
         return senderNodeAddress;
     }
 
+    @Override
+    public int getSupportedCapabilities() {
+        return supportedCapabilities;
+    }
+
     @Override
     public int networkId() {
         return networkId;
@@ -38,6 +52,7 @@ public final class UpdateDataRequest implements SendersNodeAddressMessage, DataR
                 "senderNodeAddress=" + senderNodeAddress +
                 ", networkId=" + networkId +
                 ", nonce=" + nonce +
+                ", supportedCapabilities=" + supportedCapabilities +
                 '}';
     }
 
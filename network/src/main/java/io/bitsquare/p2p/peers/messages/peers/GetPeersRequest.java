@@ -2,23 +2,33 @@ package io.bitsquare.p2p.peers.messages.peers;
 
 import io.bitsquare.app.Version;
 import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.network.Capabilities;
 import io.bitsquare.p2p.network.messages.SendersNodeAddressMessage;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 import io.bitsquare.p2p.peers.ReportedPeer;
 
 import java.util.HashSet;
 
-public final class GetPeersRequest extends PeerExchangeMessage implements SendersNodeAddressMessage {
+public final class GetPeersRequest extends PeerExchangeMessage implements SendersNodeAddressMessage,
+        SupportedCapabilitiesMessage {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
 
     private final NodeAddress senderNodeAddress;
     public long nonce;
     public final HashSet<ReportedPeer> reportedPeers;
+    private final int supportedCapabilities;
 
     public GetPeersRequest(NodeAddress senderNodeAddress, long nonce, HashSet<ReportedPeer> reportedPeers) {
+        this(senderNodeAddress, nonce, reportedPeers, Capabilities.getSupportedCapabilities());
+    }
+
+    public GetPeersRequest(NodeAddress senderNodeAddress, long nonce, HashSet<ReportedPeer> reportedPeers,
+                           int supportedCapabilities) {
         this.senderNodeAddress = senderNodeAddress;
         this.nonce = nonce;
         this.reportedPeers = reportedPeers;
+        this.supportedCapabilities = supportedCapabilities;
     }
 
     @Override
@@ -26,12 +36,18 @@ public final class GetPeersRequest extends PeerExchangeMessage implements Sender
         return senderNodeAddress;
     }
 
+    @Override
+    public int getSupportedCapabilities() {
+        return supportedCapabilities;
+    }
+
     @Override
     public String toString() {
         return "GetPeersRequest{" +
                 "senderNodeAddress=" + senderNodeAddress +
                 ", requestNonce=" + nonce +
                 ", reportedPeers.size()=" + reportedPeers.size() +
+                ", supportedCapabilities=" + supportedCapabilities +
                 super.toString() + "} ";
     }
 
@@ -1,20 +1,33 @@
 package io.bitsquare.p2p.peers.messages.peers;
 
 import io.bitsquare.app.Version;
+import io.bitsquare.p2p.network.Capabilities;
+import io.bitsquare.p2p.network.messages.SupportedCapabilitiesMessage;
 import io.bitsquare.p2p.peers.ReportedPeer;
 
 import java.util.HashSet;
 
-public final class GetPeersResponse extends PeerExchangeMessage {
+public final class GetPeersResponse extends PeerExchangeMessage implements SupportedCapabilitiesMessage {
     // That object is sent over the wire, so we need to take care of version compatibility.
     private static final long serialVersionUID = Version.NETWORK_PROTOCOL_VERSION;
 
     public final long requestNonce;
     public final HashSet<ReportedPeer> reportedPeers;
+    private final int supportedCapabilities;
 
     public GetPeersResponse(long requestNonce, HashSet<ReportedPeer> reportedPeers) {
+        this(requestNonce, reportedPeers, Capabilities.getSupportedCapabilities());
+    }
+
+    public GetPeersResponse(long requestNonce, HashSet<ReportedPeer> reportedPeers, int supportedCapabilities) {
         this.requestNonce = requestNonce;
         this.reportedPeers = reportedPeers;
+        this.supportedCapabilities = supportedCapabilities;
+    }
+
+    @Override
+    public int getSupportedCapabilities() {
+        return supportedCapabilities;
     }
 
     @Override
@@ -22,6 +35,7 @@ public final class GetPeersResponse extends PeerExchangeMessage {
         return "GetPeersResponse{" +
                 "requestNonce=" + requestNonce +
                 ", reportedPeers.size()=" + reportedPeers.size() +
+                ", supportedCapabilities=" + supportedCapabilities +
                 super.toString() + "} ";
     }
 }
@@ -3,6 +3,8 @@ package io.bitsquare.p2p.seed;
 import com.google.common.annotations.VisibleForTesting;
 import io.bitsquare.app.Log;
 import io.bitsquare.app.Version;
+import io.bitsquare.common.ExecutionService;
+import io.bitsquare.common.Timer;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.P2PService;
@@ -24,6 +26,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 public class SeedNode {
     private static final Logger log = LoggerFactory.getLogger(SeedNode.class);
+    private static final long LOG_METRICS_INTERVAL_SEC = 10 * 60;
 
     private NodeAddress mySeedNodeAddress = new NodeAddress("localhost:8001");
     private boolean useLocalhost = false;
@@ -31,6 +34,7 @@ public class SeedNode {
     private P2PService seedNodeP2PService;
     private boolean stopped;
     private final String defaultUserDataDir;
+    private Timer logMetricsTimer;
 
     public SeedNode(String defaultUserDataDir) {
         this.defaultUserDataDir = defaultUserDataDir;
@@ -137,6 +141,8 @@ public class SeedNode {
         seedNodesRepository.setNodeAddressToExclude(mySeedNodeAddress);
         seedNodeP2PService = new P2PService(seedNodesRepository, mySeedNodeAddress.port, torDir, useLocalhost, networkId, storageDir, null, null);
         seedNodeP2PService.start(listener);
+
+        logMetricsTimer = UserThread.runAfter(this::logUserThreadMetrics, LOG_METRICS_INTERVAL_SEC);
     }
 
     @VisibleForTesting
@@ -145,6 +151,15 @@ public class SeedNode {
         return seedNodeP2PService;
     }
 
+    // Shows which tasks keep the UserThread busy. The measurements start from scratch for each interval.
+    private void logUserThreadMetrics() {
+        log.info("UserThread tasks of the last {} sec:\n{}", LOG_METRICS_INTERVAL_SEC,
+                UserThread.getInstrumentedExecutor().getSummary(20));
+        log.info("Thread pools:\n{}", ExecutionService.getSummary());
+        UserThread.getInstrumentedExecutor().reset();
+        logMetricsTimer = UserThread.runAfter(this::logUserThreadMetrics, LOG_METRICS_INTERVAL_SEC);
+    }
+
     private void shutDown() {
         Log.traceCall();
         shutDown(null);
@@ -156,6 +171,9 @@ public class SeedNode {
         if (!stopped) {
             stopped = true;
 
+            if (logMetricsTimer != null)
+                logMetricsTimer.cancel();
+
             seedNodeP2PService.shutDown(() -> {
                 if (shutDownCompleteHandler != null) UserThread.execute(shutDownCompleteHandler);
             });
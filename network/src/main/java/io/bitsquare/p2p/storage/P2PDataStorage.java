@@ -1,14 +1,13 @@
 package io.bitsquare.p2p.storage;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.util.concurrent.MoreExecutors;
 import io.bitsquare.app.Log;
 import io.bitsquare.common.ByteArray;
+import io.bitsquare.common.ExecutionService;
 import io.bitsquare.common.UserThread;
 import io.bitsquare.common.crypto.CryptoException;
 import io.bitsquare.common.crypto.Hash;
 import io.bitsquare.common.crypto.Sig;
-import io.bitsquare.common.util.Utilities;
 import io.bitsquare.p2p.Message;
 import io.bitsquare.p2p.NodeAddress;
 import io.bitsquare.p2p.network.Connection;
@@ -30,7 +29,7 @@ import java.security.KeyPair;
 import java.security.PublicKey;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 // Run in UserThread
@@ -45,7 +44,7 @@ public class P2PDataStorage implements MessageListener {
     private final CopyOnWriteArraySet<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
     private HashMap<ByteArray, Integer> sequenceNumberMap = new HashMap<>();
     private final Storage<HashMap> storage;
-    private final ScheduledThreadPoolExecutor removeExpiredEntriesExecutor;
+    private ScheduledFuture<?> removeExpiredEntriesFuture;
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -58,7 +57,6 @@ public class P2PDataStorage implements MessageListener {
         networkNode.addMessageListener(this);
 
         storage = new Storage<>(storageDir);
-        removeExpiredEntriesExecutor = Utilities.getScheduledThreadPoolExecutor("removeExpiredEntries", 1, 10, 5);
 
         init();
     }
@@ -69,10 +67,12 @@ public class P2PDataStorage implements MessageListener {
         if (persisted != null)
             sequenceNumberMap = persisted;
 
-        removeExpiredEntriesExecutor.scheduleAtFixedRate(() -> UserThread.execute(this::removeExpiredEntries), CHECK_TTL_INTERVAL, CHECK_TTL_INTERVAL, TimeUnit.SECONDS);
+        removeExpiredEntriesFuture = ExecutionService.scheduleAtFixedRate(() -> UserThread.execute(this::removeExpiredEntries),
+                CHECK_TTL_INTERVAL, CHECK_TTL_INTERVAL, TimeUnit.SECONDS);
     }
 
-    private void removeExpiredEntries() {
+    @VisibleForTesting
+    public void removeExpiredEntries() {
         Log.traceCall();
         // The moment when an object becomes expired will not be synchronous in the network and we could 
         // get add messages after the object has expired. To avoid repeated additions of already expired 
@@ -102,8 +102,8 @@ public class P2PDataStorage implements MessageListener {
     @Override
     public void onMessage(Message message, Connection connection) {
         if (message instanceof DataBroadcastMessage) {
-            Log.traceCall(message.toString());
-            log.trace("DataBroadcastMessage received " + message + " on connection " + connection);
+            Log.traceCall("{}", message);
+            log.trace("DataBroadcastMessage received {} on connection {}", message, connection);
             connection.getPeersNodeAddressOptional().ifPresent(peersNodeAddress -> {
                 if (message instanceof AddDataMessage) {
                     add(((AddDataMessage) message).data, peersNodeAddress);
@@ -123,7 +123,8 @@ public class P2PDataStorage implements MessageListener {
 
     public void shutDown() {
         Log.traceCall();
-        MoreExecutors.shutdownAndAwaitTermination(removeExpiredEntriesExecutor, 500, TimeUnit.MILLISECONDS);
+        if (removeExpiredEntriesFuture != null)
+            removeExpiredEntriesFuture.cancel(false);
     }
 
     public boolean add(ProtectedData protectedData, @Nullable NodeAddress sender) {
@@ -159,15 +160,9 @@ public class P2PDataStorage implements MessageListener {
             sequenceNumberMap.put(hashOfPayload, protectedData.sequenceNumber);
             storage.queueUpForSave(sequenceNumberMap, 5000);
 
-            StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n");
-            sb.append("Data set after addProtectedExpirableData:");
-            if (map.values().size() < 10)
-                map.values().stream().forEach(e -> sb.append("\n").append(e.toString()).append("\n"));
-            else
-                map.values().stream().forEach(e -> sb.append("\n").append("Truncated logs:").append(map.values().size())
-                        .append(" entries\n").append(e.toString().substring(0, 40)).append("...\n"));
-            sb.append("\n------------------------------------------------------------\n");
-            log.info(sb.toString());
+            log.info("Data added: {}. Number of entries: {}", protectedData.expirablePayload.getClass().getSimpleName(), map.size());
+            if (log.isTraceEnabled())
+                log.trace(getDataDump("Data set after addProtectedExpirableData:"));
 
             if (rePublish || !containsKey)
                 broadcast(new AddDataMessage(protectedData), sender);
@@ -270,6 +265,22 @@ public class P2PDataStorage implements MessageListener {
         hashMapChangedListeners.add(hashMapChangedListener);
     }
 
+    /**
+     * Lists all entries of the data set. That is expensive with a large data set, so we use it only at TRACE level
+     * or on demand.
+     */
+    public String getDataDump(String title) {
+        StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n");
+        sb.append(title);
+        if (map.values().size() < 10)
+            map.values().stream().forEach(e -> sb.append("\n").append(e.toString()).append("\n"));
+        else
+            map.values().stream().forEach(e -> sb.append("\n").append("Truncated logs:").append(map.values().size())
+                    .append(" entries\n").append(e.toString().substring(0, 40)).append("...\n"));
+        sb.append("\n------------------------------------------------------------\n");
+        return sb.toString();
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Private
@@ -281,11 +292,9 @@ public class P2PDataStorage implements MessageListener {
         log.trace("Data removed from our map. We broadcast the message to our peers.");
         hashMapChangedListeners.stream().forEach(e -> e.onRemoved(protectedData));
 
-        StringBuilder sb = new StringBuilder("\n\n------------------------------------------------------------\n" +
-                "Data set after removeProtectedExpirableData:");
-        map.values().stream().forEach(e -> sb.append("\n").append(e.toString()));
-        sb.append("\n------------------------------------------------------------\n");
-        log.info(sb.toString());
+        log.info("Data removed: {}. Number of entries: {}", protectedData.expirablePayload.getClass().getSimpleName(), map.size());
+        if (log.isTraceEnabled())
+            log.trace(getDataDump("Data set after removeProtectedExpirableData:"));
     }
 
     private boolean isSequenceNrValid(ProtectedData data, ByteArray hashOfData) {
@@ -364,7 +373,7 @@ public class P2PDataStorage implements MessageListener {
     }
 
     private void broadcast(DataBroadcastMessage message, @Nullable NodeAddress sender) {
-        Log.traceCall(message.toString());
+        Log.traceCall("{}", message);
         broadcaster.broadcast(message, sender);
     }
 
@@ -0,0 +1,121 @@
+package io.bitsquare.p2p.network;
+
+import io.bitsquare.p2p.Message;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.network.codec.WireFormat;
+import io.bitsquare.p2p.network.messages.Pong;
+import io.bitsquare.p2p.peers.messages.peers.GetPeersRequest;
+import io.bitsquare.p2p.peers.messages.peers.GetPeersResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConnectionTest {
+    private final BlockingQueue<Message> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Message> receivedByB = new LinkedBlockingQueue<>();
+    private Connection connectionA;
+    private Connection connectionB;
+
+    @Before
+    public void setup() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Socket socketA = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+            Socket socketB = serverSocket.accept();
+            // Both constructors block until the peer has written the stream header, so we create A on another thread
+            Thread thread = new Thread(() -> connectionA = new Connection(socketA,
+                    (message, connection) -> receivedByA.add(message), new NoOpConnectionListener(), null));
+            thread.start();
+            connectionB = new Connection(socketB, (message, connection) -> receivedByB.add(message),
+                    new NoOpConnectionListener(), null);
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        connectionA.shutDown(false);
+        connectionB.shutDown(false);
+    }
+
+    @Test
+    public void testSwitchToCodecAfterCapabilitiesAdvertised() throws InterruptedException {
+        assertEquals(WireFormat.JAVA_SERIALIZATION, connectionA.getWireFormat());
+        assertEquals(WireFormat.JAVA_SERIALIZATION, connectionB.getWireFormat());
+
+        connectionA.sendMessage(new GetPeersRequest(new NodeAddress("localhost:9001"), 1, new HashSet<>()));
+        Message request = receivedByB.poll(10, TimeUnit.SECONDS);
+        assertTrue(request instanceof GetPeersRequest);
+        assertEquals(WireFormat.CODEC, connectionB.getWireFormat());
+        // A has not heard from B yet
+        assertEquals(WireFormat.JAVA_SERIALIZATION, connectionA.getWireFormat());
+
+        // The response goes out as codec frame and A switches as well
+        connectionB.sendMessage(new GetPeersResponse(1, new HashSet<>()));
+        Message response = receivedByA.poll(10, TimeUnit.SECONDS);
+        assertTrue(response instanceof GetPeersResponse);
+        assertEquals(1, ((GetPeersResponse) response).requestNonce);
+        assertEquals(WireFormat.CODEC, connectionA.getWireFormat());
+
+        // Codec frames carry the capabilities as well
+        connectionA.sendMessage(new GetPeersRequest(new NodeAddress("localhost:9001"), 2, new HashSet<>()));
+        request = receivedByB.poll(10, TimeUnit.SECONDS);
+        assertEquals(Capabilities.getSupportedCapabilities(), ((GetPeersRequest) request).getSupportedCapabilities());
+    }
+
+    @Test
+    public void testNoSwitchIfPeerDoesNotAdvertiseCodec() throws InterruptedException {
+        // Like a message of an older node, which does not know the field
+        connectionA.sendMessage(new GetPeersRequest(new NodeAddress("localhost:9001"), 1, new HashSet<>(), 0));
+        Message request = receivedByB.poll(10, TimeUnit.SECONDS);
+        assertTrue(request instanceof GetPeersRequest);
+        assertEquals(WireFormat.JAVA_SERIALIZATION, connectionB.getWireFormat());
+        assertFalse(connectionB.isPingSupported());
+        assertFalse(connectionB.ping());
+    }
+
+    @Test
+    public void testPingAfterPingAdvertised() throws InterruptedException {
+        assertFalse(connectionA.ping());
+        connectionB.sendMessage(new GetPeersResponse(1, new HashSet<>(), Capabilities.PING));
+        assertTrue(receivedByA.poll(10, TimeUnit.SECONDS) instanceof GetPeersResponse);
+        assertTrue(connectionA.isPingSupported());
+        // Ping support does not imply codec support
+        assertEquals(WireFormat.JAVA_SERIALIZATION, connectionA.getWireFormat());
+
+        assertTrue(connectionA.ping());
+        // B answers the Ping, A gets the Pong with the round trip time
+        Message pong = receivedByA.poll(10, TimeUnit.SECONDS);
+        assertTrue(pong instanceof Pong);
+        assertFalse(connectionA.isPingPending());
+        assertTrue(connectionA.getRoundTripTime() >= 0);
+        // B learned from the Ping that A supports it
+        assertTrue(connectionB.isPingSupported());
+    }
+
+    private static class NoOpConnectionListener implements ConnectionListener {
+        @Override
+        public void onConnection(Connection connection) {
+        }
+
+        @Override
+        public void onDisconnect(Reason reason, Connection connection) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+    }
+}
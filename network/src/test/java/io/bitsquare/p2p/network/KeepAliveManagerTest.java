@@ -0,0 +1,99 @@
+package io.bitsquare.p2p.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+public class KeepAliveManagerTest {
+    private static final long IDLE_TIMEOUT = 30 * 1000;
+    private static final long PONG_TIMEOUT = 30 * 1000;
+
+    private KeepAliveManager keepAliveManager;
+    private Connection connection;
+    private long start;
+
+    @Before
+    public void setup() {
+        // The timing wheel starts at the current time
+        start = System.currentTimeMillis();
+        keepAliveManager = new KeepAliveManager();
+
+        connection = mock(Connection.class);
+        when(connection.getUid()).thenReturn(UUID.randomUUID().toString());
+        when(connection.getLastReceivedTimeStamp()).thenReturn(start);
+        when(connection.ping()).thenReturn(true);
+        keepAliveManager.add(connection);
+    }
+
+    @Test
+    public void testHalfOpenConnectionIsClosed() {
+        keepAliveManager.onTick(start + IDLE_TIMEOUT - 1000);
+        verify(connection, never()).ping();
+
+        keepAliveManager.onTick(start + IDLE_TIMEOUT);
+        verify(connection).ping();
+        onPingSent(start + IDLE_TIMEOUT);
+
+        // The peer's socket is gone, so we never get anything back
+        keepAliveManager.onTick(start + IDLE_TIMEOUT + PONG_TIMEOUT - 1000);
+        verify(connection, never()).shutDownUnresponsive();
+        keepAliveManager.onTick(start + IDLE_TIMEOUT + PONG_TIMEOUT);
+        verify(connection).shutDownUnresponsive();
+
+        // It is not checked anymore
+        keepAliveManager.onTick(start + 10 * IDLE_TIMEOUT);
+        verify(connection, times(1)).ping();
+    }
+
+    @Test
+    public void testRespondingPeerIsKept() {
+        keepAliveManager.onTick(start + IDLE_TIMEOUT);
+        onPingSent(start + IDLE_TIMEOUT);
+
+        // Pong
+        when(connection.isPingPending()).thenReturn(false);
+        when(connection.getLastReceivedTimeStamp()).thenReturn(start + IDLE_TIMEOUT + 2000);
+
+        keepAliveManager.onTick(start + IDLE_TIMEOUT + PONG_TIMEOUT);
+        verify(connection, never()).shutDownUnresponsive();
+        verify(connection, times(1)).ping();
+
+        // Next Ping after the next idle period
+        keepAliveManager.onTick(start + 2 * IDLE_TIMEOUT + 2000);
+        verify(connection, times(2)).ping();
+    }
+
+    @Test
+    public void testConnectionWithTrafficIsNotPinged() {
+        when(connection.getLastReceivedTimeStamp()).thenReturn(start + IDLE_TIMEOUT - 5000);
+        keepAliveManager.onTick(start + IDLE_TIMEOUT);
+        verify(connection, never()).ping();
+
+        keepAliveManager.onTick(start + 2 * IDLE_TIMEOUT - 5000);
+        verify(connection).ping();
+    }
+
+    @Test
+    public void testPeerWithoutPingSupportIsNotClosed() {
+        when(connection.ping()).thenReturn(false);
+        keepAliveManager.onTick(start + IDLE_TIMEOUT);
+        keepAliveManager.onTick(start + 3 * IDLE_TIMEOUT);
+        verify(connection, times(2)).ping();
+        verify(connection, never()).shutDownUnresponsive();
+    }
+
+    @Test
+    public void testRemovedConnectionIsNotChecked() {
+        keepAliveManager.remove(connection);
+        keepAliveManager.onTick(start + IDLE_TIMEOUT);
+        verify(connection, never()).ping();
+    }
+
+    private void onPingSent(long pingSentTimeStamp) {
+        when(connection.isPingPending()).thenReturn(true);
+        when(connection.getPingSentTimeStamp()).thenReturn(pingSentTimeStamp);
+    }
+}
@@ -0,0 +1,198 @@
+package io.bitsquare.p2p.network;
+
+import com.google.common.util.concurrent.SettableFuture;
+import io.bitsquare.p2p.Message;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.peers.messages.peers.GetPeersRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class NetworkNodeTest {
+    private static final NodeAddress PEER = new NodeAddress("localhost:1000");
+
+    private final BlockingQueue<Message> receivedByPeer = new LinkedBlockingQueue<>();
+    private final CopyOnWriteArrayList<Connection> peersConnections = new CopyOnWriteArrayList<>();
+    private ServerSocket serverSocket;
+    private TestNetworkNode networkNode;
+
+    @Before
+    public void setup() throws IOException {
+        serverSocket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+        // The peer's side. The connection constructor blocks until our side has written the stream header.
+        Thread acceptThread = new Thread(() -> {
+            try {
+                while (!serverSocket.isClosed()) {
+                    Socket socket = serverSocket.accept();
+                    new Thread(() -> peersConnections.add(new Connection(socket,
+                            (message, connection) -> receivedByPeer.add(message), new NoOpConnectionListener(), null)))
+                            .start();
+                }
+            } catch (IOException ignore) {
+                // server socket closed
+            }
+        });
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        networkNode = new TestNetworkNode(serverSocket.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        networkNode.createSocketLatch.countDown();
+        networkNode.shutDown(null);
+        peersConnections.stream().forEach(connection -> connection.shutDown(false));
+        serverSocket.close();
+    }
+
+    @Test
+    public void testSendMessageWaitsForPendingPreConnect() throws Exception {
+        networkNode.preConnect(PEER);
+        // The connection setup is still in progress, so we must not open a second connection
+        SettableFuture<Connection> future = networkNode.sendMessage(PEER, newMessage());
+        assertFalse(future.isDone());
+
+        networkNode.createSocketLatch.countDown();
+        Connection connection = future.get(10, TimeUnit.SECONDS);
+        assertTrue(receivedByPeer.poll(10, TimeUnit.SECONDS) instanceof GetPeersRequest);
+        assertEquals(1, networkNode.numCreatedSockets.get());
+        // The message went over the pre-connected connection
+        assertEquals(Connection.PeerType.DIRECT_MSG_PEER, connection.getPeerType());
+        assertEquals(1, networkNode.getAllConnections().size());
+    }
+
+    @Test
+    public void testSendMessageAfterFailedPreConnect() throws Exception {
+        networkNode.failFirstSocket = true;
+        networkNode.preConnect(PEER);
+        SettableFuture<Connection> future = networkNode.sendMessage(PEER, newMessage());
+
+        networkNode.createSocketLatch.countDown();
+        // We try again with a new connection
+        future.get(10, TimeUnit.SECONDS);
+        assertTrue(receivedByPeer.poll(10, TimeUnit.SECONDS) instanceof GetPeersRequest);
+        assertEquals(2, networkNode.numCreatedSockets.get());
+    }
+
+    @Test
+    public void testNoPreConnectToConnectedPeer() throws Exception {
+        networkNode.createSocketLatch.countDown();
+        networkNode.sendMessage(PEER, newMessage()).get(10, TimeUnit.SECONDS);
+        networkNode.preConnect(PEER);
+        assertEquals(1, networkNode.numCreatedSockets.get());
+    }
+
+    @Test
+    public void testPreConnectReplacesLeastRecentlyHinted() throws Exception {
+        networkNode.createSocketLatch.countDown();
+        for (int i = 1; i <= 3; i++)
+            networkNode.preConnect(peer(i));
+        assertTrue(waitUntil(() -> hasOpenConnection(peer(1)) && hasOpenConnection(peer(2)) &&
+                hasOpenConnection(peer(3))));
+
+        // Hinted again, so peer 2 is the least recently hinted one now
+        networkNode.preConnect(peer(1));
+        networkNode.preConnect(peer(4));
+        assertTrue(waitUntil(() -> !hasOpenConnection(peer(2)) && hasOpenConnection(peer(4))));
+        assertTrue(hasOpenConnection(peer(1)));
+        assertTrue(hasOpenConnection(peer(3)));
+        assertEquals(4, networkNode.numCreatedSockets.get());
+    }
+
+    @Test
+    public void testPreConnectEvictedWhileConnecting() throws Exception {
+        for (int i = 1; i <= 4; i++)
+            networkNode.preConnect(peer(i));
+
+        networkNode.createSocketLatch.countDown();
+        // Peer 1 gets connected but closed at once
+        assertTrue(waitUntil(() -> networkNode.numCreatedSockets.get() == 4 && hasOpenConnection(peer(2)) &&
+                hasOpenConnection(peer(3)) && hasOpenConnection(peer(4))));
+        assertTrue(waitUntil(() -> !hasOpenConnection(peer(1))));
+    }
+
+    private boolean hasOpenConnection(NodeAddress peersNodeAddress) {
+        return networkNode.getAllConnections().stream()
+                .anyMatch(connection -> !connection.isStopped() &&
+                        connection.getPeersNodeAddressOptional().equals(Optional.of(peersNodeAddress)));
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static NodeAddress peer(int id) {
+        return new NodeAddress("localhost:" + (1000 + id));
+    }
+
+    private static Message newMessage() {
+        return new GetPeersRequest(new NodeAddress("localhost:9999"), 1, new HashSet<>());
+    }
+
+    private static class TestNetworkNode extends NetworkNode {
+        private final CountDownLatch createSocketLatch = new CountDownLatch(1);
+        private final AtomicInteger numCreatedSockets = new AtomicInteger();
+        private volatile boolean failFirstSocket;
+
+        TestNetworkNode(int servicePort) {
+            super(servicePort);
+        }
+
+        @Override
+        public void start(@Nullable SetupListener setupListener) {
+        }
+
+        // Connects to the test server, independent of the peer's address
+        @Override
+        protected Socket createSocket(NodeAddress peersNodeAddress) throws IOException {
+            try {
+                if (!createSocketLatch.await(10, TimeUnit.SECONDS))
+                    throw new IOException("Timeout at createSocket");
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (numCreatedSockets.incrementAndGet() == 1 && failFirstSocket)
+                throw new IOException("Peer is offline");
+            return new Socket(InetAddress.getLoopbackAddress(), servicePort);
+        }
+
+        @Override
+        public NodeAddress getNodeAddress() {
+            return new NodeAddress("localhost:9999");
+        }
+    }
+
+    private static class NoOpConnectionListener implements ConnectionListener {
+        @Override
+        public void onConnection(Connection connection) {
+        }
+
+        @Override
+        public void onDisconnect(Reason reason, Connection connection) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+    }
+}
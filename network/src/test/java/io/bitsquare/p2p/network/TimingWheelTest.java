@@ -0,0 +1,95 @@
+package io.bitsquare.p2p.network;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+    private static final long TICK = 1000;
+    private static final int NUM_SLOTS = 8;
+    private static final long START = 1_000_000;
+
+    private TimingWheel<String> timingWheel;
+
+    @Before
+    public void setup() {
+        timingWheel = new TimingWheel<>(TICK, NUM_SLOTS, START);
+    }
+
+    @Test
+    public void testNeverFiresBeforeDeadline() {
+        timingWheel.schedule("a", START + 1500);
+        assertTrue(timingWheel.advance(START + 1000).isEmpty());
+        // Same tick as the deadline, but not yet passed. The deadline must not get lost when we process its tick.
+        assertTrue(timingWheel.advance(START + 1499).isEmpty());
+        assertEquals(Collections.singletonList("a"), timingWheel.advance(START + 1500));
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void testFiresInDeadlineOrderOfTicks() {
+        timingWheel.schedule("c", START + 3000);
+        timingWheel.schedule("a", START + 1000);
+        timingWheel.schedule("b", START + 2000);
+        assertEquals(Arrays.asList("a", "b", "c"), timingWheel.advance(START + 5000));
+    }
+
+    @Test
+    public void testScheduleReplacesDeadline() {
+        timingWheel.schedule("a", START + 1000);
+        timingWheel.schedule("a", START + 4000);
+        assertEquals(1, timingWheel.size());
+        assertTrue(timingWheel.advance(START + 3000).isEmpty());
+        assertEquals(Collections.singletonList("a"), timingWheel.advance(START + 4000));
+    }
+
+    @Test
+    public void testCancel() {
+        timingWheel.schedule("a", START + 1000);
+        timingWheel.schedule("b", START + 1000);
+        timingWheel.cancel("a");
+        timingWheel.cancel("unknown");
+        assertEquals(Collections.singletonList("b"), timingWheel.advance(START + 1000));
+    }
+
+    @Test
+    public void testPastDeadlineFiresAtNextAdvance() {
+        timingWheel.advance(START + 2000);
+        timingWheel.schedule("a", START);
+        assertEquals(Collections.singletonList("a"), timingWheel.advance(START + 2000));
+    }
+
+    @Test
+    public void testDeadlineBeyondOneRevolution() {
+        // Lands in the same slot as START + 2000, but one round later
+        long deadline = START + 2000 + NUM_SLOTS * TICK;
+        timingWheel.schedule("a", deadline);
+        for (long now = START; now < deadline; now += TICK)
+            assertTrue(timingWheel.advance(now).isEmpty());
+        assertEquals(Collections.singletonList("a"), timingWheel.advance(deadline));
+    }
+
+    @Test
+    public void testLongPause() {
+        timingWheel.schedule("a", START + 1000);
+        timingWheel.schedule("b", START + 5000);
+        timingWheel.schedule("c", START + 100 * TICK);
+        // After a pause of many revolutions all passed deadlines fire at once
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(timingWheel.advance(START + 50 * TICK)));
+        assertEquals(Collections.singletonList("c"), timingWheel.advance(START + 100 * TICK));
+    }
+
+    @Test
+    public void testClear() {
+        timingWheel.schedule("a", START + 1000);
+        timingWheel.clear();
+        assertEquals(0, timingWheel.size());
+        assertTrue(timingWheel.advance(START + 1000).isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+package io.bitsquare.p2p.network.codec;
+
+import io.bitsquare.common.crypto.Sig;
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.common.crypto.SealedAndSigned;
+import io.bitsquare.crypto.PrefixedSealedAndSignedMessage;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.peers.ReportedPeer;
+import io.bitsquare.p2p.peers.messages.peers.GetPeersRequest;
+import io.bitsquare.p2p.storage.data.ExpirableMailboxPayload;
+import io.bitsquare.p2p.storage.data.ProtectedMailboxData;
+import io.bitsquare.p2p.storage.messages.AddDataMessage;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.Security;
+import java.util.Date;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class MessageCodecRegistryTest {
+    private KeyPair keyPair;
+
+    @Before
+    public void setup() {
+        Security.addProvider(new BouncyCastleProvider());
+        keyPair = Sig.generateKeyPair();
+    }
+
+    @Test
+    public void testGetPeersRequestRoundTrip() throws IOException {
+        HashSet<ReportedPeer> reportedPeers = new HashSet<>();
+        reportedPeers.add(new ReportedPeer(new NodeAddress("localhost:8001"), new Date()));
+        reportedPeers.add(new ReportedPeer(new NodeAddress("localhost:8002")));
+        GetPeersRequest message = new GetPeersRequest(new NodeAddress("localhost:8000"), 42, reportedPeers);
+
+        byte[] frame = MessageCodecRegistry.encode(message);
+        assertTrue(MessageCodecRegistry.isFrame(frame));
+        assertEquals(message.networkId(), MessageCodecRegistry.getNetworkId(frame));
+        assertTrue(frame.length < Utilities.serialize(message).length);
+
+        GetPeersRequest decoded = (GetPeersRequest) MessageCodecRegistry.decode(frame);
+        assertEquals(message.getSenderNodeAddress(), decoded.getSenderNodeAddress());
+        assertEquals(message.nonce, decoded.nonce);
+        assertEquals(message.reportedPeers, decoded.reportedPeers);
+    }
+
+    @Test
+    public void testMailboxDataRoundTrip() throws IOException {
+        PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = new PrefixedSealedAndSignedMessage(
+                new NodeAddress("localhost:8000"),
+                new SealedAndSigned(new byte[]{1, 2}, new byte[]{3, 4, 5}, new byte[]{6}, keyPair.getPublic()),
+                new byte[]{7, 8});
+        ExpirableMailboxPayload payload = new ExpirableMailboxPayload(prefixedSealedAndSignedMessage,
+                keyPair.getPublic(), keyPair.getPublic());
+        ProtectedMailboxData data = new ProtectedMailboxData(payload, payload.getTTL(), keyPair.getPublic(), 3,
+                new byte[]{9}, keyPair.getPublic());
+
+        AddDataMessage decoded = (AddDataMessage) MessageCodecRegistry.decode(
+                MessageCodecRegistry.encode(new AddDataMessage(data)));
+
+        assertTrue(decoded.data instanceof ProtectedMailboxData);
+        ExpirableMailboxPayload decodedPayload = (ExpirableMailboxPayload) decoded.data.expirablePayload;
+        assertEquals(prefixedSealedAndSignedMessage.getSenderNodeAddress(),
+                decodedPayload.prefixedSealedAndSignedMessage.getSenderNodeAddress());
+        assertEquals(prefixedSealedAndSignedMessage.sealedAndSigned, decodedPayload.prefixedSealedAndSignedMessage.sealedAndSigned);
+        assertArrayEquals(new byte[]{7, 8}, decodedPayload.prefixedSealedAndSignedMessage.addressPrefixHash);
+        assertEquals(keyPair.getPublic(), decodedPayload.senderStoragePublicKey);
+        assertEquals(keyPair.getPublic(), decodedPayload.receiverStoragePublicKey);
+        assertEquals(keyPair.getPublic(), decoded.data.ownerStoragePubKey);
+        assertEquals(keyPair.getPublic(), ((ProtectedMailboxData) decoded.data).receiversPubKey);
+        assertEquals(3, decoded.data.sequenceNumber);
+        assertArrayEquals(new byte[]{9}, decoded.data.signature);
+        assertEquals(payload.getTTL(), decoded.data.ttl);
+    }
+
+    @Test(expected = MessageCodecException.class)
+    public void testTruncatedFrameFails() throws IOException {
+        HashSet<ReportedPeer> reportedPeers = new HashSet<>();
+        reportedPeers.add(new ReportedPeer(new NodeAddress("localhost:8001"), new Date()));
+        byte[] frame = MessageCodecRegistry.encode(new GetPeersRequest(new NodeAddress("localhost:8000"), 1, reportedPeers));
+        byte[] truncated = new byte[frame.length - 20];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        // length fields are validated against the available data
+        MessageCodecRegistry.decode(truncated);
+    }
+}
@@ -0,0 +1,153 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.network.Connection;
+import io.bitsquare.p2p.network.InboundConnection;
+import io.bitsquare.p2p.network.OutboundConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConnectionEvictionIndexTest {
+    private final Map<NodeAddress, Double> scores = new HashMap<>();
+    private ConnectionEvictionIndex index;
+    private int port = 9000;
+
+    @Before
+    public void setup() {
+        index = new ConnectionEvictionIndex(connection -> connection.getPeersNodeAddressOptional()
+                .map(nodeAddress -> scores.getOrDefault(nodeAddress, 0.5))
+                .orElse(0.5));
+    }
+
+    @Test
+    public void testLevelOrder() {
+        Connection seedNode = add(mockConnection(OutboundConnection.class, Connection.PeerType.SEED_NODE, 10));
+        Connection directMsgPeer = add(mockConnection(InboundConnection.class, Connection.PeerType.DIRECT_MSG_PEER, 50));
+        Connection outbound = add(mockConnection(OutboundConnection.class, Connection.PeerType.PEER, 100));
+        Connection inbound = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 300));
+
+        // Level 0 and 1 go first, independent of their last activity. Within level 2 the oldest goes first.
+        assertEquals(Arrays.asList(inbound, outbound, seedNode, directMsgPeer), index.removeSurplus(0, 0, 0));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testOrderByScoreThenLastActivity() {
+        Connection goodOld = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 100));
+        Connection badNew = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 300));
+        // Same score bucket as the default score, so the last activity decides
+        Connection sameBucketOlder = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 50));
+        scores.put(getNodeAddress(goodOld), 0.9);
+        scores.put(getNodeAddress(badNew), 0.1);
+        scores.put(getNodeAddress(sameBucketOlder), 0.52);
+        index.onScoreChanged(getNodeAddress(goodOld));
+        index.onScoreChanged(getNodeAddress(badNew));
+        index.onScoreChanged(getNodeAddress(sameBucketOlder));
+
+        assertEquals(Arrays.asList(badNew, sameBucketOlder, goodOld), index.removeSurplus(0, 0, 0));
+    }
+
+    @Test
+    public void testStaleHeadIsReKeyed() {
+        Connection first = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 100));
+        Connection second = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 200));
+        Connection third = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 300));
+        assertSame(first, index.peek());
+
+        // Not updated in the index, but the head gets re-keyed when we peek it
+        when(first.getLastActivityTimeStamp()).thenReturn(400L);
+        assertSame(second, index.peek());
+
+        when(second.getPeerType()).thenReturn(Connection.PeerType.DIRECT_MSG_PEER);
+        assertSame(third, index.peek());
+        assertEquals(Arrays.asList(third, first, second), index.removeSurplus(0, 0, 0));
+    }
+
+    @Test
+    public void testScoreChangeReKeysAllConnectionsOfPeer() {
+        Connection other = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 50));
+        Connection first = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 100));
+        NodeAddress nodeAddress = getNodeAddress(first);
+        Connection second = add(mockConnection(OutboundConnection.class, Connection.PeerType.PEER, 200, nodeAddress));
+        assertSame(other, index.peek());
+
+        // A lower score moves the entries towards the head, which the lazy re-keying would not detect
+        scores.put(nodeAddress, 0.1);
+        index.onScoreChanged(nodeAddress);
+        assertEquals(Arrays.asList(first, other, second), index.removeSurplus(0, 0, 0));
+    }
+
+    @Test
+    public void testStoppedConnectionsAreDropped() {
+        Connection stopped = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 100));
+        Connection running = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 200));
+        when(stopped.isStopped()).thenReturn(true);
+
+        assertSame(running, index.peek());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRemoveSurplusInOnePass() {
+        List<Connection> inbound = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            inbound.add(add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 100 + i)));
+        add(mockConnection(OutboundConnection.class, Connection.PeerType.PEER, 10));
+
+        assertEquals(inbound.subList(0, 3), index.removeSurplus(3, 10, 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testExtendedLimits() {
+        Connection inbound = add(mockConnection(InboundConnection.class, Connection.PeerType.PEER, 100));
+        List<Connection> outbound = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            outbound.add(add(mockConnection(OutboundConnection.class, Connection.PeerType.PEER, 10 + i)));
+        List<Connection> directMsgPeers = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            directMsgPeers.add(add(mockConnection(InboundConnection.class, Connection.PeerType.DIRECT_MSG_PEER, i)));
+
+        // Outbound connections only above the first extended limit
+        assertEquals(Collections.singletonList(inbound), index.removeSurplus(2, 7, 8));
+        assertEquals(7, index.size());
+
+        assertEquals(outbound.subList(0, 2), index.removeSurplus(2, 5, 8));
+        assertEquals(5, index.size());
+
+        // Other connections only above the second extended limit
+        List<Connection> expected = new ArrayList<>(outbound.subList(2, 4));
+        expected.add(directMsgPeers.get(0));
+        assertEquals(expected, index.removeSurplus(0, 0, 2));
+        assertEquals(directMsgPeers.subList(1, 3), index.removeSurplus(0, 0, 0));
+    }
+
+    private Connection add(Connection connection) {
+        index.add(connection);
+        return connection;
+    }
+
+    private Connection mockConnection(Class<? extends Connection> type, Connection.PeerType peerType, long lastActivityTimeStamp) {
+        return mockConnection(type, peerType, lastActivityTimeStamp, new NodeAddress("localhost:" + port++));
+    }
+
+    private static Connection mockConnection(Class<? extends Connection> type, Connection.PeerType peerType,
+                                             long lastActivityTimeStamp, NodeAddress nodeAddress) {
+        Connection connection = mock(type);
+        when(connection.getUid()).thenReturn(UUID.randomUUID().toString());
+        when(connection.getPeerType()).thenReturn(peerType);
+        when(connection.getLastActivityTimeStamp()).thenReturn(lastActivityTimeStamp);
+        when(connection.getPeersNodeAddressOptional()).thenReturn(Optional.of(nodeAddress));
+        return connection;
+    }
+
+    private static NodeAddress getNodeAddress(Connection connection) {
+        return connection.getPeersNodeAddressOptional().get();
+    }
+}
@@ -0,0 +1,120 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.common.util.Utilities;
+import io.bitsquare.p2p.NodeAddress;
+import io.bitsquare.p2p.network.Connection;
+import io.bitsquare.p2p.network.ConnectionListener;
+import io.bitsquare.p2p.network.NetworkNode;
+import io.bitsquare.storage.PersistenceService;
+import javafx.beans.property.SimpleObjectProperty;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PeerExchangeDeltaTest {
+    private static final NodeAddress RECEIVER = new NodeAddress("localhost:1000");
+
+    private File dir;
+    private PeerManager peerManager;
+    private Connection connection;
+
+    @Before
+    public void setup() throws IOException {
+        dir = File.createTempFile("temp_tests", "");
+        dir.delete();
+        dir.mkdir();
+
+        NetworkNode networkNode = mock(NetworkNode.class);
+        when(networkNode.getNodeAddress()).thenReturn(new NodeAddress("localhost:9999"));
+        peerManager = new PeerManager(networkNode, Collections.singleton(new NodeAddress("localhost:8000")), dir);
+
+        connection = mock(Connection.class);
+        when(connection.getUid()).thenReturn(UUID.randomUUID().toString());
+        when(connection.getPeersNodeAddressOptional()).thenReturn(Optional.of(RECEIVER));
+        when(connection.getNodeAddressProperty()).thenReturn(new SimpleObjectProperty<>(RECEIVER));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        peerManager.shutDown();
+        PersistenceService.flushAll();
+        Utilities.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testFirstExchangeSendsAllPeers() {
+        report(peer(1, 100), peer(2, 100));
+        assertEquals(set(peer(1, 100), peer(2, 100)), peerManager.getReportedPeersForExchange(RECEIVER));
+        // Each receiver has its own state
+        assertEquals(set(peer(1, 100), peer(2, 100)),
+                peerManager.getReportedPeersForExchange(new NodeAddress("localhost:1001")));
+    }
+
+    @Test
+    public void testLaterExchangesSendOnlyChanges() {
+        report(peer(1, 100), peer(2, 100));
+        peerManager.getReportedPeersForExchange(RECEIVER);
+        assertTrue(peerManager.getReportedPeersForExchange(RECEIVER).isEmpty());
+
+        report(peer(3, 100));
+        HashSet<ReportedPeer> delta = peerManager.getReportedPeersForExchange(RECEIVER);
+        assertEquals(set(peer(3, 100)), delta);
+
+        // A different date of a known peer is an update, we store the mid of both dates
+        report(peer(1, 300));
+        delta = peerManager.getReportedPeersForExchange(RECEIVER);
+        assertEquals(set(peer(1, 0)), delta);
+        assertEquals(200, delta.iterator().next().lastActivityDate.getTime());
+
+        // The same date again does not change anything
+        report(peer(2, 100));
+        assertTrue(peerManager.getReportedPeersForExchange(RECEIVER).isEmpty());
+    }
+
+    @Test
+    public void testReceiverSeedNodesAndSelfAreExcluded() {
+        report(peer(1, 100), new ReportedPeer(RECEIVER, new Date(100)),
+                new ReportedPeer(new NodeAddress("localhost:8000"), new Date(100)),
+                new ReportedPeer(new NodeAddress("localhost:9999"), new Date(100)));
+        assertEquals(set(peer(1, 100)), peerManager.getReportedPeersForExchange(RECEIVER));
+    }
+
+    @Test
+    public void testResetSendsAllPeersAgain() {
+        report(peer(1, 100), peer(2, 100));
+        peerManager.getReportedPeersForExchange(RECEIVER);
+
+        peerManager.resetPeerExchange(RECEIVER);
+        assertEquals(set(peer(1, 100), peer(2, 100)), peerManager.getReportedPeersForExchange(RECEIVER));
+    }
+
+    @Test
+    public void testDisconnectSendsAllPeersAgain() {
+        report(peer(1, 100), peer(2, 100));
+        peerManager.getReportedPeersForExchange(RECEIVER);
+
+        peerManager.onDisconnect(ConnectionListener.Reason.SHUT_DOWN, connection);
+        assertEquals(set(peer(1, 100), peer(2, 100)), peerManager.getReportedPeersForExchange(RECEIVER));
+    }
+
+    private void report(ReportedPeer... peers) {
+        peerManager.addToReportedPeers(new HashSet<>(Arrays.asList(peers)), connection);
+    }
+
+    private static ReportedPeer peer(int id, long lastActivityTime) {
+        return new ReportedPeer(new NodeAddress("localhost:" + id), new Date(lastActivityTime));
+    }
+
+    // ReportedPeer equals only compares the address
+    private static HashSet<ReportedPeer> set(ReportedPeer... peers) {
+        return new HashSet<>(Arrays.asList(peers));
+    }
+}
@@ -0,0 +1,134 @@
+package io.bitsquare.p2p.peers;
+
+import io.bitsquare.p2p.NodeAddress;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PeerListTest {
+    private PeerList peerList;
+
+    @Before
+    public void setup() {
+        peerList = new PeerList();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        ReportedPeer peer = peer(1, 100);
+        peerList.put(peer);
+        assertSame(peer, peerList.get(peer.nodeAddress));
+        assertTrue(peerList.contains(peer.nodeAddress));
+        assertTrue(peerList.getPeers().contains(peer));
+
+        // Replaces the peer with the same address
+        ReportedPeer updated = peer(1, 200);
+        peerList.put(updated);
+        assertEquals(1, peerList.size());
+        assertSame(updated, peerList.get(peer.nodeAddress));
+
+        assertFalse(peerList.putIfAbsent(peer(1, 300)));
+        assertSame(updated, peerList.get(peer.nodeAddress));
+        assertTrue(peerList.putIfAbsent(peer(2, 300)));
+        assertEquals(2, peerList.size());
+    }
+
+    @Test
+    public void testRemoveKeepsPositionsConsistent() {
+        List<ReportedPeer> peers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            peers.add(peer(i, 100 + i));
+            peerList.put(peers.get(i));
+        }
+
+        // The last one gets swapped into the position of the removed one
+        assertSame(peers.get(1), peerList.remove(peers.get(1).nodeAddress));
+        assertNull(peerList.remove(peers.get(1).nodeAddress));
+        // The swapped one must be removable from its new position
+        assertSame(peers.get(4), peerList.remove(peers.get(4).nodeAddress));
+        // The last one
+        assertSame(peers.get(3), peerList.remove(peers.get(3).nodeAddress));
+
+        assertEquals(new HashSet<>(Arrays.asList(peers.get(0), peers.get(2))), new HashSet<>(peerList.getPeers()));
+        assertEquals(2, peerList.size());
+        assertSame(peers.get(0), peerList.get(peers.get(0).nodeAddress));
+        assertSame(peers.get(2), peerList.get(peers.get(2).nodeAddress));
+    }
+
+    @Test
+    public void testRemoveOldest() {
+        ReportedPeer newest = peer(1, 300);
+        ReportedPeer oldest = peer(2, 100);
+        ReportedPeer middle = peer(3, 200);
+        ReportedPeer withoutDate = new ReportedPeer(new NodeAddress("localhost:4"));
+        peerList.put(newest);
+        peerList.put(oldest);
+        peerList.put(middle);
+        peerList.put(withoutDate);
+
+        // Peers without date count as oldest
+        assertSame(withoutDate, peerList.removeOldest());
+        assertSame(oldest, peerList.removeOldest());
+        // An update moves the peer in the order
+        peerList.put(peer(3, 400));
+        assertSame(newest, peerList.removeOldest());
+        assertEquals(peer(3, 400), peerList.removeOldest());
+        assertNull(peerList.removeOldest());
+        assertTrue(peerList.isEmpty());
+    }
+
+    @Test
+    public void testRemoveRandom() {
+        Set<ReportedPeer> peers = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            ReportedPeer peer = peer(i, 100 + i);
+            peers.add(peer);
+            peerList.put(peer);
+        }
+
+        Set<ReportedPeer> removed = new HashSet<>();
+        ReportedPeer peer;
+        while ((peer = peerList.removeRandom()) != null) {
+            assertTrue(removed.add(peer));
+            assertFalse(peerList.contains(peer.nodeAddress));
+            assertEquals(peers.size() - removed.size(), peerList.size());
+            // The view has to stay consistent with the index by address
+            assertEquals(peerList.size(), peerList.getPeers().size());
+        }
+        assertEquals(peers, removed);
+    }
+
+    @Test
+    public void testGetPeersChangedSince() {
+        ReportedPeer peer1 = peer(1, 100);
+        ReportedPeer peer2 = peer(2, 100);
+        peerList.put(peer1);
+        long sequence = peerList.getSequence();
+        peerList.put(peer2);
+
+        assertEquals(Collections.singletonList(peer2), peerList.getPeersChangedSince(sequence));
+        assertEquals(Arrays.asList(peer1, peer2), peerList.getPeersChangedSince(0));
+
+        // An update gets a new sequence number, a rejected putIfAbsent not
+        sequence = peerList.getSequence();
+        ReportedPeer updated = peer(1, 200);
+        peerList.put(updated);
+        peerList.putIfAbsent(peer(2, 300));
+        List<ReportedPeer> changed = peerList.getPeersChangedSince(sequence);
+        assertEquals(1, changed.size());
+        assertSame(updated, changed.get(0));
+
+        // Removed peers are not reported as changed
+        sequence = peerList.getSequence();
+        peerList.remove(updated.nodeAddress);
+        assertTrue(peerList.getPeersChangedSince(sequence).isEmpty());
+        assertEquals(Collections.singletonList(peer2), peerList.getPeersChangedSince(0));
+    }
+
+    private static ReportedPeer peer(int id, long lastActivityTime) {
+        return new ReportedPeer(new NodeAddress("localhost:" + id), new Date(lastActivityTime));
+    }
+}
@@ -0,0 +1,81 @@
+package io.bitsquare.p2p.peers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PeerScoreTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testDefaultScore() {
+        // Success rate 1/2 of the prior, latency factor at the default round trip time of 1.5 sec., stability 0.75
+        assertEquals(0.5 * 0.4 * 0.75, new PeerScore().getScore(), DELTA);
+    }
+
+    @Test
+    public void testFailuresLowerScore() {
+        PeerScore peerScore = new PeerScore();
+        double score = peerScore.getScore();
+        peerScore.onFailure();
+        assertTrue(peerScore.getScore() < score);
+
+        score = peerScore.getScore();
+        peerScore.onFailure();
+        assertTrue(peerScore.getScore() < score);
+        assertTrue(peerScore.getScore() > 0);
+    }
+
+    @Test
+    public void testRoundTripTime() {
+        PeerScore fast = new PeerScore();
+        fast.onRoundTripTime(100);
+        PeerScore slow = new PeerScore();
+        slow.onRoundTripTime(5000);
+        assertTrue(fast.getScore() > new PeerScore().getScore());
+        assertTrue(slow.getScore() < new PeerScore().getScore());
+
+        PeerScore noLatency = new PeerScore();
+        noLatency.onRoundTripTime(0);
+        assertEquals(0.5 * 1 * 0.75, noLatency.getScore(), DELTA);
+    }
+
+    @Test
+    public void testShortSessionsLowerScore() {
+        PeerScore peerScore = new PeerScore();
+        peerScore.onConnection();
+        assertTrue(peerScore.isConnected());
+        double score = peerScore.getScore();
+
+        peerScore.onDisconnect(false);
+        assertFalse(peerScore.isConnected());
+        // A session of about 0 ms gets the lowest stability factor
+        assertTrue(peerScore.getScore() < score);
+    }
+
+    @Test
+    public void testFailedDisconnectCountsAsFailure() {
+        PeerScore normal = new PeerScore();
+        normal.onConnection();
+        normal.onDisconnect(false);
+        PeerScore failed = new PeerScore();
+        failed.onConnection();
+        failed.onDisconnect(true);
+        assertTrue(failed.getScore() < normal.getScore());
+    }
+
+    @Test
+    public void testScoreStaysInRange() {
+        PeerScore best = new PeerScore();
+        for (int i = 0; i < 1000; i++)
+            best.onConnection();
+        best.onRoundTripTime(0);
+        assertTrue(best.getScore() <= 1);
+
+        PeerScore worst = new PeerScore();
+        for (int i = 0; i < 1000; i++)
+            worst.onFailure();
+        worst.onRoundTripTime(100_000);
+        assertTrue(worst.getScore() >= 0);
+    }
+}